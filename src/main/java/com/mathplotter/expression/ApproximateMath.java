@@ -0,0 +1,183 @@
+package com.mathplotter.expression;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Cheaper versions of sin, cos, exp, log and pow for sampling that only feeds the screen.
+ * Each one reduces its argument to a short interval and evaluates a short polynomial there,
+ * giving a relative error below 1e-7: far below a pixel, but not the correctly rounded
+ * results of {@link Math}. Arguments outside the ranges the reductions handle fall back to
+ * {@link Math}. Never use these for numbers shown to the user or passed to analysis.
+ */
+public final class ApproximateMath {
+
+    private static final double TWO_OVER_PI = 2 / Math.PI;
+    // pi/2 split into a leading part with trailing zero bits and the remainder (Cody-Waite)
+    private static final double PI_OVER_2_HIGH = 1.5707963267341256;
+    private static final double PI_OVER_2_LOW = 6.077100506506192e-11;
+    // Beyond this the two-part reduction loses accuracy
+    private static final double MAX_TRIG_ARGUMENT = 1e6;
+
+    private static final double LOG2_E = 1.4426950408889634;
+    private static final double LN2_HIGH = 0.6931471803691238;
+    private static final double LN2_LOW = 1.9082149292705877e-10;
+    private static final double SQRT2 = 1.4142135623730951;
+
+    static final UnaryFunction SIN = new UnaryFunction("sin", ApproximateMath::sin);
+    static final UnaryFunction COS = new UnaryFunction("cos", ApproximateMath::cos);
+    static final UnaryFunction EXP = new UnaryFunction("exp", ApproximateMath::exp);
+    static final UnaryFunction LOG = new UnaryFunction("log", ApproximateMath::log);
+    static final BinaryFunction POW = new BinaryFunction("pow", ApproximateMath::pow);
+
+    private static final Map<UnaryFunction, UnaryFunction> REPLACEMENTS = new IdentityHashMap<>();
+    static {
+        REPLACEMENTS.put(FunctionRegistry.SIN, SIN);
+        REPLACEMENTS.put(FunctionRegistry.COS, COS);
+        REPLACEMENTS.put(FunctionRegistry.EXP, EXP);
+        REPLACEMENTS.put(FunctionRegistry.LOG, LOG);
+    }
+
+    private ApproximateMath() {
+    }
+
+    public static double sin(double x) {
+        if (!(Math.abs(x) < MAX_TRIG_ARGUMENT)) return Math.sin(x);
+        double k = Math.rint(x * TWO_OVER_PI);
+        double r = (x - k * PI_OVER_2_HIGH) - k * PI_OVER_2_LOW;
+        switch ((int) k & 3) {
+            case 0: return sinKernel(r);
+            case 1: return cosKernel(r);
+            case 2: return -sinKernel(r);
+            default: return -cosKernel(r);
+        }
+    }
+
+    public static double cos(double x) {
+        if (!(Math.abs(x) < MAX_TRIG_ARGUMENT)) return Math.cos(x);
+        double k = Math.rint(x * TWO_OVER_PI);
+        double r = (x - k * PI_OVER_2_HIGH) - k * PI_OVER_2_LOW;
+        switch ((int) k & 3) {
+            case 0: return cosKernel(r);
+            case 1: return -sinKernel(r);
+            case 2: return -cosKernel(r);
+            default: return sinKernel(r);
+        }
+    }
+
+    // Taylor polynomials for |r| <= pi/4, accurate to a few parts in 1e8
+    private static double sinKernel(double r) {
+        double r2 = r * r;
+        return r + r * r2 * (-1.0 / 6 + r2 * (1.0 / 120 + r2 * (-1.0 / 5040 + r2 * (1.0 / 362880))));
+    }
+
+    private static double cosKernel(double r) {
+        double r2 = r * r;
+        return 1 + r2 * (-0.5 + r2 * (1.0 / 24 + r2 * (-1.0 / 720 + r2 * (1.0 / 40320))));
+    }
+
+    public static double exp(double x) {
+        if (!(Math.abs(x) < 708)) return Math.exp(x);
+        // x = k ln 2 + r with |r| <= ln 2 / 2
+        double k = Math.rint(x * LOG2_E);
+        double r = (x - k * LN2_HIGH) - k * LN2_LOW;
+        double p = 1 + r * (1 + r * (1.0 / 2 + r * (1.0 / 6 + r * (1.0 / 24 + r * (1.0 / 120 + r * (1.0 / 720
+                + r * (1.0 / 5040)))))));
+        return p * Double.longBitsToDouble((long) (k + 1023) << 52);
+    }
+
+    public static double log(double x) {
+        if (!(x >= Double.MIN_NORMAL && x < Double.POSITIVE_INFINITY)) return Math.log(x);
+        // x = m 2^e with m in [sqrt(2)/2, sqrt(2))
+        long bits = Double.doubleToRawLongBits(x);
+        int e = (int) (bits >>> 52) - 1023;
+        double m = Double.longBitsToDouble((bits & 0x000fffffffffffffL) | 0x3ff0000000000000L);
+        if (m > SQRT2) {
+            m *= 0.5;
+            e++;
+        }
+        // ln m = 2 atanh(s) with s = (m - 1) / (m + 1), |s| < 0.172
+        double s = (m - 1) / (m + 1);
+        double s2 = s * s;
+        double lnM = 2 * s * (1 + s2 * (1.0 / 3 + s2 * (1.0 / 5 + s2 * (1.0 / 7 + s2 * (1.0 / 9)))));
+        return e * LN2_HIGH + (lnM + e * LN2_LOW);
+    }
+
+    public static double pow(double base, double exponent) {
+        if (exponent == 2) return base * base;
+        if (!(base > 0) || !Double.isFinite(exponent)) return Math.pow(base, exponent);
+        return exp(exponent * log(base));
+    }
+
+    /**
+     * Returns the expression with sin, cos, exp, log and ^ replaced by their approximations,
+     * or the expression itself if it uses none of them. Shared subexpressions stay shared.
+     */
+    public static Expression approximate(Expression expression) {
+        return expression.accept(new Rewriter());
+    }
+
+    private static final class Rewriter implements ExpressionVisitor<Expression> {
+        private final Map<Expression, Expression> rewritten = new IdentityHashMap<>();
+
+        private Expression rewrite(Expression node) {
+            Expression result = rewritten.get(node);
+            if (result == null) {
+                result = node.accept(this);
+                rewritten.put(node, result);
+            }
+            return result;
+        }
+
+        @Override
+        public Expression visitConstant(Constant node) {
+            return node;
+        }
+
+        @Override
+        public Expression visitVariable(Variable node) {
+            return node;
+        }
+
+        @Override
+        public Expression visitParameter(Parameter node) {
+            return node;
+        }
+
+        @Override
+        public Expression visitNegation(Negation node) {
+            Expression operand = rewrite(node.getOperand());
+            return operand == node.getOperand() ? node : new Negation(operand);
+        }
+
+        @Override
+        public Expression visitBinaryOperation(BinaryOperation node) {
+            Expression left = rewrite(node.getLeft());
+            Expression right = rewrite(node.getRight());
+            // Squares are already a single multiplication
+            if (node.getOperator() == BinaryOperation.Operator.POWER && !Expressions.isConstant(right, 2)) {
+                return new BinaryFunctionCall(POW, left, right);
+            }
+            return left == node.getLeft() && right == node.getRight()
+                    ? node : new BinaryOperation(node.getOperator(), left, right);
+        }
+
+        @Override
+        public Expression visitFunctionCall(FunctionCall node) {
+            Expression argument = rewrite(node.getArgument());
+            UnaryFunction replacement = REPLACEMENTS.get(node.getFunction());
+            if (replacement != null) {
+                return new FunctionCall(replacement, argument);
+            }
+            return argument == node.getArgument() ? node : new FunctionCall(node.getFunction(), argument);
+        }
+
+        @Override
+        public Expression visitBinaryFunctionCall(BinaryFunctionCall node) {
+            Expression first = rewrite(node.getFirst());
+            Expression second = rewrite(node.getSecond());
+            return first == node.getFirst() && second == node.getSecond()
+                    ? node : new BinaryFunctionCall(node.getFunction(), first, second);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.mathplotter.expression;
+
+/**
+ * Strategy for evaluating an expression over a column of x values.
+ * The active implementation is chosen at runtime by {@link BatchEvaluators}.
+ */
+public interface BatchEvaluator {
+
+    /**
+     * Evaluates the expression for the first {@code length} values of xs, writing the results to ys.
+     */
+    void evaluate(Expression expression, double[] xs, double[] ys, int length);
+
+    /**
+     * Returns a short name for diagnostics, e.g. "scalar" or "vector".
+     */
+    String getName();
+}
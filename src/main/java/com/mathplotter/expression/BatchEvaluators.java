@@ -0,0 +1,74 @@
+package com.mathplotter.expression;
+
+/**
+ * Selects the {@link BatchEvaluator} used for sampling curves.
+ * <p>
+ * The scalar evaluator is always available. The SIMD evaluator, built on the incubating JDK
+ * Vector API, is only present when the project is built with the {@code vector} Maven profile
+ * and the JVM is started with {@code --add-modules jdk.incubator.vector}. The initial choice
+ * comes from the {@code mathplotter.batch} system property ({@code auto}, {@code scalar} or
+ * {@code vector}; default {@code auto}) and can be changed at runtime with {@link #useVector}.
+ */
+public final class BatchEvaluators {
+
+    private static final String VECTOR_EVALUATOR_CLASS = "com.mathplotter.expression.VectorBatchEvaluator";
+
+    public static final BatchEvaluator SCALAR = new BatchEvaluator() {
+        @Override
+        public void evaluate(Expression expression, double[] xs, double[] ys, int length) {
+            expression.evaluate(xs, ys, length);
+        }
+
+        @Override
+        public String getName() {
+            return "scalar";
+        }
+    };
+
+    private static final BatchEvaluator vector = loadVectorEvaluator();
+    private static volatile BatchEvaluator current =
+            vector != null && !"scalar".equals(System.getProperty("mathplotter.batch", "auto")) ? vector : SCALAR;
+
+    private BatchEvaluators() {
+    }
+
+    private static BatchEvaluator loadVectorEvaluator() {
+        try {
+            return (BatchEvaluator) Class.forName(VECTOR_EVALUATOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not built with the vector profile, or jdk.incubator.vector is not enabled
+            return null;
+        }
+    }
+
+    /**
+     * Returns the evaluator currently used for batch sampling.
+     */
+    public static BatchEvaluator current() {
+        return current;
+    }
+
+    /**
+     * Returns true if the SIMD evaluator could be loaded in this JVM.
+     */
+    public static boolean isVectorAvailable() {
+        return vector != null;
+    }
+
+    /**
+     * Switches between the SIMD and the scalar evaluator.
+     * @param enabled Whether to use the SIMD evaluator
+     * @return True if the SIMD evaluator is now in use; false if it was disabled or is unavailable
+     */
+    public static boolean useVector(boolean enabled) {
+        current = enabled && vector != null ? vector : SCALAR;
+        return current == vector;
+    }
+
+    /**
+     * Returns true if the active evaluator is the SIMD one.
+     */
+    public static boolean isVectorEnabled() {
+        return vector != null && current == vector;
+    }
+}
@@ -0,0 +1,35 @@
+package com.mathplotter.expression;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A named two-argument function that expressions can call, such as log(base, x) or atan2(y, x).
+ * Instances are registered once in the {@link FunctionRegistry} and shared by every expression.
+ */
+public final class BinaryFunction implements DoubleBinaryOperator {
+    private final String name;
+    private final DoubleBinaryOperator implementation;
+
+    public BinaryFunction(String name, DoubleBinaryOperator implementation) {
+        this.name = name;
+        this.implementation = implementation;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DoubleBinaryOperator getImplementation() {
+        return implementation;
+    }
+
+    @Override
+    public double applyAsDouble(double first, double second) {
+        return implementation.applyAsDouble(first, second);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,67 @@
+package com.mathplotter.expression;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A call to a two-argument function such as log(base, x).
+ * The function is resolved once at parse time from the {@link FunctionRegistry}.
+ */
+public final class BinaryFunctionCall extends Expression {
+    private final BinaryFunction function;
+    private final DoubleBinaryOperator implementation;
+    private final Expression first;
+    private final Expression second;
+
+    public BinaryFunctionCall(BinaryFunction function, Expression first, Expression second) {
+        this.function = function;
+        this.implementation = function.getImplementation();
+        this.first = first;
+        this.second = second;
+    }
+
+    public String getName() {
+        return function.getName();
+    }
+
+    public BinaryFunction getFunction() {
+        return function;
+    }
+
+    public Expression getFirst() {
+        return first;
+    }
+
+    public Expression getSecond() {
+        return second;
+    }
+
+    @Override
+    public double evaluate(double x) {
+        return implementation.applyAsDouble(first.evaluate(x), second.evaluate(x));
+    }
+
+    @Override
+    public void evaluate(double[] xs, double[] ys, int length) {
+        first.evaluate(xs, ys, length);
+        ScratchColumns scratch = ScratchColumns.get();
+        double[] secondValues = scratch.acquire(length);
+        try {
+            second.evaluate(xs, secondValues, length);
+            for (int i = 0; i < length; i++) {
+                ys[i] = implementation.applyAsDouble(ys[i], secondValues[i]);
+            }
+        } finally {
+            scratch.release();
+        }
+    }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visitBinaryFunctionCall(this);
+    }
+
+    @Override
+    public String toString() {
+        return function.getName() + "(" + first + "," + second + ")";
+    }
+}
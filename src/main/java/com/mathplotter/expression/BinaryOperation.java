@@ -0,0 +1,138 @@
+package com.mathplotter.expression;
+
+/**
+ * One of the arithmetic operators +, -, *, / and ^ applied to two operands.
+ */
+public final class BinaryOperation extends Expression {
+
+    public enum Operator {
+        ADD('+'), SUBTRACT('-'), MULTIPLY('*'), DIVIDE('/'), POWER('^');
+
+        private final char symbol;
+
+        Operator(char symbol) {
+            this.symbol = symbol;
+        }
+
+        public char getSymbol() {
+            return symbol;
+        }
+    }
+
+    private final Operator operator;
+    private final Expression left;
+    private final Expression right;
+
+    public BinaryOperation(Operator operator, Expression left, Expression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
+    @Override
+    public double evaluate(double x) {
+        return apply(left.evaluate(x), right.evaluate(x));
+    }
+
+    /**
+     * Applies the operator to the values of the operands.
+     */
+    double apply(double a, double b) {
+        switch (operator) {
+            case ADD: return a + b;
+            case SUBTRACT: return a - b;
+            case MULTIPLY: return a * b;
+            case DIVIDE: return a / b;
+            default: return b == 2 ? a * a : Math.pow(a, b);
+        }
+    }
+
+    @Override
+    public void evaluate(double[] xs, double[] ys, int length) {
+        left.evaluate(xs, ys, length);
+        if (right instanceof Constant) {
+            // Common case such as x*2 or x^3: no second column needed
+            applyScalar(ys, ((Constant) right).getValue(), length);
+            return;
+        }
+        ScratchColumns scratch = ScratchColumns.get();
+        double[] rightValues = scratch.acquire(length);
+        try {
+            right.evaluate(xs, rightValues, length);
+            apply(ys, rightValues, length);
+        } finally {
+            scratch.release();
+        }
+    }
+
+    /**
+     * Applies the operator to columns of operand values, leaving the results in the left column.
+     * There is one tight loop per operator, so the operator switch is outside the loop.
+     */
+    void apply(double[] ys, double[] rightValues, int length) {
+        switch (operator) {
+            case ADD:
+                for (int i = 0; i < length; i++) ys[i] += rightValues[i];
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < length; i++) ys[i] -= rightValues[i];
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < length; i++) ys[i] *= rightValues[i];
+                break;
+            case DIVIDE:
+                for (int i = 0; i < length; i++) ys[i] /= rightValues[i];
+                break;
+            default:
+                for (int i = 0; i < length; i++) ys[i] = Math.pow(ys[i], rightValues[i]);
+                break;
+        }
+    }
+
+    private void applyScalar(double[] ys, double b, int length) {
+        switch (operator) {
+            case ADD:
+                for (int i = 0; i < length; i++) ys[i] += b;
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < length; i++) ys[i] -= b;
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < length; i++) ys[i] *= b;
+                break;
+            case DIVIDE:
+                for (int i = 0; i < length; i++) ys[i] /= b;
+                break;
+            default:
+                if (b == 2) {
+                    // Squares of compound operands, which the simplifier leaves as powers
+                    for (int i = 0; i < length; i++) ys[i] *= ys[i];
+                } else {
+                    for (int i = 0; i < length; i++) ys[i] = Math.pow(ys[i], b);
+                }
+                break;
+        }
+    }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visitBinaryOperation(this);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + left + operator.getSymbol() + right + ")";
+    }
+}
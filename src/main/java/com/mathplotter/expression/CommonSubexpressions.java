@@ -0,0 +1,194 @@
+package com.mathplotter.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Common-subexpression elimination.
+ * {@link #eliminate} merges structurally equal subtrees into a single node, turning the tree
+ * into a DAG: in sin(x)^2 + cos(x)*sin(x) + sin(x) all three sin(x) become the same node.
+ * Evaluators that know about sharing compute such a node once per evaluation: the bytecode
+ * compiler keeps it in a local variable and the {@link SharedSubexpressionEvaluator} keeps its
+ * value or column. Every other pass still sees an ordinary tree and simply visits the shared
+ * node more than once.
+ */
+public final class CommonSubexpressions {
+
+    private CommonSubexpressions() {
+    }
+
+    /**
+     * Returns an expression equivalent to the given one in which equal subtrees are the same node.
+     */
+    public static Expression eliminate(Expression expression) {
+        return expression.accept(new Merger());
+    }
+
+    /**
+     * Merges equal subtrees across all the given expressions, so that for example the sin(x)
+     * in sin(x)+1 and in 2*sin(x) become one node. The result lists the merged expressions
+     * in the same order.
+     */
+    public static List<Expression> eliminate(List<Expression> expressions) {
+        Merger merger = new Merger();
+        List<Expression> merged = new ArrayList<>(expressions.size());
+        for (Expression expression : expressions) {
+            merged.add(expression.accept(merger));
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the nodes of the expression, other than leaves such as constants and x, that are
+     * reached along more than one path and are therefore worth computing only once.
+     */
+    public static Set<Expression> sharedNodes(Expression expression) {
+        return sharedNodes(Collections.singletonList(expression));
+    }
+
+    /**
+     * Returns the nodes reached along more than one path from any of the given expressions.
+     */
+    public static Set<Expression> sharedNodes(List<Expression> expressions) {
+        Map<Expression, Integer> uses = new IdentityHashMap<>();
+        for (Expression expression : expressions) {
+            countUses(expression, uses);
+        }
+        Set<Expression> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Expression, Integer> entry : uses.entrySet()) {
+            Expression node = entry.getKey();
+            if (entry.getValue() > 1 && !isLeaf(node)) {
+                shared.add(node);
+            }
+        }
+        return shared;
+    }
+
+    private static void countUses(Expression node, Map<Expression, Integer> uses) {
+        if (uses.merge(node, 1, Integer::sum) > 1) {
+            return;
+        }
+        for (Expression child : children(node)) {
+            countUses(child, uses);
+        }
+    }
+
+    static List<Expression> children(Expression node) {
+        if (node instanceof BinaryOperation) {
+            return Arrays.asList(((BinaryOperation) node).getLeft(), ((BinaryOperation) node).getRight());
+        }
+        if (node instanceof BinaryFunctionCall) {
+            return Arrays.asList(((BinaryFunctionCall) node).getFirst(), ((BinaryFunctionCall) node).getSecond());
+        }
+        if (node instanceof FunctionCall) {
+            return Collections.singletonList(((FunctionCall) node).getArgument());
+        }
+        if (node instanceof Negation) {
+            return Collections.singletonList(((Negation) node).getOperand());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the distinct nodes of the expression, other than leaves such as constants and x.
+     */
+    public static Set<Expression> nodes(Expression expression) {
+        Map<Expression, Integer> uses = new IdentityHashMap<>();
+        countUses(expression, uses);
+        Set<Expression> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Expression node : uses.keySet()) {
+            if (!isLeaf(node)) nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static boolean isLeaf(Expression node) {
+        return node instanceof Constant || node instanceof Variable || node instanceof Parameter;
+    }
+
+    /**
+     * Hash-consing visitor: rebuilds the tree bottom-up, returning the existing node for any
+     * subtree that has been seen before. Children are compared by identity, which is exact
+     * because they have already been merged.
+     */
+    private static final class Merger implements ExpressionVisitor<Expression> {
+        private final Map<List<Object>, Expression> nodes = new HashMap<>();
+
+        private Expression intern(Expression node, Object... key) {
+            return nodes.computeIfAbsent(Arrays.asList(key), k -> node);
+        }
+
+        @Override
+        public Expression visitConstant(Constant node) {
+            return intern(node, "constant", Double.doubleToLongBits(node.getValue()));
+        }
+
+        @Override
+        public Expression visitVariable(Variable node) {
+            return node;
+        }
+
+        @Override
+        public Expression visitParameter(Parameter node) {
+            return node;
+        }
+
+        @Override
+        public Expression visitNegation(Negation node) {
+            Expression operand = node.getOperand().accept(this);
+            Expression merged = operand == node.getOperand() ? node : new Negation(operand);
+            return intern(merged, "negate", new Identity(operand));
+        }
+
+        @Override
+        public Expression visitBinaryOperation(BinaryOperation node) {
+            Expression left = node.getLeft().accept(this);
+            Expression right = node.getRight().accept(this);
+            Expression merged = left == node.getLeft() && right == node.getRight()
+                    ? node : new BinaryOperation(node.getOperator(), left, right);
+            return intern(merged, node.getOperator(), new Identity(left), new Identity(right));
+        }
+
+        @Override
+        public Expression visitFunctionCall(FunctionCall node) {
+            Expression argument = node.getArgument().accept(this);
+            Expression merged = argument == node.getArgument()
+                    ? node : new FunctionCall(node.getFunction(), argument);
+            return intern(merged, new Identity(node.getFunction()), new Identity(argument));
+        }
+
+        @Override
+        public Expression visitBinaryFunctionCall(BinaryFunctionCall node) {
+            Expression first = node.getFirst().accept(this);
+            Expression second = node.getSecond().accept(this);
+            Expression merged = first == node.getFirst() && second == node.getSecond()
+                    ? node : new BinaryFunctionCall(node.getFunction(), first, second);
+            return intern(merged, new Identity(node.getFunction()), new Identity(first), new Identity(second));
+        }
+    }
+
+    // Key component compared by reference
+    private static final class Identity {
+        private final Object target;
+
+        Identity(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Identity && ((Identity) other).target == target;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(target);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.mathplotter.expression;
+
+import java.util.Arrays;
+
+/**
+ * A numeric literal or a named constant such as pi or e.
+ */
+public final class Constant extends Expression {
+    private final double value;
+
+    public Constant(double value) {
+        this.value = value;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public double evaluate(double x) {
+        return value;
+    }
+
+    @Override
+    public void evaluate(double[] xs, double[] ys, int length) {
+        Arrays.fill(ys, 0, length, value);
+    }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visitConstant(this);
+    }
+
+    @Override
+    public String toString() {
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,124 @@
+package com.mathplotter.expression;
+
+/**
+ * Why an expression has no finite value at some x.
+ * Evaluation never throws for points outside the domain; it returns NaN or an infinity and
+ * the error code is worked out afterwards by {@link #diagnose}, only for points that need
+ * explaining, so the evaluation loops themselves stay free of checks.
+ */
+public enum DomainError {
+    NONE("defined"),
+    DIVISION_BY_ZERO("division by zero"),
+    LOG_OF_NON_POSITIVE("logarithm of a non-positive number"),
+    SQRT_OF_NEGATIVE("square root of a negative number"),
+    OUTSIDE_DOMAIN("argument outside the domain"),
+    OVERFLOW("value too large"),
+    UNDEFINED("undefined");
+
+    private final String description;
+
+    DomainError(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the reason the expression is not finite at x, or {@link #NONE} if it is.
+     * The innermost subexpression that turns finite operands into a non-finite value is blamed.
+     */
+    public static DomainError diagnose(Expression expression, double x) {
+        Diagnosis diagnosis = new Diagnosis(x);
+        double value = diagnosis.evaluate(expression);
+        if (Double.isFinite(value)) {
+            return NONE;
+        }
+        return diagnosis.error != NONE ? diagnosis.error : UNDEFINED;
+    }
+
+    // Scalar evaluation on primitives that records the first node whose finite operands give a
+    // non-finite value
+    private static final class Diagnosis {
+        private final double x;
+        private DomainError error = NONE;
+
+        Diagnosis(double x) {
+            this.x = x;
+        }
+
+        private double blame(double value, DomainError cause) {
+            if (!Double.isFinite(value) && error == NONE) {
+                error = cause;
+            }
+            return value;
+        }
+
+        double evaluate(Expression node) {
+            if (node instanceof BinaryOperation) {
+                return evaluateOperation((BinaryOperation) node);
+            }
+            if (node instanceof FunctionCall) {
+                return evaluateCall((FunctionCall) node);
+            }
+            if (node instanceof BinaryFunctionCall) {
+                return evaluateCall((BinaryFunctionCall) node);
+            }
+            if (node instanceof Negation) {
+                return -evaluate(((Negation) node).getOperand());
+            }
+            // Constants, parameters and x
+            return node.evaluate(x);
+        }
+
+        private double evaluateOperation(BinaryOperation node) {
+            double a = evaluate(node.getLeft());
+            double b = evaluate(node.getRight());
+            double value = node.apply(a, b);
+            if (!Double.isFinite(a) || !Double.isFinite(b)) {
+                return value;
+            }
+            switch (node.getOperator()) {
+                case DIVIDE:
+                    return blame(value, b == 0 ? DIVISION_BY_ZERO : OVERFLOW);
+                case POWER:
+                    if (a == 0 && b < 0) return blame(value, DIVISION_BY_ZERO);
+                    return blame(value, Double.isNaN(value) ? OUTSIDE_DOMAIN : OVERFLOW);
+                default:
+                    return blame(value, OVERFLOW);
+            }
+        }
+
+        private double evaluateCall(FunctionCall node) {
+            double a = evaluate(node.getArgument());
+            UnaryFunction function = node.getFunction();
+            double value = function.applyAsDouble(a);
+            if (!Double.isFinite(a)) {
+                return value;
+            }
+            if ((function == FunctionRegistry.LOG || function == FunctionRegistry.LOG10) && a <= 0) {
+                return blame(value, LOG_OF_NON_POSITIVE);
+            }
+            if (function == FunctionRegistry.SQRT && a < 0) {
+                return blame(value, SQRT_OF_NEGATIVE);
+            }
+            return blame(value, Double.isNaN(value) ? OUTSIDE_DOMAIN : OVERFLOW);
+        }
+
+        private double evaluateCall(BinaryFunctionCall node) {
+            double a = evaluate(node.getFirst());
+            double b = evaluate(node.getSecond());
+            BinaryFunction function = node.getFunction();
+            double value = function.applyAsDouble(a, b);
+            if (!Double.isFinite(a) || !Double.isFinite(b)) {
+                return value;
+            }
+            if (function == FunctionRegistry.LOG_BASE) {
+                if (a <= 0 || b <= 0) return blame(value, LOG_OF_NON_POSITIVE);
+                if (a == 1) return blame(value, DIVISION_BY_ZERO);
+            }
+            return blame(value, Double.isNaN(value) ? OUTSIDE_DOMAIN : OVERFLOW);
+        }
+    }
+}
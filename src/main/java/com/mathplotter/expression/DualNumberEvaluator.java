@@ -0,0 +1,291 @@
+package com.mathplotter.expression;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Forward-mode automatic differentiation on hyper-dual numbers.
+ * A single pass over the expression yields f(x), f'(x) and f''(x) together, exact up to
+ * rounding, for every x of a column. Built-in functions use their analytic derivatives;
+ * any other function is differentiated numerically at its argument, so every expression
+ * the parser accepts is supported.
+ */
+public final class DualNumberEvaluator implements ExpressionVisitor<DualNumberEvaluator.Jets> {
+
+    // Relative step for functions without an analytic derivative
+    private static final double NUMERIC_STEP = 1e-4;
+
+    // Functions with analytic derivatives, resolved once per node rather than per element
+    private enum Builtin { SIN, COS, TAN, SQRT, ABS, LOG, LOG10, EXP, ASIN, ACOS, ATAN, CEIL, FLOOR }
+
+    private static final Map<UnaryFunction, Builtin> BUILTINS = new IdentityHashMap<>();
+    static {
+        BUILTINS.put(FunctionRegistry.SIN, Builtin.SIN);
+        BUILTINS.put(FunctionRegistry.COS, Builtin.COS);
+        BUILTINS.put(FunctionRegistry.TAN, Builtin.TAN);
+        BUILTINS.put(FunctionRegistry.SQRT, Builtin.SQRT);
+        BUILTINS.put(FunctionRegistry.ABS, Builtin.ABS);
+        BUILTINS.put(FunctionRegistry.LOG, Builtin.LOG);
+        BUILTINS.put(FunctionRegistry.LOG10, Builtin.LOG10);
+        BUILTINS.put(FunctionRegistry.EXP, Builtin.EXP);
+        BUILTINS.put(FunctionRegistry.ASIN, Builtin.ASIN);
+        BUILTINS.put(FunctionRegistry.ACOS, Builtin.ACOS);
+        BUILTINS.put(FunctionRegistry.ATAN, Builtin.ATAN);
+        BUILTINS.put(FunctionRegistry.CEIL, Builtin.CEIL);
+        BUILTINS.put(FunctionRegistry.FLOOR, Builtin.FLOOR);
+    }
+
+    /**
+     * Columns of values and first and second derivatives of one node.
+     */
+    static final class Jets {
+        final double[] value;
+        final double[] first;
+        final double[] second;
+
+        Jets(int length) {
+            this(new double[length], new double[length], new double[length]);
+        }
+
+        Jets(double[] value, double[] first, double[] second) {
+            this.value = value;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private final double[] xs;
+    private final int length;
+
+    private DualNumberEvaluator(double[] xs, int length) {
+        this.xs = xs;
+        this.length = length;
+    }
+
+    /**
+     * Evaluates the expression and its first two derivatives at every value of xs.
+     * @param expression The expression to evaluate
+     * @param xs The x values
+     * @param values Receives f(x); must be at least as long as xs
+     * @param firstDerivatives Receives f'(x); must be at least as long as xs
+     * @param secondDerivatives Receives f''(x); must be at least as long as xs
+     */
+    public static void evaluate(Expression expression, double[] xs, double[] values,
+                                double[] firstDerivatives, double[] secondDerivatives) {
+        Jets result = expression.accept(new DualNumberEvaluator(xs, xs.length));
+        System.arraycopy(result.value, 0, values, 0, xs.length);
+        System.arraycopy(result.first, 0, firstDerivatives, 0, xs.length);
+        System.arraycopy(result.second, 0, secondDerivatives, 0, xs.length);
+    }
+
+    /**
+     * Evaluates the expression and its first two derivatives at x.
+     * @return The array {f(x), f'(x), f''(x)}
+     */
+    public static double[] evaluate(Expression expression, double x) {
+        Jets result = expression.accept(new DualNumberEvaluator(new double[] {x}, 1));
+        return new double[] {result.value[0], result.first[0], result.second[0]};
+    }
+
+    @Override
+    public Jets visitConstant(Constant node) {
+        Jets result = new Jets(length);
+        Arrays.fill(result.value, node.getValue());
+        return result;
+    }
+
+    @Override
+    public Jets visitVariable(Variable node) {
+        Jets result = new Jets(length);
+        System.arraycopy(xs, 0, result.value, 0, length);
+        Arrays.fill(result.first, 1.0);
+        return result;
+    }
+
+    @Override
+    public Jets visitParameter(Parameter node) {
+        Jets result = new Jets(length);
+        Arrays.fill(result.value, node.getValue());
+        return result;
+    }
+
+    @Override
+    public Jets visitNegation(Negation node) {
+        Jets u = node.getOperand().accept(this);
+        for (int i = 0; i < length; i++) {
+            u.value[i] = -u.value[i];
+            u.first[i] = -u.first[i];
+            u.second[i] = -u.second[i];
+        }
+        return u;
+    }
+
+    @Override
+    public Jets visitBinaryOperation(BinaryOperation node) {
+        Jets u = node.getLeft().accept(this);
+        Jets v = node.getRight().accept(this);
+        switch (node.getOperator()) {
+            case ADD:
+                for (int i = 0; i < length; i++) {
+                    u.value[i] += v.value[i];
+                    u.first[i] += v.first[i];
+                    u.second[i] += v.second[i];
+                }
+                return u;
+            case SUBTRACT:
+                for (int i = 0; i < length; i++) {
+                    u.value[i] -= v.value[i];
+                    u.first[i] -= v.first[i];
+                    u.second[i] -= v.second[i];
+                }
+                return u;
+            case MULTIPLY:
+                multiply(u, v);
+                return u;
+            case DIVIDE:
+                divide(u, v);
+                return u;
+            default:
+                return power(u, v, node.getRight() instanceof Constant);
+        }
+    }
+
+    // u *= v
+    private void multiply(Jets u, Jets v) {
+        for (int i = 0; i < length; i++) {
+            u.second[i] = u.second[i] * v.value[i] + 2 * u.first[i] * v.first[i] + u.value[i] * v.second[i];
+            u.first[i] = u.first[i] * v.value[i] + u.value[i] * v.first[i];
+            u.value[i] *= v.value[i];
+        }
+    }
+
+    // u /= v
+    private void divide(Jets u, Jets v) {
+        for (int i = 0; i < length; i++) {
+            double w0 = u.value[i] / v.value[i];
+            double w1 = (u.first[i] - w0 * v.first[i]) / v.value[i];
+            u.second[i] = (u.second[i] - 2 * w1 * v.first[i] - w0 * v.second[i]) / v.value[i];
+            u.first[i] = w1;
+            u.value[i] = w0;
+        }
+    }
+
+    // u = ln(u)
+    private void log(Jets u) {
+        for (int i = 0; i < length; i++) {
+            double g1 = 1 / u.value[i];
+            u.second[i] = -g1 * g1 * u.first[i] * u.first[i] + g1 * u.second[i];
+            u.first[i] = g1 * u.first[i];
+            u.value[i] = Math.log(u.value[i]);
+        }
+    }
+
+    private Jets power(Jets u, Jets v, boolean constantExponent) {
+        for (int i = 0; i < length; i++) {
+            double base = u.value[i];
+            double exponent = v.value[i];
+            double w0 = Math.pow(base, exponent);
+            if (constantExponent) {
+                // d/du u^c = c u^(c-1); well defined for negative bases and integer c
+                double g1 = exponent == 0 ? 0 : exponent * Math.pow(base, exponent - 1);
+                double g2 = exponent == 0 || exponent == 1 ? 0 : exponent * (exponent - 1) * Math.pow(base, exponent - 2);
+                u.second[i] = g2 * u.first[i] * u.first[i] + g1 * u.second[i];
+                u.first[i] = g1 * u.first[i];
+            } else {
+                // u^v = exp(L) with L = v ln u
+                double ln = Math.log(base);
+                double ln1 = u.first[i] / base;
+                double ln2 = (u.second[i] - ln1 * u.first[i]) / base;
+                double l1 = v.first[i] * ln + exponent * ln1;
+                double l2 = v.second[i] * ln + 2 * v.first[i] * ln1 + exponent * ln2;
+                u.second[i] = w0 * (l2 + l1 * l1);
+                u.first[i] = w0 * l1;
+            }
+            u.value[i] = w0;
+        }
+        return u;
+    }
+
+    @Override
+    public Jets visitFunctionCall(FunctionCall node) {
+        Jets u = node.getArgument().accept(this);
+        Builtin builtin = BUILTINS.get(node.getFunction());
+        DoubleUnaryOperator function = node.getFunction().getImplementation();
+        for (int i = 0; i < length; i++) {
+            double a = u.value[i];
+            double g0 = function.applyAsDouble(a);
+            double g1;
+            double g2;
+            if (builtin == null) {
+                double h = NUMERIC_STEP * Math.max(1, Math.abs(a));
+                double forward = function.applyAsDouble(a + h);
+                double backward = function.applyAsDouble(a - h);
+                g1 = (forward - backward) / (2 * h);
+                g2 = (forward - 2 * g0 + backward) / (h * h);
+            } else {
+                switch (builtin) {
+                    case SIN: g1 = Math.cos(a); g2 = -g0; break;
+                    case COS: g1 = -Math.sin(a); g2 = -g0; break;
+                    case TAN: g1 = 1 + g0 * g0; g2 = 2 * g0 * g1; break;
+                    case SQRT: g1 = 0.5 / g0; g2 = -g1 / (2 * a); break;
+                    case ABS: g1 = Math.signum(a); g2 = 0; break;
+                    case LOG: g1 = 1 / a; g2 = -g1 * g1; break;
+                    case LOG10: g1 = 1 / (a * Math.log(10)); g2 = -g1 / a; break;
+                    case EXP: g1 = g0; g2 = g0; break;
+                    case ASIN: g1 = 1 / Math.sqrt(1 - a * a); g2 = a * g1 * g1 * g1; break;
+                    case ACOS: g1 = -1 / Math.sqrt(1 - a * a); g2 = a * g1 * g1 * g1; break;
+                    case ATAN: g1 = 1 / (1 + a * a); g2 = -2 * a * g1 * g1; break;
+                    default:
+                        // ceil and floor are piecewise constant
+                        g1 = 0;
+                        g2 = 0;
+                        break;
+                }
+            }
+            u.second[i] = g2 * u.first[i] * u.first[i] + g1 * u.second[i];
+            u.first[i] = g1 * u.first[i];
+            u.value[i] = g0;
+        }
+        return u;
+    }
+
+    @Override
+    public Jets visitBinaryFunctionCall(BinaryFunctionCall node) {
+        Jets a = node.getFirst().accept(this);
+        Jets b = node.getSecond().accept(this);
+        if (node.getFunction() == FunctionRegistry.LOG_BASE) {
+            // log(base, u) = ln(u) / ln(base)
+            log(a);
+            log(b);
+            divide(b, a);
+            return b;
+        }
+        DoubleBinaryOperator function = node.getFunction().getImplementation();
+        for (int i = 0; i < length; i++) {
+            double a0 = a.value[i];
+            double b0 = b.value[i];
+            double g0 = function.applyAsDouble(a0, b0);
+            // Partial derivatives by central differences
+            double ha = NUMERIC_STEP * Math.max(1, Math.abs(a0));
+            double hb = NUMERIC_STEP * Math.max(1, Math.abs(b0));
+            double aPlus = function.applyAsDouble(a0 + ha, b0);
+            double aMinus = function.applyAsDouble(a0 - ha, b0);
+            double bPlus = function.applyAsDouble(a0, b0 + hb);
+            double bMinus = function.applyAsDouble(a0, b0 - hb);
+            double ga = (aPlus - aMinus) / (2 * ha);
+            double gb = (bPlus - bMinus) / (2 * hb);
+            double gaa = (aPlus - 2 * g0 + aMinus) / (ha * ha);
+            double gbb = (bPlus - 2 * g0 + bMinus) / (hb * hb);
+            double gab = (function.applyAsDouble(a0 + ha, b0 + hb) - aPlus - bPlus + g0) / (ha * hb);
+            double a1 = a.first[i];
+            double b1 = b.first[i];
+            a.second[i] = gaa * a1 * a1 + 2 * gab * a1 * b1 + gbb * b1 * b1 + ga * a.second[i] + gb * b.second[i];
+            a.first[i] = ga * a1 + gb * b1;
+            a.value[i] = g0;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,23 @@
+package com.mathplotter.expression;
+
+/**
+ * A node of a parsed expression tree.
+ * Trees are built once by {@link com.mathplotter.utils.MathParser} and are immutable,
+ * so evaluating them involves no string scanning, map lookups or allocation.
+ */
+public abstract class Expression {
+
+    /**
+     * Evaluates this expression for the given value of the variable x.
+     */
+    public abstract double evaluate(double x);
+
+    /**
+     * Evaluates this expression for the first {@code length} values of xs, writing the results to ys.
+     * Each node processes the whole column before its parent, so the per-node loops are simple
+     * array loops that the JIT can unroll and vectorise.
+     */
+    public abstract void evaluate(double[] xs, double[] ys, int length);
+
+    public abstract <R> R accept(ExpressionVisitor<R> visitor);
+}
@@ -0,0 +1,499 @@
+package com.mathplotter.expression;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Compiles an {@link Expression} tree into a JVM class implementing {@link DoubleUnaryOperator}.
+ * The generated {@code applyAsDouble} method is straight-line bytecode (loads, arithmetic and
+ * static calls into {@link Math}), so the JIT can inline and optimise it like hand-written code.
+ * Each class is defined in its own class loader and is unloaded once the operator is unreachable.
+ */
+public final class ExpressionCompiler {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String MATH = "java/lang/Math";
+    private static final String APPROXIMATE_MATH = "com/mathplotter/expression/ApproximateMath";
+    private static final String OPERATOR = "java/util/function/DoubleUnaryOperator";
+    private static final String BINARY_OPERATOR = "java/util/function/DoubleBinaryOperator";
+    private static final String SUPPLIER = "java/util/function/DoubleSupplier";
+    private static final String REFS_FIELD = "refs";
+    private static final String REFS_DESCRIPTOR = "[Ljava/lang/Object;";
+
+    // Built-in functions whose implementation is the java.lang.Math method of the same name
+    private static final Set<UnaryFunction> MATH_FUNCTIONS = Collections.newSetFromMap(new IdentityHashMap<>());
+    static {
+        MATH_FUNCTIONS.addAll(Arrays.asList(
+                FunctionRegistry.SIN, FunctionRegistry.COS, FunctionRegistry.TAN, FunctionRegistry.SQRT,
+                FunctionRegistry.ABS, FunctionRegistry.LOG, FunctionRegistry.LOG10, FunctionRegistry.EXP,
+                FunctionRegistry.ASIN, FunctionRegistry.ACOS, FunctionRegistry.ATAN,
+                FunctionRegistry.CEIL, FunctionRegistry.FLOOR));
+    }
+
+    // Approximations with a static method of the same name in ApproximateMath
+    private static final Set<UnaryFunction> APPROXIMATE_FUNCTIONS = Collections.newSetFromMap(new IdentityHashMap<>());
+    static {
+        APPROXIMATE_FUNCTIONS.addAll(Arrays.asList(
+                ApproximateMath.SIN, ApproximateMath.COS, ApproximateMath.EXP, ApproximateMath.LOG));
+    }
+
+    private static final int MAX_CODE_LENGTH = 65535;
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    // Statistics, exposed for diagnostics
+    private static final AtomicLong compiledCount = new AtomicLong();
+    private static final AtomicLong failedCount = new AtomicLong();
+    private static final AtomicLong pendingCount = new AtomicLong();
+    private static final AtomicLong compileNanos = new AtomicLong();
+
+    // Background compilations run on a single daemon thread, never on the EDT
+    private static final ExecutorService backgroundCompiler = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "expression-compiler");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compiles the given expression on the background compiler thread.
+     * @param expression The expression to compile
+     * @return A future completed with the compiled operator, or with null if compilation failed
+     */
+    public static CompletableFuture<DoubleUnaryOperator> compileInBackground(Expression expression) {
+        pendingCount.incrementAndGet();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return compile(expression);
+                } finally {
+                    pendingCount.decrementAndGet();
+                }
+            }, backgroundCompiler).exceptionally(failure -> {
+                // An error escaping the compiler counts as a failed compilation
+                failedCount.incrementAndGet();
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            pendingCount.decrementAndGet();
+            failedCount.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Returns the number of expressions compiled successfully so far.
+     */
+    public static long getCompiledCount() {
+        return compiledCount.get();
+    }
+
+    /**
+     * Returns the number of expressions that could not be compiled.
+     */
+    public static long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Returns the number of background compilations queued or in progress.
+     */
+    public static long getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Returns the total time spent compiling, in nanoseconds.
+     */
+    public static long getCompileTimeNanos() {
+        return compileNanos.get();
+    }
+
+    /**
+     * Compiles the given expression.
+     * @param expression The expression to compile
+     * @return The compiled operator, or null if the expression could not be compiled,
+     *         in which case callers should keep interpreting the tree
+     */
+    public static DoubleUnaryOperator compile(Expression expression) {
+        long start = System.nanoTime();
+        DoubleUnaryOperator result = generate(expression);
+        compileNanos.addAndGet(System.nanoTime() - start);
+        (result != null ? compiledCount : failedCount).incrementAndGet();
+        return result;
+    }
+
+    private static DoubleUnaryOperator generate(Expression expression) {
+        try {
+            String className = "com/mathplotter/expression/CompiledExpression$" + classCounter.incrementAndGet();
+            ConstantPool pool = new ConstantPool();
+            CodeEmitter emitter = new CodeEmitter(pool, className, CommonSubexpressions.sharedNodes(expression));
+            emitter.emit(expression);
+            if (emitter.code.length > MAX_CODE_LENGTH) {
+                return null;
+            }
+            byte[] bytes = writeClass(pool, className, emitter);
+            Class<?> compiledClass = new ExpressionClassLoader(ExpressionCompiler.class.getClassLoader())
+                    .define(className.replace('/', '.'), bytes);
+            return (DoubleUnaryOperator) compiledClass.getConstructor(Object[].class)
+                    .newInstance((Object) emitter.refs.toArray());
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static byte[] writeClass(ConstantPool pool, String className, CodeEmitter emitter) {
+        int thisClass = pool.classRef(className);
+        int superClass = pool.classRef(OBJECT);
+        int interfaceClass = pool.classRef(OPERATOR);
+        int refsName = pool.utf8(REFS_FIELD);
+        int refsDescriptor = pool.utf8(REFS_DESCRIPTOR);
+        int refsField = pool.fieldRef(className, REFS_FIELD, REFS_DESCRIPTOR);
+        int superInit = pool.methodRef(OBJECT, "<init>", "()V", false);
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("([Ljava/lang/Object;)V");
+        int applyName = pool.utf8("applyAsDouble");
+        int applyDescriptor = pool.utf8("(D)D");
+        int codeName = pool.utf8("Code");
+
+        // <init>(Object[] refs): super(); this.refs = refs;
+        ByteVector init = new ByteVector()
+                .putByte(0x2a).putByte(0xb7).putShort(superInit)
+                .putByte(0x2a).putByte(0x2b).putByte(0xb5).putShort(refsField)
+                .putByte(0xb1);
+
+        ByteVector out = new ByteVector();
+        out.putInt(0xCAFEBABE).putShort(0).putShort(55);
+        out.putShort(pool.count).putBytes(pool.bytes);
+        out.putShort(0x0031).putShort(thisClass).putShort(superClass);
+        out.putShort(1).putShort(interfaceClass);
+        out.putShort(1).putShort(0x0012).putShort(refsName).putShort(refsDescriptor).putShort(0);
+        out.putShort(2);
+        writeMethod(out, initName, initDescriptor, codeName, 2, 2, init);
+        writeMethod(out, applyName, applyDescriptor, codeName, emitter.maxStack, emitter.maxLocals, emitter.code.putByte(0xaf));
+        out.putShort(0);
+        return out.toByteArray();
+    }
+
+    private static void writeMethod(ByteVector out, int name, int descriptor, int codeName,
+                                    int maxStack, int maxLocals, ByteVector code) {
+        out.putShort(0x0001).putShort(name).putShort(descriptor).putShort(1);
+        out.putShort(codeName).putInt(12 + code.length);
+        out.putShort(maxStack).putShort(maxLocals).putInt(code.length).putBytes(code);
+        out.putShort(0).putShort(0);
+    }
+
+    /**
+     * Emits the body of {@code applyAsDouble(double x)}, keeping track of the operand stack depth.
+     * Functions that are not {@link Math} methods are called through the {@code refs} field.
+     */
+    private static final class CodeEmitter implements ExpressionVisitor<Void> {
+        private final ConstantPool pool;
+        private final String className;
+        private final ByteVector code = new ByteVector();
+        private final List<Object> refs = new ArrayList<>();
+        private int stack;
+        private int maxStack;
+        // Shared nodes of a DAG are computed once and kept in local variables after this, x
+        private final Set<Expression> shared;
+        private final Map<Expression, Integer> locals = new IdentityHashMap<>();
+        private int maxLocals = 3;
+
+        CodeEmitter(ConstantPool pool, String className, Set<Expression> shared) {
+            this.pool = pool;
+            this.className = className;
+            this.shared = shared;
+        }
+
+        void emit(Expression node) {
+            Integer local = locals.get(node);
+            if (local != null) {
+                code.putByte(0x18).putByte(local); // dload
+                adjustStack(2);
+                return;
+            }
+            node.accept(this);
+            // dload and dstore take a one-byte index; further shared nodes are recomputed
+            if (shared.contains(node) && maxLocals + 2 <= 256) {
+                code.putByte(0x5c); // dup2
+                adjustStack(2);
+                code.putByte(0x39).putByte(maxLocals); // dstore
+                adjustStack(-2);
+                locals.put(node, maxLocals);
+                maxLocals += 2;
+            }
+        }
+
+        private void adjustStack(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void loadRef(Object ref, String type) {
+            int index = refs.size();
+            refs.add(ref);
+            code.putByte(0x2a).putByte(0xb4).putShort(pool.fieldRef(className, REFS_FIELD, REFS_DESCRIPTOR));
+            adjustStack(1);
+            if (index <= 5) {
+                code.putByte(0x03 + index);
+            } else if (index < 128) {
+                code.putByte(0x10).putByte(index);
+            } else {
+                code.putByte(0x11).putShort(index);
+            }
+            adjustStack(1);
+            code.putByte(0x32).putByte(0xc0).putShort(pool.classRef(type));
+            adjustStack(-1);
+        }
+
+        private void invokeMath(String name, String descriptor, int argumentSlots) {
+            invokeStatic(MATH, name, descriptor, argumentSlots);
+        }
+
+        private void invokeStatic(String owner, String name, String descriptor, int argumentSlots) {
+            code.putByte(0xb8).putShort(pool.methodRef(owner, name, descriptor, false));
+            adjustStack(2 - argumentSlots);
+        }
+
+        @Override
+        public Void visitConstant(Constant node) {
+            double value = node.getValue();
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                code.putByte(0x0e); // dconst_0
+            } else if (value == 1.0) {
+                code.putByte(0x0f); // dconst_1
+            } else {
+                code.putByte(0x14).putShort(pool.doubleConstant(value)); // ldc2_w
+            }
+            adjustStack(2);
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(Variable node) {
+            code.putByte(0x27); // dload_1
+            adjustStack(2);
+            return null;
+        }
+
+        @Override
+        public Void visitParameter(Parameter node) {
+            // Read on every call, so changing the parameter needs no recompilation
+            loadRef(node, SUPPLIER);
+            code.putByte(0xb9).putShort(pool.methodRef(SUPPLIER, "getAsDouble", "()D", true))
+                    .putByte(1).putByte(0);
+            adjustStack(1);
+            return null;
+        }
+
+        @Override
+        public Void visitNegation(Negation node) {
+            emit(node.getOperand());
+            code.putByte(0x77); // dneg
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryOperation(BinaryOperation node) {
+            emit(node.getLeft());
+            if (node.getOperator() == BinaryOperation.Operator.POWER && Expressions.isConstant(node.getRight(), 2)) {
+                code.putByte(0x5c); // dup2
+                adjustStack(2);
+                code.putByte(0x6b); // dmul
+                adjustStack(-2);
+                return null;
+            }
+            emit(node.getRight());
+            switch (node.getOperator()) {
+                case ADD: code.putByte(0x63); adjustStack(-2); break;
+                case SUBTRACT: code.putByte(0x67); adjustStack(-2); break;
+                case MULTIPLY: code.putByte(0x6b); adjustStack(-2); break;
+                case DIVIDE: code.putByte(0x6f); adjustStack(-2); break;
+                default: invokeMath("pow", "(DD)D", 4); break;
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionCall(FunctionCall node) {
+            if (MATH_FUNCTIONS.contains(node.getFunction())) {
+                emit(node.getArgument());
+                invokeMath(node.getName(), "(D)D", 2);
+                return null;
+            }
+            if (APPROXIMATE_FUNCTIONS.contains(node.getFunction())) {
+                emit(node.getArgument());
+                invokeStatic(APPROXIMATE_MATH, node.getName(), "(D)D", 2);
+                return null;
+            }
+            loadRef(node.getFunction().getImplementation(), OPERATOR);
+            emit(node.getArgument());
+            code.putByte(0xb9).putShort(pool.methodRef(OPERATOR, "applyAsDouble", "(D)D", true))
+                    .putByte(3).putByte(0);
+            adjustStack(-1);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryFunctionCall(BinaryFunctionCall node) {
+            if (node.getFunction() == ApproximateMath.POW) {
+                emit(node.getFirst());
+                emit(node.getSecond());
+                invokeStatic(APPROXIMATE_MATH, "pow", "(DD)D", 4);
+                return null;
+            }
+            loadRef(node.getFunction().getImplementation(), BINARY_OPERATOR);
+            emit(node.getFirst());
+            emit(node.getSecond());
+            code.putByte(0xb9).putShort(pool.methodRef(BINARY_OPERATOR, "applyAsDouble", "(DD)D", true))
+                    .putByte(5).putByte(0);
+            adjustStack(-3);
+            return null;
+        }
+    }
+
+    /**
+     * Class file constant pool; identical entries are shared.
+     */
+    private static final class ConstantPool {
+        private final ByteVector bytes = new ByteVector();
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        private Integer lookup(String key) {
+            return entries.get(key);
+        }
+
+        private int register(String key, int slots) {
+            int index = count;
+            entries.put(key, index);
+            count += slots;
+            return index;
+        }
+
+        int utf8(String value) {
+            String key = "U" + value;
+            Integer index = lookup(key);
+            if (index != null) return index;
+            bytes.putByte(1).putUtf8(value);
+            return register(key, 1);
+        }
+
+        int classRef(String internalName) {
+            String key = "C" + internalName;
+            Integer index = lookup(key);
+            if (index != null) return index;
+            int name = utf8(internalName);
+            bytes.putByte(7).putShort(name);
+            return register(key, 1);
+        }
+
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            String key = "D" + bits;
+            Integer index = lookup(key);
+            if (index != null) return index;
+            bytes.putByte(6).putLong(bits);
+            return register(key, 2);
+        }
+
+        int nameAndType(String name, String descriptor) {
+            String key = "N" + name + ":" + descriptor;
+            Integer index = lookup(key);
+            if (index != null) return index;
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            bytes.putByte(12).putShort(nameIndex).putShort(descriptorIndex);
+            return register(key, 1);
+        }
+
+        int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(9, owner, name, descriptor);
+        }
+
+        int methodRef(String owner, String name, String descriptor, boolean isInterface) {
+            return memberRef(isInterface ? 11 : 10, owner, name, descriptor);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            String key = "M" + tag + owner + "." + name + ":" + descriptor;
+            Integer index = lookup(key);
+            if (index != null) return index;
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            bytes.putByte(tag).putShort(ownerIndex).putShort(nameAndType);
+            return register(key, 1);
+        }
+    }
+
+    /**
+     * Growable big-endian byte buffer.
+     */
+    private static final class ByteVector {
+        private byte[] data = new byte[64];
+        private int length;
+
+        ByteVector putByte(int value) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        ByteVector putShort(int value) {
+            return putByte(value >>> 8).putByte(value);
+        }
+
+        ByteVector putInt(int value) {
+            return putShort(value >>> 16).putShort(value);
+        }
+
+        ByteVector putLong(long value) {
+            return putInt((int) (value >>> 32)).putInt((int) value);
+        }
+
+        // Identifiers and descriptors used here are ASCII, where modified UTF-8 equals UTF-8
+        ByteVector putUtf8(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            putShort(encoded.length);
+            for (byte b : encoded) putByte(b);
+            return this;
+        }
+
+        ByteVector putBytes(ByteVector other) {
+            for (int i = 0; i < other.length; i++) putByte(other.data[i]);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+
+    private static final class ExpressionClassLoader extends ClassLoader {
+        ExpressionClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.mathplotter.expression;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A parsed expression together with its compiled form, which is produced at most once.
+ * Programs are immutable apart from that one-time compilation, so any number of functions
+ * with the same expression can share one program and its bytecode.
+ */
+public final class ExpressionProgram {
+    private final Expression tree;
+    // The tree as a ratio of polynomials, or null if it is not one
+    private final RationalFunction rationalForm;
+    // Evaluates the tree computing its shared nodes once, or null if it has none
+    private final SharedSubexpressionEvaluator sharedEvaluator;
+    // Guarded by this
+    private CompletableFuture<DoubleUnaryOperator> compilation;
+    // Guarded by this; built on first use
+    private Expression approximateTree;
+    private SharedSubexpressionEvaluator approximateSharedEvaluator;
+    // Guarded by this
+    private CompletableFuture<DoubleUnaryOperator> approximateCompilation;
+
+    public ExpressionProgram(Expression tree) {
+        this.tree = tree;
+        this.rationalForm = RationalFunction.recognize(tree);
+        this.sharedEvaluator = sharingEvaluator(tree);
+    }
+
+    private static SharedSubexpressionEvaluator sharingEvaluator(Expression tree) {
+        SharedSubexpressionEvaluator evaluator = new SharedSubexpressionEvaluator(tree);
+        return evaluator.isSharing() ? evaluator : null;
+    }
+
+    public Expression getTree() {
+        return tree;
+    }
+
+    /**
+     * Returns the tree as a ratio of polynomials in x, or null if it is not one.
+     */
+    public RationalFunction getRationalForm() {
+        return rationalForm;
+    }
+
+    /**
+     * Returns an evaluator of the tree that computes each of its shared subexpressions once,
+     * or null if the tree shares no nodes and is best evaluated directly.
+     */
+    public SharedSubexpressionEvaluator getSharedEvaluator() {
+        return sharedEvaluator;
+    }
+
+    /**
+     * Returns the tree with its elementary functions replaced by {@link ApproximateMath},
+     * or the tree itself if it calls none of them.
+     */
+    public synchronized Expression getApproximateTree() {
+        if (approximateTree == null) {
+            approximateTree = ApproximateMath.approximate(tree);
+            approximateSharedEvaluator = approximateTree == tree ? sharedEvaluator : sharingEvaluator(approximateTree);
+        }
+        return approximateTree;
+    }
+
+    /**
+     * Like {@link #getSharedEvaluator}, for the {@linkplain #getApproximateTree approximate tree}.
+     */
+    public synchronized SharedSubexpressionEvaluator getApproximateSharedEvaluator() {
+        getApproximateTree();
+        return approximateSharedEvaluator;
+    }
+
+    /**
+     * Starts compiling the tree in the background, unless that has already been done.
+     * @return A future completed with the compiled operator, or with null if compilation failed
+     */
+    public synchronized CompletableFuture<DoubleUnaryOperator> compile() {
+        if (compilation == null) {
+            compilation = ExpressionCompiler.compileInBackground(tree);
+        }
+        return compilation;
+    }
+
+    /**
+     * Starts compiling the {@linkplain #getApproximateTree approximate tree} in the background,
+     * unless that has already been done.
+     * @return A future completed with the compiled operator, or with null if compilation failed
+     */
+    public synchronized CompletableFuture<DoubleUnaryOperator> compileApproximate() {
+        if (approximateCompilation == null) {
+            approximateCompilation = ExpressionCompiler.compileInBackground(getApproximateTree());
+        }
+        return approximateCompilation;
+    }
+
+    /**
+     * Returns the compiled operator if compilation has already finished successfully, otherwise null.
+     */
+    public synchronized DoubleUnaryOperator getCompiled() {
+        return compilation != null ? compilation.getNow(null) : null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mathplotter.expression;
+
+/**
+ * Visitor over the node types of an {@link Expression} tree.
+ * Passes such as compilation are written as visitors so that the nodes stay small.
+ */
+public interface ExpressionVisitor<R> {
+    R visitConstant(Constant node);
+
+    R visitVariable(Variable node);
+
+    R visitParameter(Parameter node);
+
+    R visitNegation(Negation node);
+
+    R visitBinaryOperation(BinaryOperation node);
+
+    R visitFunctionCall(FunctionCall node);
+
+    R visitBinaryFunctionCall(BinaryFunctionCall node);
+}
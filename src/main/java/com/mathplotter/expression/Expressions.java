@@ -0,0 +1,102 @@
+package com.mathplotter.expression;
+
+import com.mathplotter.expression.BinaryOperation.Operator;
+
+/**
+ * Factory methods for building expression nodes with local simplification:
+ * constant operands are folded and identities such as u+0, u*1 and u^1 are removed.
+ * Passes that generate expressions, such as differentiation, build through these
+ * methods so their output does not fill up with trivial nodes.
+ */
+public final class Expressions {
+
+    public static final Constant ZERO = new Constant(0);
+    public static final Constant ONE = new Constant(1);
+
+    private Expressions() {
+    }
+
+    public static boolean isConstant(Expression e, double value) {
+        return e instanceof Constant && ((Constant) e).getValue() == value;
+    }
+
+    public static Expression constant(double value) {
+        return value == 0 ? ZERO : value == 1 ? ONE : new Constant(value);
+    }
+
+    public static Expression sum(Expression a, Expression b) {
+        if (a instanceof Constant && b instanceof Constant) {
+            return constant(((Constant) a).getValue() + ((Constant) b).getValue());
+        }
+        if (isConstant(a, 0)) return b;
+        if (isConstant(b, 0)) return a;
+        if (b instanceof Negation) return difference(a, ((Negation) b).getOperand());
+        return new BinaryOperation(Operator.ADD, a, b);
+    }
+
+    public static Expression difference(Expression a, Expression b) {
+        if (a instanceof Constant && b instanceof Constant) {
+            return constant(((Constant) a).getValue() - ((Constant) b).getValue());
+        }
+        if (isConstant(b, 0)) return a;
+        if (isConstant(a, 0)) return negate(b);
+        if (b instanceof Negation) return sum(a, ((Negation) b).getOperand());
+        return new BinaryOperation(Operator.SUBTRACT, a, b);
+    }
+
+    public static Expression product(Expression a, Expression b) {
+        if (a instanceof Constant && b instanceof Constant) {
+            return constant(((Constant) a).getValue() * ((Constant) b).getValue());
+        }
+        if (isConstant(a, 0) || isConstant(b, 0)) return ZERO;
+        if (isConstant(a, 1)) return b;
+        if (isConstant(b, 1)) return a;
+        if (isConstant(a, -1)) return negate(b);
+        if (isConstant(b, -1)) return negate(a);
+        if (a instanceof Negation) return negate(product(((Negation) a).getOperand(), b));
+        if (b instanceof Negation) return negate(product(a, ((Negation) b).getOperand()));
+        // Keep constant factors on the left
+        if (b instanceof Constant) return new BinaryOperation(Operator.MULTIPLY, b, a);
+        return new BinaryOperation(Operator.MULTIPLY, a, b);
+    }
+
+    public static Expression quotient(Expression a, Expression b) {
+        if (a instanceof Constant && b instanceof Constant) {
+            return constant(((Constant) a).getValue() / ((Constant) b).getValue());
+        }
+        if (isConstant(a, 0)) return ZERO;
+        if (isConstant(b, 1)) return a;
+        if (isConstant(b, -1)) return negate(a);
+        if (a instanceof Negation) return negate(quotient(((Negation) a).getOperand(), b));
+        return new BinaryOperation(Operator.DIVIDE, a, b);
+    }
+
+    public static Expression negate(Expression a) {
+        if (a instanceof Constant) return constant(-((Constant) a).getValue());
+        if (a instanceof Negation) return ((Negation) a).getOperand();
+        return new Negation(a);
+    }
+
+    public static Expression power(Expression base, Expression exponent) {
+        if (base instanceof Constant && exponent instanceof Constant) {
+            return constant(Math.pow(((Constant) base).getValue(), ((Constant) exponent).getValue()));
+        }
+        if (isConstant(exponent, 0)) return ONE;
+        if (isConstant(exponent, 1)) return base;
+        return new BinaryOperation(Operator.POWER, base, exponent);
+    }
+
+    public static Expression call(UnaryFunction function, Expression argument) {
+        if (argument instanceof Constant) {
+            return constant(function.applyAsDouble(((Constant) argument).getValue()));
+        }
+        return new FunctionCall(function, argument);
+    }
+
+    public static Expression call(BinaryFunction function, Expression first, Expression second) {
+        if (first instanceof Constant && second instanceof Constant) {
+            return constant(function.applyAsDouble(((Constant) first).getValue(), ((Constant) second).getValue()));
+        }
+        return new BinaryFunctionCall(function, first, second);
+    }
+}
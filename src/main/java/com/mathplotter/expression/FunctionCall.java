@@ -0,0 +1,55 @@
+package com.mathplotter.expression;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A call to a single-argument function such as sin or sqrt.
+ * The function is resolved once at parse time from the {@link FunctionRegistry}.
+ */
+public final class FunctionCall extends Expression {
+    private final UnaryFunction function;
+    // Called directly, without going through the registry entry
+    private final DoubleUnaryOperator implementation;
+    private final Expression argument;
+
+    public FunctionCall(UnaryFunction function, Expression argument) {
+        this.function = function;
+        this.implementation = function.getImplementation();
+        this.argument = argument;
+    }
+
+    public String getName() {
+        return function.getName();
+    }
+
+    public UnaryFunction getFunction() {
+        return function;
+    }
+
+    public Expression getArgument() {
+        return argument;
+    }
+
+    @Override
+    public double evaluate(double x) {
+        return implementation.applyAsDouble(argument.evaluate(x));
+    }
+
+    @Override
+    public void evaluate(double[] xs, double[] ys, int length) {
+        argument.evaluate(xs, ys, length);
+        for (int i = 0; i < length; i++) {
+            ys[i] = implementation.applyAsDouble(ys[i]);
+        }
+    }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visitFunctionCall(this);
+    }
+
+    @Override
+    public String toString() {
+        return function.getName() + "(" + argument + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package com.mathplotter.expression;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Service provider interface for adding functions to the {@link FunctionRegistry}.
+ * Implementations are discovered with {@link java.util.ServiceLoader}: list the class name in
+ * {@code META-INF/services/com.mathplotter.expression.FunctionProvider} on the classpath.
+ * Functions whose name is already taken, for example by a built-in, are ignored.
+ */
+public interface FunctionProvider {
+
+    default List<UnaryFunction> getUnaryFunctions() {
+        return Collections.emptyList();
+    }
+
+    default List<BinaryFunction> getBinaryFunctions() {
+        return Collections.emptyList();
+    }
+}
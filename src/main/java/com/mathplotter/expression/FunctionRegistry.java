@@ -0,0 +1,101 @@
+package com.mathplotter.expression;
+
+import static com.mathplotter.expression.Expressions.ONE;
+import static com.mathplotter.expression.Expressions.ZERO;
+import static com.mathplotter.expression.Expressions.call;
+import static com.mathplotter.expression.Expressions.constant;
+import static com.mathplotter.expression.Expressions.difference;
+import static com.mathplotter.expression.Expressions.negate;
+import static com.mathplotter.expression.Expressions.product;
+import static com.mathplotter.expression.Expressions.quotient;
+import static com.mathplotter.expression.Expressions.sum;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The functions expressions may call, shared by the whole application.
+ * The registry is built once, from the built-ins below and every {@link FunctionProvider}
+ * found on the classpath, and never changes afterwards. The parser binds each call to its
+ * {@link UnaryFunction} or {@link BinaryFunction} instance, so evaluation involves no lookup.
+ */
+public final class FunctionRegistry {
+
+    public static final UnaryFunction SIN = new UnaryFunction("sin", Math::sin, u -> call(FunctionRegistry.COS, u));
+    public static final UnaryFunction COS = new UnaryFunction("cos", Math::cos, u -> negate(call(SIN, u)));
+    public static final UnaryFunction TAN = new UnaryFunction("tan", Math::tan, u -> {
+        Expression cos = call(COS, u);
+        return quotient(ONE, product(cos, cos));
+    });
+    public static final UnaryFunction SQRT = new UnaryFunction("sqrt", Math::sqrt,
+            u -> quotient(ONE, product(constant(2), call(FunctionRegistry.SQRT, u))));
+    public static final UnaryFunction ABS = new UnaryFunction("abs", Math::abs,
+            u -> quotient(u, call(FunctionRegistry.ABS, u)));
+    public static final UnaryFunction LOG = new UnaryFunction("log", Math::log, u -> quotient(ONE, u));
+    public static final UnaryFunction LOG10 = new UnaryFunction("log10", Math::log10,
+            u -> quotient(ONE, product(constant(Math.log(10)), u)));
+    public static final UnaryFunction EXP = new UnaryFunction("exp", Math::exp, u -> call(FunctionRegistry.EXP, u));
+    public static final UnaryFunction ASIN = new UnaryFunction("asin", Math::asin,
+            u -> quotient(ONE, call(SQRT, difference(ONE, product(u, u)))));
+    public static final UnaryFunction ACOS = new UnaryFunction("acos", Math::acos,
+            u -> negate(quotient(ONE, call(SQRT, difference(ONE, product(u, u))))));
+    public static final UnaryFunction ATAN = new UnaryFunction("atan", Math::atan,
+            u -> quotient(ONE, sum(ONE, product(u, u))));
+    // Piecewise constant; the derivative is zero wherever it exists
+    public static final UnaryFunction CEIL = new UnaryFunction("ceil", Math::ceil, u -> ZERO);
+    public static final UnaryFunction FLOOR = new UnaryFunction("floor", Math::floor, u -> ZERO);
+
+    // log(base, x)
+    public static final BinaryFunction LOG_BASE = new BinaryFunction("log", (base, value) -> Math.log(value) / Math.log(base));
+
+    private static final Map<String, UnaryFunction> unaryFunctions;
+    private static final Map<String, BinaryFunction> binaryFunctions;
+
+    static {
+        Map<String, UnaryFunction> unary = new LinkedHashMap<>();
+        for (UnaryFunction function : new UnaryFunction[] {
+                SIN, COS, TAN, SQRT, ABS, LOG, LOG10, EXP, ASIN, ACOS, ATAN, CEIL, FLOOR}) {
+            unary.put(function.getName(), function);
+        }
+        Map<String, BinaryFunction> binary = new LinkedHashMap<>();
+        binary.put(LOG_BASE.getName(), LOG_BASE);
+        for (FunctionProvider provider : ServiceLoader.load(FunctionProvider.class, FunctionRegistry.class.getClassLoader())) {
+            for (UnaryFunction function : provider.getUnaryFunctions()) {
+                unary.putIfAbsent(function.getName(), function);
+            }
+            for (BinaryFunction function : provider.getBinaryFunctions()) {
+                binary.putIfAbsent(function.getName(), function);
+            }
+        }
+        unaryFunctions = Collections.unmodifiableMap(unary);
+        binaryFunctions = Collections.unmodifiableMap(binary);
+    }
+
+    private FunctionRegistry() {
+    }
+
+    /**
+     * Returns the single-argument function with the given name, or null if there is none.
+     */
+    public static UnaryFunction unary(String name) {
+        return unaryFunctions.get(name);
+    }
+
+    /**
+     * Returns the two-argument function with the given name, or null if there is none.
+     */
+    public static BinaryFunction binary(String name) {
+        return binaryFunctions.get(name);
+    }
+
+    public static Collection<UnaryFunction> getUnaryFunctions() {
+        return unaryFunctions.values();
+    }
+
+    public static Collection<BinaryFunction> getBinaryFunctions() {
+        return binaryFunctions.values();
+    }
+}
@@ -0,0 +1,115 @@
+package com.mathplotter.expression;
+
+/**
+ * A closed interval of reals, used to enclose every value an expression takes over a range of x.
+ * Bounds may be infinite. The empty interval stands for "defined nowhere", for example
+ * sqrt over [-2, -1]. Arithmetic rounds outwards, so results are guaranteed to contain the
+ * exact result of the operation on any members of the operands.
+ */
+public final class Interval {
+
+    public static final Interval ENTIRE = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    public static final Interval EMPTY = new Interval(Double.NaN, Double.NaN);
+
+    private final double lower;
+    private final double upper;
+
+    private Interval(double lower, double upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * Returns [lower, upper], or the empty interval if lower is greater than upper.
+     */
+    public static Interval of(double lower, double upper) {
+        if (!(lower <= upper)) {
+            return EMPTY;
+        }
+        return new Interval(lower, upper);
+    }
+
+    public static Interval point(double value) {
+        return of(value, value);
+    }
+
+    // [lower, upper] widened by one ulp on each side to absorb rounding
+    static Interval rounded(double lower, double upper) {
+        return of(Math.nextDown(lower), Math.nextUp(upper));
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    public boolean isEmpty() {
+        return Double.isNaN(lower);
+    }
+
+    /**
+     * Returns true if both bounds are finite. The empty interval counts as bounded.
+     */
+    public boolean isBounded() {
+        return isEmpty() || (lower > Double.NEGATIVE_INFINITY && upper < Double.POSITIVE_INFINITY);
+    }
+
+    public boolean contains(double value) {
+        return lower <= value && value <= upper;
+    }
+
+    public double width() {
+        return upper - lower;
+    }
+
+    public Interval negate() {
+        return isEmpty() ? EMPTY : new Interval(-upper, -lower);
+    }
+
+    public Interval plus(Interval other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        return rounded(lower + other.lower, upper + other.upper);
+    }
+
+    public Interval minus(Interval other) {
+        return plus(other.negate());
+    }
+
+    public Interval times(Interval other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        double a = product(lower, other.lower);
+        double b = product(lower, other.upper);
+        double c = product(upper, other.lower);
+        double d = product(upper, other.upper);
+        return rounded(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+    }
+
+    // An infinite bound is never attained, so it times zero contributes zero
+    private static double product(double a, double b) {
+        double p = a * b;
+        return Double.isNaN(p) ? 0 : p;
+    }
+
+    public Interval dividedBy(Interval other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        if (other.lower == 0 && other.upper == 0) return EMPTY;
+        if (other.contains(0)) return ENTIRE;
+        return times(rounded(1 / other.upper, 1 / other.lower));
+    }
+
+    /**
+     * Returns the part of this interval that also lies in the other one.
+     */
+    public Interval intersect(Interval other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        return of(Math.max(lower, other.lower), Math.min(upper, other.upper));
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "[empty]" : "[" + lower + ", " + upper + "]";
+    }
+}
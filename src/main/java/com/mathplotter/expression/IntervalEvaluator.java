@@ -0,0 +1,188 @@
+package com.mathplotter.expression;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Interval evaluation: encloses every value an expression takes while x ranges over an interval.
+ * The enclosure is guaranteed but not tight; like all interval arithmetic it overestimates when a
+ * subexpression appears more than once, less so the narrower x is. An enclosure that excludes
+ * zero proves the expression has no root there, and a bounded one proves it has no pole.
+ * Points where the expression is undefined, such as log of a negative number, are left out.
+ * Functions without interval rules here, such as those from a {@link FunctionProvider},
+ * are only known to lie in {@link Interval#ENTIRE}.
+ */
+public final class IntervalEvaluator implements ExpressionVisitor<Interval> {
+
+    private static final double TWO_PI = 2 * Math.PI;
+
+    private final Interval x;
+    // Results for shared nodes of a DAG
+    private final Map<Expression, Interval> results = new IdentityHashMap<>();
+
+    private IntervalEvaluator(Interval x) {
+        this.x = x;
+    }
+
+    /**
+     * Returns an interval containing the value of the expression at every x in [lower, upper]
+     * where it is defined.
+     */
+    public static Interval evaluate(Expression expression, double lower, double upper) {
+        return new IntervalEvaluator(Interval.of(lower, upper)).enclose(expression);
+    }
+
+    private Interval enclose(Expression node) {
+        Interval result = results.get(node);
+        if (result == null) {
+            result = node.accept(this);
+            results.put(node, result);
+        }
+        return result;
+    }
+
+    @Override
+    public Interval visitConstant(Constant node) {
+        return Interval.point(node.getValue());
+    }
+
+    @Override
+    public Interval visitVariable(Variable node) {
+        return x;
+    }
+
+    @Override
+    public Interval visitParameter(Parameter node) {
+        return Interval.point(node.getValue());
+    }
+
+    @Override
+    public Interval visitNegation(Negation node) {
+        return enclose(node.getOperand()).negate();
+    }
+
+    @Override
+    public Interval visitBinaryOperation(BinaryOperation node) {
+        Interval a = enclose(node.getLeft());
+        if (node.getOperator() == BinaryOperation.Operator.POWER && node.getRight() instanceof Constant) {
+            return power(a, ((Constant) node.getRight()).getValue());
+        }
+        Interval b = enclose(node.getRight());
+        switch (node.getOperator()) {
+            case ADD: return a.plus(b);
+            case SUBTRACT: return a.minus(b);
+            case MULTIPLY: return a.times(b);
+            case DIVIDE: return a.dividedBy(b);
+            default:
+                // a^b = exp(b ln a) for positive a; the general case is not worth the trouble
+                if (a.isEmpty() || b.isEmpty()) return Interval.EMPTY;
+                if (a.getLower() > 0) return exp(log(a).times(b));
+                return Interval.ENTIRE;
+        }
+    }
+
+    private static Interval power(Interval a, double n) {
+        if (a.isEmpty()) return Interval.EMPTY;
+        if (n == 0) return Interval.point(1);
+        if (n == Math.rint(n) && Math.abs(n) <= Integer.MAX_VALUE) {
+            if (n < 0) return Interval.point(1).dividedBy(power(a, -n));
+            double lo = Math.pow(a.getLower(), n);
+            double hi = Math.pow(a.getUpper(), n);
+            if (n % 2 != 0) return Interval.rounded(lo, hi);
+            // Even powers fall to zero in between when a contains zero
+            if (a.contains(0)) return Interval.rounded(0, Math.max(lo, hi)).intersect(Interval.of(0, Double.POSITIVE_INFINITY));
+            return Interval.rounded(Math.min(lo, hi), Math.max(lo, hi)).intersect(Interval.of(0, Double.POSITIVE_INFINITY));
+        }
+        // Fractional powers are defined for non-negative bases only
+        Interval base = a.intersect(Interval.of(0, Double.POSITIVE_INFINITY));
+        if (base.isEmpty()) return Interval.EMPTY;
+        if (n < 0 && base.getLower() == 0) {
+            return Interval.of(Math.nextDown(Math.pow(base.getUpper(), n)), Double.POSITIVE_INFINITY);
+        }
+        double lo = Math.pow(base.getLower(), n);
+        double hi = Math.pow(base.getUpper(), n);
+        return Interval.rounded(Math.min(lo, hi), Math.max(lo, hi)).intersect(Interval.of(0, Double.POSITIVE_INFINITY));
+    }
+
+    @Override
+    public Interval visitFunctionCall(FunctionCall node) {
+        Interval a = enclose(node.getArgument());
+        if (a.isEmpty()) return Interval.EMPTY;
+        UnaryFunction f = node.getFunction();
+        if (f == FunctionRegistry.SIN) return sin(a);
+        if (f == FunctionRegistry.COS) return sin(a.plus(Interval.point(Math.PI / 2)));
+        if (f == FunctionRegistry.TAN) return tan(a);
+        if (f == FunctionRegistry.SQRT) return increasing(f, a.intersect(Interval.of(0, Double.POSITIVE_INFINITY)));
+        if (f == FunctionRegistry.ABS) return abs(a);
+        if (f == FunctionRegistry.LOG) return log(a);
+        if (f == FunctionRegistry.LOG10) return log(a).times(Interval.point(1 / Math.log(10)));
+        if (f == FunctionRegistry.EXP) return exp(a);
+        if (f == FunctionRegistry.ASIN) return increasing(f, a.intersect(Interval.of(-1, 1)));
+        if (f == FunctionRegistry.ACOS) {
+            Interval domain = a.intersect(Interval.of(-1, 1));
+            if (domain.isEmpty()) return Interval.EMPTY;
+            return Interval.rounded(Math.acos(domain.getUpper()), Math.acos(domain.getLower()));
+        }
+        if (f == FunctionRegistry.ATAN || f == FunctionRegistry.CEIL || f == FunctionRegistry.FLOOR) {
+            return increasing(f, a);
+        }
+        return Interval.ENTIRE;
+    }
+
+    @Override
+    public Interval visitBinaryFunctionCall(BinaryFunctionCall node) {
+        Interval a = enclose(node.getFirst());
+        Interval b = enclose(node.getSecond());
+        if (node.getFunction() == FunctionRegistry.LOG_BASE) {
+            return log(b).dividedBy(log(a));
+        }
+        return a.isEmpty() || b.isEmpty() ? Interval.EMPTY : Interval.ENTIRE;
+    }
+
+    private static Interval increasing(UnaryFunction f, Interval a) {
+        if (a.isEmpty()) return Interval.EMPTY;
+        return Interval.rounded(f.applyAsDouble(a.getLower()), f.applyAsDouble(a.getUpper()));
+    }
+
+    private static Interval abs(Interval a) {
+        if (a.contains(0)) return Interval.of(0, Math.max(-a.getLower(), a.getUpper()));
+        return a.getLower() > 0 ? a : a.negate();
+    }
+
+    private static Interval exp(Interval a) {
+        if (a.isEmpty()) return Interval.EMPTY;
+        return Interval.rounded(Math.exp(a.getLower()), Math.exp(a.getUpper()))
+                .intersect(Interval.of(0, Double.POSITIVE_INFINITY));
+    }
+
+    private static Interval log(Interval a) {
+        Interval domain = a.intersect(Interval.of(0, Double.POSITIVE_INFINITY));
+        if (domain.isEmpty() || domain.getUpper() == 0) return Interval.EMPTY;
+        return Interval.rounded(Math.log(domain.getLower()), Math.log(domain.getUpper()));
+    }
+
+    private static Interval sin(Interval a) {
+        if (!(a.width() < TWO_PI)) return Interval.of(-1, 1);
+        double lo = Math.sin(a.getLower());
+        double hi = Math.sin(a.getUpper());
+        Interval result = Interval.rounded(Math.min(lo, hi), Math.max(lo, hi));
+        double upper = containsPeriodicPoint(a, Math.PI / 2) ? 1 : Math.min(result.getUpper(), 1);
+        double lower = containsPeriodicPoint(a, -Math.PI / 2) ? -1 : Math.max(result.getLower(), -1);
+        return Interval.of(lower, upper);
+    }
+
+    private static Interval tan(Interval a) {
+        // Poles at pi/2 + k pi
+        if (!(a.width() < Math.PI) || containsPeriodicPoint(a, Math.PI / 2) || containsPeriodicPoint(a, -Math.PI / 2)) {
+            return Interval.ENTIRE;
+        }
+        return Interval.rounded(Math.tan(a.getLower()), Math.tan(a.getUpper()));
+    }
+
+    // Whether a contains offset + 2k pi for some integer k; errs towards true near the ends
+    private static boolean containsPeriodicPoint(Interval a, double offset) {
+        double slack = 1e-12 * Math.max(1, Math.max(Math.abs(a.getLower()), Math.abs(a.getUpper())));
+        double k = Math.ceil((a.getLower() - slack - offset) / TWO_PI);
+        return offset + k * TWO_PI <= a.getUpper() + slack;
+    }
+}
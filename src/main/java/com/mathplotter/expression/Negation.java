@@ -0,0 +1,39 @@
+package com.mathplotter.expression;
+
+/**
+ * Unary minus.
+ */
+public final class Negation extends Expression {
+    private final Expression operand;
+
+    public Negation(Expression operand) {
+        this.operand = operand;
+    }
+
+    public Expression getOperand() {
+        return operand;
+    }
+
+    @Override
+    public double evaluate(double x) {
+        return -operand.evaluate(x);
+    }
+
+    @Override
+    public void evaluate(double[] xs, double[] ys, int length) {
+        operand.evaluate(xs, ys, length);
+        for (int i = 0; i < length; i++) {
+            ys[i] = -ys[i];
+        }
+    }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visitNegation(this);
+    }
+
+    @Override
+    public String toString() {
+        return "(-" + operand + ")";
+    }
+}
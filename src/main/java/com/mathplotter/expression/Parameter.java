@@ -0,0 +1,58 @@
+package com.mathplotter.expression;
+
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A named free parameter such as a, b or c in a*sin(b*x+c).
+ * Each name has a single instance, obtained from {@link Parameters}, whose value is read on
+ * every evaluation. Changing the value therefore re-binds every expression that uses the
+ * parameter, interpreted or compiled, without parsing anything again.
+ */
+public final class Parameter extends Expression implements DoubleSupplier {
+    private final String name;
+    private volatile double value;
+
+    Parameter(String name, double value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+        Parameters.modified();
+    }
+
+    @Override
+    public double getAsDouble() {
+        return value;
+    }
+
+    @Override
+    public double evaluate(double x) {
+        return value;
+    }
+
+    @Override
+    public void evaluate(double[] xs, double[] ys, int length) {
+        Arrays.fill(ys, 0, length, value);
+    }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visitParameter(this);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,127 @@
+package com.mathplotter.expression;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The parameters expressions may refer to: every single lowercase letter other than x,
+ * and other than names already taken by a constant such as e.
+ * Parameters are global, so a parameter a used by several functions is one slider.
+ */
+public final class Parameters {
+
+    public static final double DEFAULT_VALUE = 1.0;
+
+    private static final ConcurrentMap<String, Parameter> parameters = new ConcurrentHashMap<>();
+    private static final AtomicLong modificationCount = new AtomicLong();
+
+    private Parameters() {
+    }
+
+    /**
+     * Returns true if the name can be used for a parameter.
+     */
+    public static boolean isValidName(String name) {
+        return name.length() == 1 && name.charAt(0) >= 'a' && name.charAt(0) <= 'z' && !name.equals("x");
+    }
+
+    /**
+     * Returns the parameter with the given name, creating it with {@link #DEFAULT_VALUE} on first use.
+     */
+    public static Parameter get(String name) {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Not a parameter name: " + name);
+        }
+        return parameters.computeIfAbsent(name, n -> new Parameter(n, DEFAULT_VALUE));
+    }
+
+    /**
+     * Returns the parameter with the given name if it is registered, or else a new one with
+     * {@link #DEFAULT_VALUE} that is not, for a parser to {@link #register} once the expression
+     * using it has turned out valid.
+     */
+    public static Parameter lookup(String name) {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Not a parameter name: " + name);
+        }
+        Parameter parameter = parameters.get(name);
+        return parameter != null ? parameter : new Parameter(name, DEFAULT_VALUE);
+    }
+
+    /**
+     * Registers the parameters an expression uses, returning false if another parameter of
+     * the same name was registered since one of them was looked up.
+     */
+    public static boolean register(Collection<Parameter> used) {
+        boolean registered = true;
+        for (Parameter parameter : used) {
+            Parameter existing = parameters.putIfAbsent(parameter.getName(), parameter);
+            if (existing != null && existing != parameter) registered = false;
+        }
+        return registered;
+    }
+
+    /**
+     * Returns how many times a parameter value has been set. Results computed from values that
+     * cannot be traced back to particular parameters, such as those of a custom evaluator,
+     * are stale once this changes.
+     */
+    public static long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    static void modified() {
+        modificationCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the parameters the expression refers to, ordered by name.
+     */
+    public static Set<Parameter> referencedBy(Expression expression) {
+        Set<Parameter> found = new TreeSet<>((p, q) -> p.getName().compareTo(q.getName()));
+        expression.accept(new ExpressionVisitor<Void>() {
+            @Override
+            public Void visitConstant(Constant node) {
+                return null;
+            }
+
+            @Override
+            public Void visitVariable(Variable node) {
+                return null;
+            }
+
+            @Override
+            public Void visitParameter(Parameter node) {
+                found.add(node);
+                return null;
+            }
+
+            @Override
+            public Void visitNegation(Negation node) {
+                return node.getOperand().accept(this);
+            }
+
+            @Override
+            public Void visitBinaryOperation(BinaryOperation node) {
+                node.getLeft().accept(this);
+                return node.getRight().accept(this);
+            }
+
+            @Override
+            public Void visitFunctionCall(FunctionCall node) {
+                return node.getArgument().accept(this);
+            }
+
+            @Override
+            public Void visitBinaryFunctionCall(BinaryFunctionCall node) {
+                node.getFirst().accept(this);
+                return node.getSecond().accept(this);
+            }
+        });
+        return found;
+    }
+}
@@ -0,0 +1,356 @@
+package com.mathplotter.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A polynomial in x with real coefficients, evaluated by Horner's scheme.
+ * Instances are immutable; coefficients are stored from the constant term upwards with no
+ * trailing zeros, so the zero polynomial has no coefficients at all.
+ */
+public final class Polynomial {
+
+    public static final Polynomial ZERO = new Polynomial(new double[0]);
+    public static final Polynomial ONE = new Polynomial(new double[] {1});
+    public static final Polynomial X = new Polynomial(new double[] {0, 1});
+
+    // Aberth iterations after which root finding gives up on further refinement
+    private static final int MAX_ITERATIONS = 500;
+    // Roots closer than this, relative to their size, are taken to be the same root
+    private static final double ROOT_TOLERANCE = 1e-9;
+
+    private final double[] coefficients;
+
+    private Polynomial(double[] coefficients) {
+        int length = coefficients.length;
+        while (length > 0 && coefficients[length - 1] == 0) length--;
+        this.coefficients = length == coefficients.length ? coefficients : Arrays.copyOf(coefficients, length);
+    }
+
+    /**
+     * Returns the polynomial with the given coefficients, constant term first.
+     */
+    public static Polynomial of(double... coefficients) {
+        return new Polynomial(coefficients.clone());
+    }
+
+    public static Polynomial constant(double value) {
+        return new Polynomial(new double[] {value});
+    }
+
+    /**
+     * Returns the degree, or -1 for the zero polynomial.
+     */
+    public int getDegree() {
+        return coefficients.length - 1;
+    }
+
+    public double getCoefficient(int power) {
+        return power < coefficients.length ? coefficients[power] : 0;
+    }
+
+    public boolean isZero() {
+        return coefficients.length == 0;
+    }
+
+    public boolean isConstant() {
+        return coefficients.length <= 1;
+    }
+
+    // Whether at most one coefficient is non-zero, as in c*x^k
+    boolean isMonomial() {
+        int terms = 0;
+        for (double c : coefficients) {
+            if (c != 0) terms++;
+        }
+        return terms <= 1;
+    }
+
+    public double evaluate(double x) {
+        double[] c = coefficients;
+        double y = 0;
+        for (int i = c.length - 1; i >= 0; i--) {
+            y = y * x + c[i];
+        }
+        return y;
+    }
+
+    /**
+     * Evaluates the polynomial at the first length values of xs, writing the results to ys.
+     */
+    public void evaluate(double[] xs, double[] ys, int length) {
+        double[] c = coefficients;
+        int degree = c.length - 1;
+        if (degree < 0) {
+            Arrays.fill(ys, 0, length, 0.0);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            double x = xs[i];
+            double y = c[degree];
+            for (int j = degree - 1; j >= 0; j--) {
+                y = y * x + c[j];
+            }
+            ys[i] = y;
+        }
+    }
+
+    public Polynomial plus(Polynomial other) {
+        double[] sum = Arrays.copyOf(coefficients, Math.max(coefficients.length, other.coefficients.length));
+        for (int i = 0; i < other.coefficients.length; i++) sum[i] += other.coefficients[i];
+        return new Polynomial(sum);
+    }
+
+    public Polynomial minus(Polynomial other) {
+        return plus(other.scale(-1));
+    }
+
+    public Polynomial times(Polynomial other) {
+        if (isZero() || other.isZero()) {
+            return ZERO;
+        }
+        double[] product = new double[coefficients.length + other.coefficients.length - 1];
+        for (int i = 0; i < coefficients.length; i++) {
+            for (int j = 0; j < other.coefficients.length; j++) {
+                product[i + j] += coefficients[i] * other.coefficients[j];
+            }
+        }
+        return new Polynomial(product);
+    }
+
+    public Polynomial scale(double factor) {
+        double[] scaled = new double[coefficients.length];
+        for (int i = 0; i < scaled.length; i++) scaled[i] = coefficients[i] * factor;
+        return new Polynomial(scaled);
+    }
+
+    public Polynomial derivative() {
+        if (coefficients.length <= 1) {
+            return ZERO;
+        }
+        double[] derivative = new double[coefficients.length - 1];
+        for (int i = 0; i < derivative.length; i++) derivative[i] = (i + 1) * coefficients[i + 1];
+        return new Polynomial(derivative);
+    }
+
+    public Polynomial pow(int exponent) {
+        Polynomial result = ONE;
+        for (int i = 0; i < exponent; i++) result = result.times(this);
+        return result;
+    }
+
+    /**
+     * Returns the distinct real roots in increasing order.
+     * All complex roots are found together by the Aberth-Ehrlich method. Approximations to a
+     * multiple root scatter around it, so they are grouped by their inclusion discs and the
+     * mean of each group is polished by Newton's method. A group counts as a real root if that
+     * leads to a point where the polynomial vanishes up to rounding, whatever the imaginary
+     * parts of its approximations. The zero polynomial has no roots.
+     */
+    public List<Double> realRoots() {
+        List<Double> roots = new ArrayList<>();
+        int low = 0;
+        while (low < coefficients.length && coefficients[low] == 0) low++;
+        if (low > 0 && low < coefficients.length) {
+            roots.add(0.0);
+        }
+        // Without the root at zero
+        double[] c = Arrays.copyOfRange(coefficients, Math.min(low, coefficients.length), coefficients.length);
+        int n = c.length - 1;
+        if (n == 1) {
+            roots.add(-c[0] / c[1]);
+        } else if (n == 2) {
+            addQuadraticRoots(c[2], c[1], c[0], roots);
+        } else if (n > 2) {
+            addAberthRoots(c, roots);
+        }
+        roots.sort(null);
+        List<Double> distinct = new ArrayList<>();
+        for (double root : roots) {
+            double last = distinct.isEmpty() ? Double.NaN : distinct.get(distinct.size() - 1);
+            if (!isSameRoot(root, last)) {
+                distinct.add(root);
+            }
+        }
+        return distinct;
+    }
+
+    private static void addQuadraticRoots(double a, double b, double c, List<Double> roots) {
+        double discriminant = b * b - 4 * a * c;
+        if (discriminant < 0) {
+            // A double root may come out slightly negative through rounding
+            if (discriminant < -4 * Math.ulp(b * b)) return;
+            discriminant = 0;
+        }
+        // Avoids cancellation between b and the square root
+        double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));
+        roots.add(q / a);
+        roots.add(c / q);
+    }
+
+    private void addAberthRoots(double[] c, List<Double> roots) {
+        int n = c.length - 1;
+        double[] re = new double[n];
+        double[] im = new double[n];
+        // Start on a circle enclosing all roots (Fujiwara bound), off the real axis
+        double radius = 0;
+        for (int k = 1; k <= n; k++) {
+            radius = Math.max(radius, Math.pow(Math.abs(c[n - k] / c[n]), 1.0 / k));
+        }
+        for (int k = 0; k < n; k++) {
+            double angle = 2 * Math.PI * k / n + 0.4;
+            re[k] = radius * Math.cos(angle);
+            im[k] = radius * Math.sin(angle);
+        }
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            boolean converged = true;
+            for (int i = 0; i < n; i++) {
+                // p(z) and p'(z) by Horner's scheme in complex arithmetic
+                double pr = c[n], pi = 0, dr = 0, di = 0;
+                for (int j = n - 1; j >= 0; j--) {
+                    double t = dr * re[i] - di * im[i] + pr;
+                    di = dr * im[i] + di * re[i] + pi;
+                    dr = t;
+                    t = pr * re[i] - pi * im[i] + c[j];
+                    pi = pr * im[i] + pi * re[i];
+                    pr = t;
+                }
+                if (pr == 0 && pi == 0) continue;
+                // Newton correction p/p'
+                double den = dr * dr + di * di;
+                if (den == 0) continue;
+                double nr = (pr * dr + pi * di) / den;
+                double ni = (pi * dr - pr * di) / den;
+                // Repulsion from the other approximations
+                double sr = 0, si = 0;
+                for (int j = 0; j < n; j++) {
+                    if (j == i) continue;
+                    double dx = re[i] - re[j];
+                    double dy = im[i] - im[j];
+                    double d = dx * dx + dy * dy;
+                    sr += dx / d;
+                    si -= dy / d;
+                }
+                // w = N / (1 - N * S)
+                double tr = 1 - (nr * sr - ni * si);
+                double ti = -(nr * si + ni * sr);
+                double td = tr * tr + ti * ti;
+                double wr = (nr * tr + ni * ti) / td;
+                double wi = (ni * tr - nr * ti) / td;
+                re[i] -= wr;
+                im[i] -= wi;
+                if (Math.hypot(wr, wi) > 1e-15 * Math.hypot(re[i], im[i])) {
+                    converged = false;
+                }
+            }
+            if (converged) break;
+        }
+        Polynomial p = new Polynomial(c);
+        // Weierstrass inclusion discs: every connected group of m discs holds exactly m roots.
+        // The discs of the approximations to a multiple root overlap, since both p and the
+        // distances between them are small there.
+        double[] radii = new double[n];
+        for (int i = 0; i < n; i++) {
+            double pr = c[n], pi = 0;
+            for (int j = n - 1; j >= 0; j--) {
+                double t = pr * re[i] - pi * im[i] + c[j];
+                pi = pr * im[i] + pi * re[i];
+                pr = t;
+            }
+            double distances = Math.abs(c[n]);
+            for (int j = 0; j < n; j++) {
+                if (j != i) distances *= Math.hypot(re[i] - re[j], im[i] - im[j]);
+            }
+            double modulus = Math.hypot(re[i], im[i]);
+            radii[i] = n * (Math.hypot(pr, pi) + p.roundingError(modulus)) / distances;
+        }
+        int[] group = new int[n];
+        for (int i = 0; i < n; i++) group[i] = i;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (Math.hypot(re[i] - re[j], im[i] - im[j]) <= radii[i] + radii[j]) {
+                    int from = group[j], to = group[i];
+                    for (int k = 0; k < n; k++) {
+                        if (group[k] == from) group[k] = to;
+                    }
+                }
+            }
+        }
+        for (int g = 0; g < n; g++) {
+            int multiplicity = 0;
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                if (group[k] == g) {
+                    multiplicity++;
+                    sum += re[k];
+                }
+            }
+            if (multiplicity == 0) continue;
+            double mean = sum / multiplicity;
+            double extent = 0;
+            for (int k = 0; k < n; k++) {
+                if (group[k] == g) extent = Math.max(extent, Math.hypot(re[k] - mean, im[k]) + radii[k]);
+            }
+            // A root of multiplicity m is a simple root of the (m-1)th derivative, where Newton's
+            // method is not lost in the rounding noise of p
+            Polynomial simple = p;
+            for (int k = 1; k < multiplicity; k++) simple = simple.derivative();
+            double root = simple.polish(mean, extent);
+            if (Math.abs(p.evaluate(root)) <= p.roundingError(Math.abs(root))) {
+                roots.add(root);
+            }
+        }
+    }
+
+    // A bound on the rounding error of Horner's scheme at a point of modulus r
+    private double roundingError(double r) {
+        double sum = 0;
+        for (int i = coefficients.length - 1; i >= 0; i--) {
+            sum = sum * r + Math.abs(coefficients[i]);
+        }
+        return 4 * coefficients.length * Math.ulp(1.0) * sum;
+    }
+
+    // A few Newton steps on the real line, kept only if they stay within reach of the start
+    // and improve the residual
+    private double polish(double start, double reach) {
+        double x = start;
+        for (int step = 0; step < 8; step++) {
+            double p = coefficients[coefficients.length - 1];
+            double dp = 0;
+            for (int i = coefficients.length - 2; i >= 0; i--) {
+                dp = dp * x + p;
+                p = p * x + coefficients[i];
+            }
+            if (p == 0 || dp == 0) break;
+            double dx = p / dp;
+            x -= dx;
+            if (Math.abs(dx) <= Math.ulp(x)) break;
+        }
+        if (!(Math.abs(x - start) <= reach)) {
+            return start;
+        }
+        return Math.abs(evaluate(x)) <= Math.abs(evaluate(start)) ? x : start;
+    }
+
+    // Whether two computed roots are the same root
+    static boolean isSameRoot(double a, double b) {
+        return Math.abs(a - b) <= ROOT_TOLERANCE * Math.max(1, Math.abs(a));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Polynomial && Arrays.equals(coefficients, ((Polynomial) other).coefficients);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(coefficients);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(coefficients);
+    }
+}
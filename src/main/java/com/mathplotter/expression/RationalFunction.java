@@ -0,0 +1,190 @@
+package com.mathplotter.expression;
+
+import java.util.List;
+
+/**
+ * A ratio of two polynomials in x, recognised from an expression tree.
+ * Polynomials and rational functions, which include most fitted curves, are evaluated on
+ * their coefficient arrays by Horner's scheme instead of by walking the tree, and their
+ * roots can be found exactly rather than by looking for sign changes.
+ */
+public final class RationalFunction {
+
+    // Highest degree of numerator or denominator that is still recognised
+    private static final int MAX_DEGREE = 64;
+    // Highest degree to which products of sums are expanded. A product of two linear factors,
+    // as in a factored quadratic, loses little; beyond that the coefficients cancel too badly
+    // near a repeated root
+    private static final int MAX_EXPANDED_DEGREE = 2;
+
+    private final Polynomial numerator;
+    private final Polynomial denominator;
+
+    private RationalFunction(Polynomial numerator, Polynomial denominator) {
+        // A constant denominator is folded into the numerator
+        if (denominator.isConstant()) {
+            this.numerator = numerator.scale(1 / denominator.getCoefficient(0));
+            this.denominator = Polynomial.ONE;
+        } else {
+            this.numerator = numerator;
+            this.denominator = denominator;
+        }
+    }
+
+    /**
+     * Returns the expression as a ratio of polynomials, or null if it is not one.
+     * Expressions that refer to parameters are not recognised, since their coefficients may
+     * change. Powers of sums, such as (x-1)^5, are not expanded either, nor are products of
+     * sums beyond degree 2, such as (x-1)*(x-1)*(x-1): the expanded coefficients cancel near
+     * the repeated root, where evaluating the tree stays accurate.
+     */
+    public static RationalFunction recognize(Expression expression) {
+        return expression.accept(Recognizer.INSTANCE);
+    }
+
+    public Polynomial getNumerator() {
+        return numerator;
+    }
+
+    public Polynomial getDenominator() {
+        return denominator;
+    }
+
+    public boolean isPolynomial() {
+        return denominator == Polynomial.ONE;
+    }
+
+    /**
+     * Returns the distinct real roots in increasing order: those of the numerator that are not
+     * also roots of the denominator. Where both vanish, as at x=1 in (x-1)^3/(x-1), the function
+     * is undefined rather than zero.
+     */
+    public List<Double> realRoots() {
+        List<Double> roots = numerator.realRoots();
+        if (isPolynomial() || roots.isEmpty()) {
+            return roots;
+        }
+        List<Double> poles = denominator.realRoots();
+        roots.removeIf(root -> poles.stream().anyMatch(pole -> Polynomial.isSameRoot(root, pole)));
+        return roots;
+    }
+
+    public double evaluate(double x) {
+        double value = numerator.evaluate(x);
+        return isPolynomial() ? value : value / denominator.evaluate(x);
+    }
+
+    /**
+     * Evaluates the function at the first length values of xs, writing the results to ys.
+     */
+    public void evaluate(double[] xs, double[] ys, int length) {
+        numerator.evaluate(xs, ys, length);
+        if (!isPolynomial()) {
+            for (int i = 0; i < length; i++) ys[i] /= denominator.evaluate(xs[i]);
+        }
+    }
+
+    private static RationalFunction of(Polynomial numerator, Polynomial denominator) {
+        if (numerator.getDegree() > MAX_DEGREE || denominator.getDegree() > MAX_DEGREE) {
+            return null;
+        }
+        return new RationalFunction(numerator, denominator);
+    }
+
+    private static final class Recognizer implements ExpressionVisitor<RationalFunction> {
+        static final Recognizer INSTANCE = new Recognizer();
+
+        @Override
+        public RationalFunction visitConstant(Constant node) {
+            return new RationalFunction(Polynomial.constant(node.getValue()), Polynomial.ONE);
+        }
+
+        @Override
+        public RationalFunction visitVariable(Variable node) {
+            return new RationalFunction(Polynomial.X, Polynomial.ONE);
+        }
+
+        @Override
+        public RationalFunction visitParameter(Parameter node) {
+            return null;
+        }
+
+        @Override
+        public RationalFunction visitNegation(Negation node) {
+            RationalFunction u = node.getOperand().accept(this);
+            return u == null ? null : new RationalFunction(u.numerator.scale(-1), u.denominator);
+        }
+
+        @Override
+        public RationalFunction visitBinaryOperation(BinaryOperation node) {
+            RationalFunction u = node.getLeft().accept(this);
+            RationalFunction v = node.getRight().accept(this);
+            if (u == null || v == null) {
+                return null;
+            }
+            switch (node.getOperator()) {
+                case ADD:
+                case SUBTRACT: {
+                    Polynomial right = node.getOperator() == BinaryOperation.Operator.ADD
+                            ? v.numerator : v.numerator.scale(-1);
+                    if (u.denominator.equals(v.denominator)) {
+                        return of(u.numerator.plus(right), u.denominator);
+                    }
+                    return of(u.numerator.times(v.denominator).plus(right.times(u.denominator)),
+                            u.denominator.times(v.denominator));
+                }
+                case MULTIPLY:
+                    if (!isExpandable(u.numerator, v.numerator) || !isExpandable(u.denominator, v.denominator)) {
+                        return null;
+                    }
+                    return of(u.numerator.times(v.numerator), u.denominator.times(v.denominator));
+                case DIVIDE:
+                    // Division by zero is left to the tree
+                    if (v.numerator.isZero()) return null;
+                    return of(u.numerator.times(v.denominator), u.denominator.times(v.numerator));
+                default:
+                    return power(u, v);
+            }
+        }
+
+        private static boolean isExpandable(Polynomial p, Polynomial q) {
+            return p.isMonomial() || q.isMonomial() || p.getDegree() + q.getDegree() <= MAX_EXPANDED_DEGREE;
+        }
+
+        private static RationalFunction power(RationalFunction base, RationalFunction exponent) {
+            if (!exponent.numerator.isConstant() || !exponent.isPolynomial()) {
+                return null;
+            }
+            double n = exponent.numerator.getCoefficient(0);
+            if (n != Math.rint(n) || Math.abs(n) > MAX_DEGREE) {
+                return null;
+            }
+            if (n == 0) {
+                return new RationalFunction(Polynomial.ONE, Polynomial.ONE);
+            }
+            if (n == 1) {
+                return base;
+            }
+            if (!base.numerator.isMonomial() || !base.denominator.isMonomial()) {
+                return null;
+            }
+            int k = (int) Math.abs(n);
+            Polynomial numerator = base.numerator.pow(k);
+            Polynomial denominator = base.denominator.pow(k);
+            if (n > 0) {
+                return of(numerator, denominator);
+            }
+            return numerator.isZero() ? null : of(denominator, numerator);
+        }
+
+        @Override
+        public RationalFunction visitFunctionCall(FunctionCall node) {
+            return null;
+        }
+
+        @Override
+        public RationalFunction visitBinaryFunctionCall(BinaryFunctionCall node) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mathplotter.expression;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread stack of scratch columns for batch evaluation.
+ * A node that needs a second column, such as the right operand of x*sin(x), takes one with
+ * {@link #acquire} and hands it back with {@link #release} once done, in strict LIFO order.
+ * The columns stay with the thread for later evaluations, so sampling allocates nothing once
+ * the deepest expression has been evaluated at the usual length. Columns longer than
+ * {@link #MAX_RETAINED_LENGTH} are one-off and are not kept.
+ */
+final class ScratchColumns {
+
+    static final int MAX_RETAINED_LENGTH = 1 << 16;
+
+    private static final ThreadLocal<ScratchColumns> current = ThreadLocal.withInitial(ScratchColumns::new);
+
+    private double[][] columns = new double[8][];
+    private int depth;
+
+    private ScratchColumns() {
+    }
+
+    /**
+     * Returns the scratch columns of the calling thread.
+     */
+    static ScratchColumns get() {
+        return current.get();
+    }
+
+    /**
+     * Returns a column of at least the given length, which the caller owns until the matching
+     * {@link #release}. Its contents are undefined.
+     */
+    double[] acquire(int length) {
+        if (length > MAX_RETAINED_LENGTH) {
+            depth++;
+            return new double[length];
+        }
+        if (depth >= columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(2 * columns.length, depth + 1));
+        }
+        double[] column = columns[depth];
+        if (column == null || column.length < length) {
+            column = new double[length];
+            columns[depth] = column;
+        }
+        depth++;
+        return column;
+    }
+
+    /**
+     * Hands back the column acquired last.
+     */
+    void release() {
+        depth--;
+    }
+}
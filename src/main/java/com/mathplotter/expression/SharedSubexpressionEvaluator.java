@@ -0,0 +1,218 @@
+package com.mathplotter.expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates expressions whose trees share nodes, as merged by {@link CommonSubexpressions#eliminate},
+ * computing every shared node once per evaluation rather than once per path to it.
+ * The sharing is analysed once, when the evaluator is built, so evaluating costs no more than
+ * walking the DAG; the values of shared nodes are kept in {@link ScratchColumns}, so it
+ * allocates nothing either. Subtrees without shared nodes are evaluated as plain trees, by
+ * the active {@link BatchEvaluator} for columns. Instances are immutable and may be used by
+ * any number of threads at once.
+ */
+public final class SharedSubexpressionEvaluator {
+
+    private final List<Expression> roots;
+    // Shared nodes, each after the shared nodes below it
+    private final Expression[] shared;
+    // Position of every shared node in shared
+    private final Map<Expression, Integer> slots = new IdentityHashMap<>();
+    // Shared nodes and every node above one; the rest is evaluated as a plain tree
+    private final Set<Expression> dependsOnShared = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public SharedSubexpressionEvaluator(Expression expression) {
+        this(Collections.singletonList(expression));
+    }
+
+    /**
+     * @param expressions The expressions to evaluate together; nodes they have in common are
+     *        computed once for all of them
+     */
+    public SharedSubexpressionEvaluator(List<Expression> expressions) {
+        this.roots = new ArrayList<>(expressions);
+        Set<Expression> sharedNodes = CommonSubexpressions.sharedNodes(roots);
+        List<Expression> ordered = new ArrayList<>();
+        Set<Expression> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Expression root : roots) {
+            order(root, sharedNodes, visited, ordered);
+        }
+        this.shared = ordered.toArray(new Expression[0]);
+        for (int i = 0; i < shared.length; i++) {
+            slots.put(shared[i], i);
+        }
+    }
+
+    // Lists the shared nodes below and including node in post-order, and marks their ancestors
+    private boolean order(Expression node, Set<Expression> sharedNodes, Set<Expression> visited,
+                          List<Expression> ordered) {
+        if (!visited.add(node)) {
+            return dependsOnShared.contains(node);
+        }
+        boolean depends = false;
+        for (Expression child : CommonSubexpressions.children(node)) {
+            depends |= order(child, sharedNodes, visited, ordered);
+        }
+        if (sharedNodes.contains(node)) {
+            ordered.add(node);
+            depends = true;
+        }
+        if (depends) {
+            dependsOnShared.add(node);
+        }
+        return depends;
+    }
+
+    /**
+     * Returns true if the expressions share any nodes, that is if this evaluator saves any work
+     * over evaluating them one by one as trees.
+     */
+    public boolean isSharing() {
+        return shared.length > 0;
+    }
+
+    /**
+     * Evaluates the first expression at x.
+     */
+    public double evaluate(double x) {
+        if (shared.length == 0) {
+            return roots.get(0).evaluate(x);
+        }
+        ScratchColumns scratch = ScratchColumns.get();
+        double[] values = scratch.acquire(shared.length);
+        try {
+            for (int i = 0; i < shared.length; i++) {
+                values[i] = compute(shared[i], x, values);
+            }
+            return evaluate(roots.get(0), x, values);
+        } finally {
+            scratch.release();
+        }
+    }
+
+    /**
+     * Evaluates the first expression at the first length values of xs, writing the results to ys.
+     */
+    public void evaluate(double[] xs, double[] ys, int length) {
+        if (shared.length == 0) {
+            BatchEvaluators.current().evaluate(roots.get(0), xs, ys, length);
+            return;
+        }
+        ScratchColumns scratch = ScratchColumns.get();
+        double[] values = scratch.acquire(shared.length * length);
+        try {
+            computeShared(xs, length, values, scratch);
+            evaluate(roots.get(0), xs, ys, length, values, scratch);
+        } finally {
+            scratch.release();
+        }
+    }
+
+    /**
+     * Evaluates every expression at the first length values of xs.
+     * @param ys Receives the values of the i-th expression in ys[i]
+     */
+    public void evaluate(double[] xs, double[][] ys, int length) {
+        ScratchColumns scratch = ScratchColumns.get();
+        double[] values = scratch.acquire(shared.length * length);
+        try {
+            computeShared(xs, length, values, scratch);
+            for (int i = 0; i < roots.size(); i++) {
+                evaluate(roots.get(i), xs, ys[i], length, values, scratch);
+            }
+        } finally {
+            scratch.release();
+        }
+    }
+
+    private double evaluate(Expression node, double x, double[] values) {
+        Integer slot = slots.get(node);
+        if (slot != null) {
+            return values[slot];
+        }
+        return dependsOnShared.contains(node) ? compute(node, x, values) : node.evaluate(x);
+    }
+
+    // Computes a node from the values of its children
+    private double compute(Expression node, double x, double[] values) {
+        if (node instanceof Negation) {
+            return -evaluate(((Negation) node).getOperand(), x, values);
+        }
+        if (node instanceof FunctionCall) {
+            FunctionCall call = (FunctionCall) node;
+            return call.getFunction().getImplementation().applyAsDouble(evaluate(call.getArgument(), x, values));
+        }
+        if (node instanceof BinaryFunctionCall) {
+            BinaryFunctionCall call = (BinaryFunctionCall) node;
+            double first = evaluate(call.getFirst(), x, values);
+            return call.getFunction().getImplementation().applyAsDouble(first, evaluate(call.getSecond(), x, values));
+        }
+        BinaryOperation operation = (BinaryOperation) node;
+        double left = evaluate(operation.getLeft(), x, values);
+        return operation.apply(left, evaluate(operation.getRight(), x, values));
+    }
+
+    // Fills the column of every shared node, one after another in values
+    private void computeShared(double[] xs, int length, double[] values, ScratchColumns scratch) {
+        double[] column = scratch.acquire(length);
+        try {
+            for (int i = 0; i < shared.length; i++) {
+                compute(shared[i], xs, column, length, values, scratch);
+                System.arraycopy(column, 0, values, i * length, length);
+            }
+        } finally {
+            scratch.release();
+        }
+    }
+
+    private void evaluate(Expression node, double[] xs, double[] ys, int length, double[] values,
+                          ScratchColumns scratch) {
+        Integer slot = slots.get(node);
+        if (slot != null) {
+            System.arraycopy(values, slot * length, ys, 0, length);
+        } else if (dependsOnShared.contains(node)) {
+            compute(node, xs, ys, length, values, scratch);
+        } else {
+            BatchEvaluators.current().evaluate(node, xs, ys, length);
+        }
+    }
+
+    private void compute(Expression node, double[] xs, double[] ys, int length, double[] values,
+                         ScratchColumns scratch) {
+        if (node instanceof Negation) {
+            evaluate(((Negation) node).getOperand(), xs, ys, length, values, scratch);
+            for (int i = 0; i < length; i++) ys[i] = -ys[i];
+        } else if (node instanceof FunctionCall) {
+            FunctionCall call = (FunctionCall) node;
+            evaluate(call.getArgument(), xs, ys, length, values, scratch);
+            for (int i = 0; i < length; i++) ys[i] = call.getFunction().getImplementation().applyAsDouble(ys[i]);
+        } else if (node instanceof BinaryFunctionCall) {
+            BinaryFunctionCall call = (BinaryFunctionCall) node;
+            evaluate(call.getFirst(), xs, ys, length, values, scratch);
+            double[] secondValues = scratch.acquire(length);
+            try {
+                evaluate(call.getSecond(), xs, secondValues, length, values, scratch);
+                for (int i = 0; i < length; i++) {
+                    ys[i] = call.getFunction().getImplementation().applyAsDouble(ys[i], secondValues[i]);
+                }
+            } finally {
+                scratch.release();
+            }
+        } else {
+            BinaryOperation operation = (BinaryOperation) node;
+            evaluate(operation.getLeft(), xs, ys, length, values, scratch);
+            double[] rightValues = scratch.acquire(length);
+            try {
+                evaluate(operation.getRight(), xs, rightValues, length, values, scratch);
+                operation.apply(ys, rightValues, length);
+            } finally {
+                scratch.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.mathplotter.expression;
+
+import static com.mathplotter.expression.Expressions.call;
+import static com.mathplotter.expression.Expressions.difference;
+import static com.mathplotter.expression.Expressions.isConstant;
+import static com.mathplotter.expression.Expressions.negate;
+import static com.mathplotter.expression.Expressions.power;
+import static com.mathplotter.expression.Expressions.product;
+import static com.mathplotter.expression.Expressions.quotient;
+import static com.mathplotter.expression.Expressions.sum;
+
+import com.mathplotter.expression.BinaryOperation.Operator;
+
+/**
+ * Optimisation pass run on every parsed expression before it is evaluated.
+ * Constant subtrees such as 2*pi or sin(pi/4) are folded to a single constant, identities
+ * such as u+0, u*1 and u^1 are removed, and small integer powers of x become multiplications.
+ * Only rewrites that leave the value unchanged wherever it is defined are applied; in
+ * particular u*0 is kept when u may be NaN, so a curve keeps the gaps of its domain.
+ */
+public final class Simplifier implements ExpressionVisitor<Expression> {
+
+    // Largest power of x that is expanded into repeated multiplication
+    private static final int MAX_EXPANDED_POWER = 4;
+
+    private static final Simplifier INSTANCE = new Simplifier();
+
+    private Simplifier() {
+    }
+
+    /**
+     * Returns a simplified expression that evaluates to the same values as the given one.
+     */
+    public static Expression simplify(Expression expression) {
+        return expression.accept(INSTANCE);
+    }
+
+    @Override
+    public Expression visitConstant(Constant node) {
+        return node;
+    }
+
+    @Override
+    public Expression visitVariable(Variable node) {
+        return node;
+    }
+
+    @Override
+    public Expression visitParameter(Parameter node) {
+        // Never folded: its value can change after parsing
+        return node;
+    }
+
+    @Override
+    public Expression visitNegation(Negation node) {
+        return negate(node.getOperand().accept(this));
+    }
+
+    @Override
+    public Expression visitBinaryOperation(BinaryOperation node) {
+        Expression left = node.getLeft().accept(this);
+        Expression right = node.getRight().accept(this);
+        switch (node.getOperator()) {
+            case ADD:
+                return sum(left, right);
+            case SUBTRACT:
+                return difference(left, right);
+            case MULTIPLY:
+                if (isZeroTimesUnknown(left, right) || isZeroTimesUnknown(right, left)) {
+                    return new BinaryOperation(Operator.MULTIPLY, left, right);
+                }
+                return product(left, right);
+            case DIVIDE:
+                if (isZeroTimesUnknown(left, right)) {
+                    return new BinaryOperation(Operator.DIVIDE, left, right);
+                }
+                return quotient(left, right);
+            default:
+                if (left instanceof Variable && right instanceof Constant) {
+                    Expression expanded = expandPower(left, ((Constant) right).getValue());
+                    if (expanded != null) {
+                        return expanded;
+                    }
+                }
+                return power(left, right);
+        }
+    }
+
+    // 0*u and 0/u are NaN rather than 0 wherever u is, so they are only folded for constant u
+    private static boolean isZeroTimesUnknown(Expression zero, Expression other) {
+        return isConstant(zero, 0) && !(other instanceof Constant);
+    }
+
+    // u^n as u*u*...*u, or 1/(u*...*u) for negative n; null if n is not a small integer
+    private static Expression expandPower(Expression base, double exponent) {
+        int n = (int) exponent;
+        if (n != exponent || n == 0 || Math.abs(n) > MAX_EXPANDED_POWER) {
+            return null;
+        }
+        Expression result = base;
+        for (int i = 1; i < Math.abs(n); i++) {
+            result = new BinaryOperation(Operator.MULTIPLY, result, base);
+        }
+        return n > 0 ? result : new BinaryOperation(Operator.DIVIDE, Expressions.ONE, result);
+    }
+
+    @Override
+    public Expression visitFunctionCall(FunctionCall node) {
+        return call(node.getFunction(), node.getArgument().accept(this));
+    }
+
+    @Override
+    public Expression visitBinaryFunctionCall(BinaryFunctionCall node) {
+        return call(node.getFunction(), node.getFirst().accept(this), node.getSecond().accept(this));
+    }
+}
@@ -0,0 +1,53 @@
+package com.mathplotter.expression;
+
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * A named single-argument function that expressions can call, such as sin or erf.
+ * Instances are registered once in the {@link FunctionRegistry} and shared by every expression;
+ * passes such as compilation recognise the built-ins by identity.
+ */
+public final class UnaryFunction implements DoubleUnaryOperator {
+    private final String name;
+    private final DoubleUnaryOperator implementation;
+    private final UnaryOperator<Expression> derivative;
+
+    public UnaryFunction(String name, DoubleUnaryOperator implementation) {
+        this(name, implementation, null);
+    }
+
+    /**
+     * @param derivative Builds g'(u) for an argument u, or null if g has no symbolic derivative
+     */
+    public UnaryFunction(String name, DoubleUnaryOperator implementation, UnaryOperator<Expression> derivative) {
+        this.name = name;
+        this.implementation = implementation;
+        this.derivative = derivative;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DoubleUnaryOperator getImplementation() {
+        return implementation;
+    }
+
+    /**
+     * Returns g'(argument), or null if this function has no symbolic derivative.
+     */
+    public Expression derivative(Expression argument) {
+        return derivative != null ? derivative.apply(argument) : null;
+    }
+
+    @Override
+    public double applyAsDouble(double x) {
+        return implementation.applyAsDouble(x);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,31 @@
+package com.mathplotter.expression;
+
+/**
+ * The free variable x.
+ */
+public final class Variable extends Expression {
+    public static final Variable X = new Variable();
+
+    private Variable() {
+    }
+
+    @Override
+    public double evaluate(double x) {
+        return x;
+    }
+
+    @Override
+    public void evaluate(double[] xs, double[] ys, int length) {
+        System.arraycopy(xs, 0, ys, 0, length);
+    }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visitVariable(this);
+    }
+
+    @Override
+    public String toString() {
+        return "x";
+    }
+}
@@ -0,0 +1,116 @@
+package com.mathplotter.functions;
+
+import static com.mathplotter.expression.Expressions.call;
+import static com.mathplotter.expression.Expressions.constant;
+import static com.mathplotter.expression.Expressions.negate;
+import static com.mathplotter.expression.Expressions.product;
+
+import com.mathplotter.expression.BinaryFunction;
+import com.mathplotter.expression.FunctionProvider;
+import com.mathplotter.expression.FunctionRegistry;
+import com.mathplotter.expression.UnaryFunction;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Special functions beyond java.lang.Math: sinc, erf, gamma, atan2 and hypot.
+ * Registered through META-INF/services like any third-party {@link FunctionProvider}.
+ */
+public class SpecialFunctions implements FunctionProvider {
+
+    private static final double TWO_OVER_SQRT_PI = 2 / Math.sqrt(Math.PI);
+
+    // Lanczos approximation, g = 7, n = 9
+    private static final double LANCZOS_G = 7;
+    private static final double[] LANCZOS = {
+            0.99999999999980993, 676.5203681218851, -1259.1392167224028,
+            771.32342877765313, -176.61502916214059, 12.507343278686905,
+            -0.13857109526572012, 9.9843695780195716e-6, 1.5056327351493116e-7};
+
+    @Override
+    public List<UnaryFunction> getUnaryFunctions() {
+        return Arrays.asList(
+                new UnaryFunction("sinc", SpecialFunctions::sinc),
+                new UnaryFunction("erf", SpecialFunctions::erf,
+                        u -> product(constant(TWO_OVER_SQRT_PI), call(FunctionRegistry.EXP, negate(product(u, u))))),
+                new UnaryFunction("gamma", SpecialFunctions::gamma));
+    }
+
+    @Override
+    public List<BinaryFunction> getBinaryFunctions() {
+        return Arrays.asList(
+                new BinaryFunction("atan2", Math::atan2),
+                new BinaryFunction("hypot", Math::hypot));
+    }
+
+    /**
+     * Unnormalised sinc: sin(x)/x, and 1 at x = 0.
+     */
+    public static double sinc(double x) {
+        return x == 0 ? 1 : Math.sin(x) / x;
+    }
+
+    /**
+     * Error function, accurate to a few units in the last place.
+     */
+    public static double erf(double x) {
+        double a = Math.abs(x);
+        double result;
+        if (a <= 2) {
+            // Maclaurin series: 2/sqrt(pi) * sum (-1)^n x^(2n+1) / (n! (2n+1))
+            double power = a;
+            double sum = a;
+            for (int n = 1; n < 100; n++) {
+                power *= -a * a / n;
+                double term = power / (2 * n + 1);
+                sum += term;
+                if (Math.abs(term) < 1e-17 * Math.abs(sum)) break;
+            }
+            result = TWO_OVER_SQRT_PI * sum;
+        } else {
+            result = 1 - erfcContinuedFraction(a);
+        }
+        return x < 0 ? -result : result;
+    }
+
+    // erfc(x) = exp(-x^2) / sqrt(pi) / (x + (1/2)/(x + 1/(x + (3/2)/(x + ...)))) for x > 0, by Lentz's method
+    private static double erfcContinuedFraction(double x) {
+        double tiny = 1e-300;
+        double f = x;
+        double c = f;
+        double d = 0;
+        for (int n = 1; n < 500; n++) {
+            double a = n / 2.0;
+            d = x + a * d;
+            d = 1 / (d == 0 ? tiny : d);
+            c = x + a / c;
+            if (c == 0) c = tiny;
+            double delta = c * d;
+            f *= delta;
+            if (Math.abs(delta - 1) < 1e-16) break;
+        }
+        return Math.exp(-x * x) / (Math.sqrt(Math.PI) * f);
+    }
+
+    /**
+     * Gamma function; NaN at the poles 0, -1, -2, ...
+     */
+    public static double gamma(double x) {
+        if (x <= 0 && x == Math.floor(x)) {
+            return Double.NaN;
+        }
+        if (x < 0.5) {
+            // Reflection formula
+            return Math.PI / (Math.sin(Math.PI * x) * gamma(1 - x));
+        }
+        x -= 1;
+        double a = LANCZOS[0];
+        for (int i = 1; i < LANCZOS.length; i++) {
+            a += LANCZOS[i] / (x + i);
+        }
+        double t = x + LANCZOS_G + 0.5;
+        // t^(x+0.5) split in two so it does not overflow before the result does
+        double half = Math.pow(t, (x + 0.5) / 2);
+        return Math.sqrt(2 * Math.PI) * half * (half * Math.exp(-t)) * a;
+    }
+}
@@ -1,42 +1,354 @@
 package com.mathplotter.model;
 
 import com.mathplotter.exceptions.MathParsingException;
-import com.mathplotter.utils.MathParser;
+import com.mathplotter.expression.ApproximateMath;
+import com.mathplotter.expression.BatchEvaluators;
+import com.mathplotter.expression.DomainError;
+import com.mathplotter.expression.Expression;
+import com.mathplotter.expression.ExpressionProgram;
+import com.mathplotter.expression.Interval;
+import com.mathplotter.expression.IntervalEvaluator;
+import com.mathplotter.expression.Parameters;
+import com.mathplotter.expression.RationalFunction;
+import com.mathplotter.expression.SharedSubexpressionEvaluator;
+import com.mathplotter.utils.ChebyshevProxy;
+import com.mathplotter.utils.ExpressionCache;
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A plotted function of x.
+ * Evaluation is thread-safe: the expression tree and compiled code are immutable, so the
+ * renderer on the EDT and analysis on worker threads may evaluate the same function at once.
+ * Only the evaluation count that drives compilation is shared, and it is updated racily on
+ * purpose; a lost increment merely delays promotion.
+ */
+public class Function implements DoubleUnaryOperator {
+
+    /**
+     * Execution tier of a parsed function. Functions start out interpreted and are
+     * promoted to compiled bytecode once they have been evaluated often enough.
+     */
+    public enum Tier { INTERPRETED, COMPILING, COMPILED, COMPILATION_FAILED }
+
+    // Evaluations after which a function is compiled in the background
+    public static final long COMPILE_THRESHOLD = 5000;
+
+    /**
+     * Whether functions entered by the user have their repeated subexpressions computed once.
+     * The values are identical either way, so this is on unless the
+     * {@code mathplotter.cse} system property is {@code false}, which only serves to compare.
+     */
+    public static final boolean ELIMINATE_COMMON_SUBEXPRESSIONS =
+            Boolean.parseBoolean(System.getProperty("mathplotter.cse", "true"));
+
+    // Chebyshev proxies kept per function, for the view range and an integration range or two
+    private static final int MAX_PROXIES = 4;
+
+    private static final AtomicLong promotionCount = new AtomicLong();
 
-public class Function {
     private final String expression;
-    private transient MathParser parser;
-    private transient java.util.function.Function<Double, Double> customEvaluator;
+    // Parsed tree and its one-time compilation, possibly shared with other functions
+    private final transient ExpressionProgram program;
+    private final transient Expression tree;
+    // Polynomials and rational functions skip the tree and are evaluated by Horner's scheme
+    private final transient RationalFunction rationalForm;
+    // Bytecode-compiled form of the tree, published by the background compiler
+    private transient volatile DoubleUnaryOperator compiled;
+    private transient volatile Tier tier = Tier.INTERPRETED;
+    // Approximate; updated without synchronization on the hot path
+    private transient long evaluationCount;
+    // Evaluates the tree computing its shared subexpressions once, or null if it has none
+    private final transient SharedSubexpressionEvaluator sharedEvaluator;
+    private final transient DoubleUnaryOperator customEvaluator;
+    // Recently built proxies, most recent first; guarded by itself
+    private final transient List<ChebyshevProxy> proxies = new ArrayList<>();
     private Color color;
     private boolean visible;
 
     public Function(String expression, Color color) throws MathParsingException {
+        this(expression, color, false);
+    }
+
+    /**
+     * Creates a function from an expression. Parsed and compiled programs are shared through
+     * the {@link ExpressionCache}, so functions with the same expression are parsed and compiled once.
+     * @param eliminateCommonSubexpressions Whether repeated subexpressions, such as the three
+     *        sin(x) in sin(x)^2 + cos(x)*sin(x) + sin(x), are computed only once per evaluation
+     */
+    public Function(String expression, Color color, boolean eliminateCommonSubexpressions) throws MathParsingException {
         this.expression = expression;
-        this.parser = new MathParser(expression);
-        // We can do a test evaluation to catch syntax errors early
-        this.parser.evaluate(1.0); 
+        // Parse once up front; this also reports syntax errors early
+        this.program = ExpressionCache.getShared().get(expression, eliminateCommonSubexpressions);
+        this.tree = program.getTree();
+        this.rationalForm = program.getRationalForm();
+        this.sharedEvaluator = program.getSharedEvaluator();
+        // Another function with the same expression may already have been compiled
+        DoubleUnaryOperator shared = program.getCompiled();
+        if (shared != null) {
+            this.compiled = shared;
+            this.tier = Tier.COMPILED;
+        }
+        this.customEvaluator = null;
         this.color = color;
         this.visible = true;
     }
 
-    public static Function createDerivative(String expression, Color color, java.util.function.Function<Double, Double> customEvaluator) {
-        return new Function(expression, color, customEvaluator);
+    public static Function createDerivative(String expression, Color color, DoubleUnaryOperator customEvaluator) {
+        return new Function(expression, color, null, customEvaluator);
+    }
+
+    /**
+     * Creates a function from an already built expression tree, such as a symbolic derivative.
+     * It is interpreted and promoted to compiled code like any parsed function.
+     */
+    public static Function createDerivative(String expression, Color color, Expression tree) {
+        return new Function(expression, color, tree, null);
     }
 
     // Private constructor for internal use cases like creating a derivative function
-    private Function(String expression, Color color, java.util.function.Function<Double, Double> customEvaluator) {
+    private Function(String expression, Color color, Expression tree, DoubleUnaryOperator customEvaluator) {
         this.expression = expression;
+        this.program = tree != null ? new ExpressionProgram(tree) : null;
+        this.tree = tree;
+        this.rationalForm = program != null ? program.getRationalForm() : null;
+        this.sharedEvaluator = program != null ? program.getSharedEvaluator() : null;
         this.customEvaluator = customEvaluator;
         this.color = color;
         this.visible = true;
     }
 
-    public double evaluate(double x) throws MathParsingException {
+    /**
+     * Evaluates the function at x. Points outside the domain give NaN or an infinity rather
+     * than an exception; {@link #getDomainError} tells why.
+     */
+    public double evaluate(double x) {
+        return applyAsDouble(x);
+    }
+
+    /**
+     * Returns why the function has no finite value at x, or {@link DomainError#NONE} if it has one.
+     * Finite values cost one ordinary evaluation; only the others are diagnosed on the tree.
+     */
+    public DomainError getDomainError(double x) {
+        if (Double.isFinite(evaluate(x))) {
+            return DomainError.NONE;
+        }
+        return tree != null ? DomainError.diagnose(tree, x) : DomainError.UNDEFINED;
+    }
+
+    /**
+     * Evaluates the function at x on primitive doubles; no boxing or allocation takes place.
+     */
+    @Override
+    public double applyAsDouble(double x) {
+        evaluationCount++;
+        if (customEvaluator != null) {
+            return customEvaluator.applyAsDouble(x);
+        }
+        if (rationalForm != null) {
+            return rationalForm.evaluate(x);
+        }
+        DoubleUnaryOperator c = compiled;
+        if (c != null) {
+            return c.applyAsDouble(x);
+        }
+        if (evaluationCount >= COMPILE_THRESHOLD && tier == Tier.INTERPRETED) {
+            promote();
+        }
+        return sharedEvaluator != null ? sharedEvaluator.evaluate(x) : tree.evaluate(x);
+    }
+
+    /**
+     * Evaluates the function at every value of xs, writing the results to the matching
+     * positions of ys. This is the preferred entry point for sampling many points at once.
+     * @param xs The x values
+     * @param ys The output array; must be at least as long as xs
+     */
+    public void evaluate(double[] xs, double[] ys) {
+        int length = xs.length;
+        evaluationCount += length;
         if (customEvaluator != null) {
-            return customEvaluator.apply(x);
+            for (int i = 0; i < length; i++) ys[i] = customEvaluator.applyAsDouble(xs[i]);
+            return;
+        }
+        if (rationalForm != null) {
+            rationalForm.evaluate(xs, ys, length);
+            return;
+        }
+        DoubleUnaryOperator c = compiled;
+        if (c != null && !BatchEvaluators.isVectorEnabled()) {
+            for (int i = 0; i < length; i++) ys[i] = c.applyAsDouble(xs[i]);
+            return;
+        }
+        if (evaluationCount >= COMPILE_THRESHOLD && tier == Tier.INTERPRETED) {
+            promote();
+        }
+        if (sharedEvaluator != null) {
+            sharedEvaluator.evaluate(xs, ys, length);
+        } else {
+            BatchEvaluators.current().evaluate(tree, xs, ys, length);
+        }
+    }
+
+    /**
+     * Like {@link #evaluate(double[], double[])}, but with sin, cos, exp, log and powers
+     * replaced by the cheaper {@link ApproximateMath} versions. The results are far more
+     * accurate than a pixel, so this suits sampling that is only drawn on screen; it must
+     * never feed numbers shown to the user, analysis or export.
+     */
+    public void evaluateForDisplay(double[] xs, double[] ys) {
+        Expression approximate = program != null && rationalForm == null ? program.getApproximateTree() : null;
+        // The vector evaluator has fast elementary functions of its own
+        if (approximate == null || approximate == tree || BatchEvaluators.isVectorEnabled()) {
+            evaluate(xs, ys);
+            return;
         }
-        return parser.evaluate(x);
+        int length = xs.length;
+        if (compiled != null) {
+            // Hot functions use compiled approximations once those are ready
+            DoubleUnaryOperator c = program.compileApproximate().getNow(null);
+            if (c == null) {
+                evaluate(xs, ys);
+                return;
+            }
+            evaluationCount += length;
+            for (int i = 0; i < length; i++) ys[i] = c.applyAsDouble(xs[i]);
+            return;
+        }
+        evaluationCount += length;
+        if (evaluationCount >= COMPILE_THRESHOLD && tier == Tier.INTERPRETED) {
+            promote();
+        }
+        SharedSubexpressionEvaluator approximateShared = program.getApproximateSharedEvaluator();
+        if (approximateShared != null) {
+            approximateShared.evaluate(xs, ys, length);
+        } else {
+            BatchEvaluators.current().evaluate(approximate, xs, ys, length);
+        }
+    }
+
+    /**
+     * Counts evaluations made on this function's behalf by other evaluators, such as a
+     * {@link com.mathplotter.utils.FusedEvaluator}, toward its promotion to compiled code.
+     */
+    public void countEvaluations(int count) {
+        evaluationCount += count;
+        if (evaluationCount >= COMPILE_THRESHOLD && tier == Tier.INTERPRETED
+                && program != null && rationalForm == null) {
+            promote();
+        }
+    }
+
+    // Queues this function for compilation; evaluation stays interpreted until it completes
+    private synchronized void promote() {
+        if (tier != Tier.INTERPRETED) return;
+        tier = Tier.COMPILING;
+        // A compilation that fails or is never run must not leave the function compiling for ever
+        program.compile().whenComplete((operator, failure) -> {
+            if (failure == null && operator != null) {
+                compiled = operator;
+                tier = Tier.COMPILED;
+                promotionCount.incrementAndGet();
+            } else {
+                tier = Tier.COMPILATION_FAILED;
+            }
+        });
+    }
+
+    /**
+     * Returns how many times this function has been evaluated (approximate under concurrent use).
+     */
+    public long getEvaluationCount() {
+        return evaluationCount;
+    }
+
+    /**
+     * Returns the parsed expression tree, or null for functions defined by a custom evaluator.
+     */
+    public Expression getExpressionTree() {
+        return tree;
+    }
+
+    /**
+     * Returns an interval guaranteed to contain every value the function takes for x in
+     * [lower, upper]; see {@link IntervalEvaluator}. Functions defined by a custom evaluator
+     * give no such guarantee and return {@link Interval#ENTIRE}.
+     */
+    public Interval enclose(double lower, double upper) {
+        return tree != null ? IntervalEvaluator.evaluate(tree, lower, upper) : Interval.ENTIRE;
+    }
+
+    /**
+     * Returns a {@link ChebyshevProxy} of the function over [lower, upper], building it if no
+     * current one has been built yet. The last few proxies of functions with an expression tree
+     * are kept until a parameter they depend on changes; those of custom evaluators, whose
+     * dependencies are unknown, are rebuilt every time.
+     */
+    public ChebyshevProxy getProxy(double lower, double upper) {
+        ChebyshevProxy proxy = getExistingProxy(lower, upper);
+        if (proxy != null) {
+            return proxy;
+        }
+        if (tree == null) {
+            // Custom evaluators are typically difference quotients
+            return ChebyshevProxy.build(this, lower, upper, ChebyshevProxy.NOISY_TOLERANCE, Collections.emptySet());
+        }
+        proxy = ChebyshevProxy.build(this, lower, upper, ChebyshevProxy.EXACT_TOLERANCE, Parameters.referencedBy(tree));
+        synchronized (proxies) {
+            proxies.add(0, proxy);
+            if (proxies.size() > MAX_PROXIES) proxies.remove(MAX_PROXIES);
+        }
+        return proxy;
+    }
+
+    /**
+     * Returns the current proxy over exactly [lower, upper] if one has already been built,
+     * otherwise null. Unlike {@link #getProxy} this never costs any evaluations.
+     */
+    public ChebyshevProxy getExistingProxy(double lower, double upper) {
+        synchronized (proxies) {
+            for (ChebyshevProxy proxy : proxies) {
+                if (proxy.getLower() == lower && proxy.getUpper() == upper && proxy.isCurrent()) {
+                    return proxy;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the tree that {@link #evaluateForDisplay} evaluates, with approximate elementary
+     * functions, or null for functions defined by a custom evaluator.
+     */
+    public Expression getDisplayTree() {
+        return program != null ? program.getApproximateTree() : null;
+    }
+
+    /**
+     * Returns the function as a ratio of polynomials in x, or null if it is not one.
+     * Such functions are always evaluated on their coefficients and are never compiled.
+     */
+    public RationalFunction getRationalForm() {
+        return rationalForm;
+    }
+
+    /**
+     * Returns the current execution tier, or null for functions defined by a custom evaluator.
+     */
+    public Tier getTier() {
+        return tree != null ? tier : null;
+    }
+
+    /**
+     * Returns how many functions have been promoted to compiled code so far.
+     */
+    public static long getPromotionCount() {
+        return promotionCount.get();
     }
 
     @Override
@@ -0,0 +1,244 @@
+package com.mathplotter.utils;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Samples a curve for drawing, as densely as its shape needs rather than once per pixel.
+ * Starting from samples a few pixels apart, intervals are halved wherever a sample lies
+ * noticeably off the chord of its neighbours, or the curve leaves its domain, so smooth
+ * stretches stay coarse while sharp turns, narrow spikes and domain edges are resolved well
+ * below a pixel. Intervals that still jump after being halved down to the minimum width are
+ * discontinuities, and the curve is marked to be broken there instead of joined up by a
+ * vertical line.
+ * The number of evaluations is bounded, so pathological curves such as sin(1/x) cost at most
+ * a fixed amount per pixel; the most crooked intervals are refined first.
+ * <p>
+ * A polyline sampled for one view can be {@linkplain #resample resampled} for the next: its
+ * samples are kept where they are still in view, so a pan only evaluates the newly exposed
+ * strip, and a zoom only fills in where the old samples are too sparse for the new scale.
+ */
+public final class AdaptiveSampler {
+
+    /** Pixels between the initial samples. */
+    public static final int INITIAL_SPACING = 4;
+    /** Evaluations a curve may cost per pixel of width, initial samples included. */
+    public static final int EVALUATIONS_PER_PIXEL = 8;
+
+    // Intervals are not halved below this width in pixels
+    private static final double MIN_WIDTH = 1.0 / 32;
+    // How far in pixels a sample may lie off the chord of its neighbours
+    private static final double TOLERANCE = 0.25;
+    // Rise in pixels above which a minimum width interval may be a jump
+    private static final double JUMP = 2;
+    // A jump keeps nearly all of its rise when the interval is widened; a steep curve does not
+    private static final double JUMP_RATIO = 0.95;
+
+    private AdaptiveSampler() {
+    }
+
+    /**
+     * Returns the initial sample positions for [lower, upper]: both ends, and evenly spaced
+     * points at most {@link #INITIAL_SPACING} pixels apart in between.
+     */
+    public static double[] initialSamples(double lower, double upper, double xScale) {
+        int cells = (int) Math.max(1, Math.ceil((upper - lower) * xScale / INITIAL_SPACING));
+        double[] xs = new double[cells + 1];
+        for (int i = 0; i < cells; i++) {
+            xs[i] = lower + (upper - lower) * i / cells;
+        }
+        xs[cells] = upper;
+        return xs;
+    }
+
+    /**
+     * Refines initial samples of a curve and returns the curve as a polyline.
+     * @param xs The initial sample positions, increasing
+     * @param ys The values at xs
+     * @param evaluator Evaluates the function at every value of its first argument, writing
+     *        the results to its second
+     * @param xScale Pixels per unit of x
+     * @param yScale Pixels per unit of y
+     * @param budget The most evaluations to spend, counting the initial samples
+     */
+    public static Polyline sample(double[] xs, double[] ys, BiConsumer<double[], double[]> evaluator,
+                                  double xScale, double yScale, int budget) {
+        return refine(Arrays.copyOf(xs, xs.length), Arrays.copyOf(ys, ys.length), xs.length, xs.length,
+                evaluator, xScale, yScale, budget);
+    }
+
+    /**
+     * Samples the curve over [lower, upper] at new scales, starting from the samples of a
+     * polyline drawn for another view of the same function. Samples still in range are kept,
+     * the ends and any stretch where they lie more than {@link #INITIAL_SPACING} pixels apart
+     * are filled in, and the result is refined as by {@link #sample}.
+     */
+    public static Polyline resample(Polyline previous, double lower, double upper,
+                                    BiConsumer<double[], double[]> evaluator, double xScale, double yScale, int budget) {
+        // Keep the samples in range. Halving leaves intervals no narrower than about half the
+        // minimum width, so samples much closer than that are thinned out, or zooming out
+        // would pile them up; the edges of the domain are always kept. Only the slice in range
+        // is visited, as curves are resampled a chunk at a time
+        int first = previous.indexOf(lower);
+        int end = previous.indexOf(Math.nextUp(upper));
+        double[] keptX = new double[Math.max(end - first, 1)];
+        double[] keptY = new double[keptX.length];
+        int kept = 0;
+        for (int i = first; i < end; i++) {
+            double x = previous.xs[i];
+            if (kept > 0 && (x - keptX[kept - 1]) * xScale < MIN_WIDTH / 4
+                    && Double.isFinite(previous.ys[i]) == Double.isFinite(keptY[kept - 1])) continue;
+            keptX[kept] = x;
+            keptY[kept++] = previous.ys[i];
+        }
+        // Curves as crooked as sin(1/x) can still be denser than the new view could use
+        if (kept > budget) {
+            double[] xs = initialSamples(lower, upper, xScale);
+            double[] ys = new double[xs.length];
+            evaluator.accept(xs, ys);
+            return sample(xs, ys, evaluator, xScale, yScale, budget);
+        }
+
+        double[] added = new double[16];
+        int count = 0;
+        double last = lower;
+        if (kept == 0 || keptX[0] > lower) {
+            added[count++] = lower;
+        }
+        for (int i = 0; i <= kept; i++) {
+            double next = i < kept ? keptX[i] : upper;
+            // Rounding must not split gaps of exactly the initial spacing
+            int cells = (int) Math.ceil((next - last) * xScale / INITIAL_SPACING - 1e-6);
+            for (int k = 1; k < cells; k++) {
+                if (count == added.length) added = Arrays.copyOf(added, count * 2);
+                added[count++] = last + (next - last) * k / cells;
+            }
+            last = next;
+        }
+        if (kept == 0 || keptX[kept - 1] < upper) {
+            if (count == added.length) added = Arrays.copyOf(added, count + 1);
+            added[count++] = upper;
+        }
+        added = Arrays.copyOf(added, count);
+        double[] values = new double[count];
+        evaluator.accept(added, values);
+
+        // Merge the new samples in among the kept ones
+        int size = kept + count;
+        double[] px = new double[size];
+        double[] py = new double[size];
+        int i = 0;
+        int k = 0;
+        for (int n = 0; n < size; n++) {
+            if (k < count && (i == kept || added[k] < keptX[i])) {
+                px[n] = added[k];
+                py[n] = values[k++];
+            } else {
+                px[n] = keptX[i];
+                py[n] = keptY[i++];
+            }
+        }
+        return refine(px, py, size, count, evaluator, xScale, yScale, budget);
+    }
+
+    // Halves intervals of px[0 .. size) until they are straight enough or the budget is spent
+    private static Polyline refine(double[] px, double[] py, int size, int evaluations,
+                                   BiConsumer<double[], double[]> evaluator, double xScale, double yScale, int budget) {
+        while (size > 1 && evaluations < budget) {
+            double[] scores = scores(px, py, size, xScale, yScale);
+            int candidates = 0;
+            for (int i = 0; i < size - 1; i++) {
+                if (scores[i] > 0) candidates++;
+            }
+            if (candidates == 0) break;
+            // Over budget, only the worst intervals are halved
+            double threshold = Double.MIN_VALUE;
+            int allowed = budget - evaluations;
+            if (candidates > allowed) {
+                double[] sorted = Arrays.copyOf(scores, size - 1);
+                Arrays.sort(sorted);
+                threshold = sorted[sorted.length - allowed];
+            }
+            double[] midpoints = new double[Math.min(candidates, allowed)];
+            int count = 0;
+            for (int i = 0; i < size - 1 && count < midpoints.length; i++) {
+                if (scores[i] >= threshold) {
+                    midpoints[count++] = 0.5 * (px[i] + px[i + 1]);
+                }
+            }
+            double[] values = new double[count];
+            evaluator.accept(midpoints, values);
+            evaluations += count;
+
+            // Merge the midpoints in after their intervals
+            double[] mergedX = new double[size + count];
+            double[] mergedY = new double[size + count];
+            int k = 0;
+            int m = 0;
+            for (int i = 0; i < size; i++) {
+                mergedX[k] = px[i];
+                mergedY[k++] = py[i];
+                if (m < count && i < size - 1 && midpoints[m] > px[i] && midpoints[m] < px[i + 1]) {
+                    mergedX[k] = midpoints[m];
+                    mergedY[k++] = values[m++];
+                }
+            }
+            px = mergedX;
+            py = mergedY;
+            size = k;
+        }
+        return withJumps(px, py, size, evaluations, xScale, yScale);
+    }
+
+    /**
+     * Scores every interval by how much it needs halving: the deviation in pixels of its end
+     * points from the chords of their neighbours, or infinity at the edge of the domain.
+     * Intervals that need nothing, or are already at the minimum width, score zero.
+     */
+    private static double[] scores(double[] px, double[] py, int size, double xScale, double yScale) {
+        double[] scores = new double[size - 1];
+        for (int i = 0; i < size - 1; i++) {
+            if (Double.isFinite(py[i]) != Double.isFinite(py[i + 1])) {
+                scores[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+        for (int i = 1; i < size - 1; i++) {
+            if (!Double.isFinite(py[i - 1]) || !Double.isFinite(py[i]) || !Double.isFinite(py[i + 1])) continue;
+            double t = (px[i] - px[i - 1]) / (px[i + 1] - px[i - 1]);
+            double chord = py[i - 1] + t * (py[i + 1] - py[i - 1]);
+            double deviation = Math.abs(py[i] - chord) * yScale;
+            if (deviation > TOLERANCE) {
+                scores[i - 1] = Math.max(scores[i - 1], deviation);
+                scores[i] = Math.max(scores[i], deviation);
+            }
+        }
+        for (int i = 0; i < size - 1; i++) {
+            if ((px[i + 1] - px[i]) * xScale <= MIN_WIDTH) scores[i] = 0;
+        }
+        return scores;
+    }
+
+    // Marks every minimum width interval that jumps
+    private static Polyline withJumps(double[] px, double[] py, int size, int evaluations, double xScale, double yScale) {
+        boolean[] jumps = new boolean[size];
+        for (int i = 0; i < size - 1; i++) {
+            jumps[i] = isJump(px, py, size, i, xScale, yScale);
+        }
+        return new Polyline(px, py, jumps, size, evaluations);
+    }
+
+    private static boolean isJump(double[] px, double[] py, int size, int i, double xScale, double yScale) {
+        if ((px[i + 1] - px[i]) * xScale > 2 * MIN_WIDTH) return false;
+        double rise = Math.abs(py[i + 1] - py[i]);
+        if (!(rise * yScale > JUMP)) return false;
+        // Widened by a neighbouring interval, a jump rises by about as much, a steep curve by more
+        double ratio = 1;
+        if (i > 0 && Double.isFinite(py[i - 1])) {
+            ratio = Math.min(ratio, rise / Math.abs(py[i + 1] - py[i - 1]));
+        }
+        if (i < size - 2 && Double.isFinite(py[i + 2])) {
+            ratio = Math.min(ratio, rise / Math.abs(py[i + 2] - py[i]));
+        }
+        return ratio >= JUMP_RATIO;
+    }
+}
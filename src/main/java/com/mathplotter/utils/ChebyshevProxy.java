@@ -0,0 +1,799 @@
+package com.mathplotter.utils;
+
+import com.mathplotter.expression.BinaryFunctionCall;
+import com.mathplotter.expression.BinaryOperation;
+import com.mathplotter.expression.CommonSubexpressions;
+import com.mathplotter.expression.Expression;
+import com.mathplotter.expression.FunctionCall;
+import com.mathplotter.expression.Parameter;
+import com.mathplotter.model.Function;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A piecewise Chebyshev interpolant of a function over a fixed range, in the manner of chebfun.
+ * The range is split into pieces, on each of which the function is interpolated at Chebyshev
+ * points with as many points as its coefficients need to fall below the tolerance. Smooth
+ * functions need a single piece of modest degree; pieces are only split near kinks, poles and
+ * fast oscillation. Pieces that cannot be resolved before they get too narrow, typically
+ * those around a pole or a jump, are left <em>unresolved</em>: the proxy evaluates the function
+ * itself there, and analysis has to fall back to sampling on {@link #getUnresolvedRanges}.
+ * <p>
+ * On the resolved pieces roots come from the eigenvalues of the colleague matrix, extrema from
+ * the roots of the differentiated series, and the integral from integrating the series term
+ * by term, which is Clenshaw-Curtis quadrature. Proxies are immutable; roots and extrema are
+ * found on first request and kept.
+ */
+public final class ChebyshevProxy {
+
+    /** Tolerance for functions evaluated to full precision. */
+    public static final double EXACT_TOLERANCE = 1e-13;
+    /** Tolerance for functions with noisy values, such as difference quotients. */
+    public static final double NOISY_TOLERANCE = 1e-8;
+
+    // Numbers of interpolation points tried on a piece before it is split
+    private static final int[] SIZES = {17, 33, 65, 129};
+    // Pieces narrower than this fraction of the range are left unresolved
+    private static final double MIN_RELATIVE_WIDTH = 0x1p-20;
+    // Pieces whose trailing coefficients are still this large are split rather than sampled more finely
+    private static final double SLOW_DECAY = 1e-2;
+    // Evaluations spent on a proxy before the rest of it is left unresolved
+    private static final int MAX_EVALUATIONS = 200_000;
+    // Eigenvalues with a larger imaginary part are not taken for real roots
+    private static final double IMAGINARY_TOLERANCE = 1e-7;
+    // Colleague matrices are small, so the QR iteration converges quickly or not at all
+    private static final int MAX_QR_ITERATIONS = 60;
+    // Series of higher degree are split before their colleague matrix is formed
+    private static final int MAX_COLLEAGUE_DEGREE = 24;
+    private static final int MAX_ROOT_SPLITS = 8;
+
+    private final double lower;
+    private final double upper;
+    private final Piece[] pieces;
+    private final DoubleUnaryOperator function;
+    private final double tolerance;
+    // Parameters the function depends on and their values when the proxy was built
+    private final Parameter[] parameters;
+    private final double[] parameterValues;
+    // Computed on first use
+    private volatile double[] roots;
+    private volatile double[] maxima;
+    private volatile double[] minima;
+
+    private static final class Piece {
+        final double lower;
+        final double upper;
+        // Chebyshev coefficients on [lower, upper], or null if unresolved
+        final double[] coefficients;
+
+        Piece(double lower, double upper, double[] coefficients) {
+            this.lower = lower;
+            this.upper = upper;
+            this.coefficients = coefficients;
+        }
+
+        boolean isResolved() {
+            return coefficients != null;
+        }
+
+        // Maps x in [lower, upper] to t in [-1, 1]
+        double toUnit(double x) {
+            return (2 * x - lower - upper) / (upper - lower);
+        }
+
+        double fromUnit(double t) {
+            return 0.5 * (lower + upper) + 0.5 * (upper - lower) * t;
+        }
+    }
+
+    private ChebyshevProxy(double lower, double upper, List<Piece> pieces, DoubleUnaryOperator function,
+                           double tolerance, Collection<Parameter> parameters) {
+        this.lower = lower;
+        this.upper = upper;
+        this.pieces = pieces.toArray(new Piece[0]);
+        this.function = function;
+        this.tolerance = tolerance;
+        this.parameters = parameters.toArray(new Parameter[0]);
+        this.parameterValues = new double[this.parameters.length];
+        for (int i = 0; i < this.parameters.length; i++) {
+            parameterValues[i] = this.parameters[i].getValue();
+        }
+    }
+
+    /**
+     * Builds a proxy of f over [lower, upper].
+     * @param tolerance Coefficients below this fraction of the function's magnitude are dropped;
+     *        {@link #EXACT_TOLERANCE} or {@link #NOISY_TOLERANCE}
+     * @param parameters The parameters f depends on; the proxy stops being {@linkplain #isCurrent
+     *        current} when one of them changes
+     */
+    public static ChebyshevProxy build(DoubleUnaryOperator f, double lower, double upper, double tolerance,
+                                       Collection<Parameter> parameters) {
+        if (!(lower < upper) || !Double.isFinite(upper - lower)) {
+            throw new IllegalArgumentException("Invalid range [" + lower + ", " + upper + "]");
+        }
+        Builder builder = new Builder(f, tolerance, (upper - lower) * MIN_RELATIVE_WIDTH);
+        builder.resolve(lower, upper);
+        return new ChebyshevProxy(lower, upper, builder.pieces, f, tolerance, parameters);
+    }
+
+    // Marks a piece on which the function is undefined throughout
+    private static final double[] UNDEFINED = new double[0];
+
+    private static final class Builder {
+        final DoubleUnaryOperator f;
+        final double tolerance;
+        final double minWidth;
+        final List<Piece> pieces = new ArrayList<>();
+        int evaluations;
+
+        Builder(DoubleUnaryOperator f, double tolerance, double minWidth) {
+            this.f = f;
+            this.tolerance = tolerance;
+            this.minWidth = minWidth;
+        }
+
+        // Pieces are resolved left to right, so they are added in order
+        void resolve(double a, double b) {
+            double[] coefficients = evaluations < MAX_EVALUATIONS ? interpolate(a, b) : null;
+            if (coefficients == UNDEFINED) {
+                // Nothing to resolve; analysis samples it anyway in case a sliver is defined
+                addUnresolved(a, b);
+            } else if (coefficients != null) {
+                pieces.add(new Piece(a, b, coefficients));
+            } else if (b - a < minWidth || evaluations >= MAX_EVALUATIONS) {
+                addUnresolved(a, b);
+            } else {
+                double middle = 0.5 * (a + b);
+                resolve(a, middle);
+                resolve(middle, b);
+            }
+        }
+
+        private void addUnresolved(double a, double b) {
+            int last = pieces.size() - 1;
+            if (last >= 0 && !pieces.get(last).isResolved()) {
+                pieces.set(last, new Piece(pieces.get(last).lower, b, null));
+            } else {
+                pieces.add(new Piece(a, b, null));
+            }
+        }
+
+        /**
+         * Returns the chopped coefficients on [a, b], null if no size tried resolves the function,
+         * or {@link #UNDEFINED} if the function has no finite value at any of the first points.
+         */
+        private double[] interpolate(double a, double b) {
+            for (int size : SIZES) {
+                int n = size - 1;
+                double[] values = new double[size];
+                int finite = 0;
+                // The tolerance is relative to the piece, lest a nearby pole swamp it
+                double scale = 0;
+                for (int j = 0; j <= n; j++) {
+                    double x = 0.5 * (a + b) + 0.5 * (b - a) * Math.cos(Math.PI * j / n);
+                    values[j] = f.applyAsDouble(x);
+                    if (Double.isFinite(values[j])) {
+                        finite++;
+                        scale = Math.max(scale, Math.abs(values[j]));
+                    }
+                }
+                evaluations += size;
+                if (finite < size) {
+                    // Poles and gaps need a split, not more points
+                    return finite == 0 ? UNDEFINED : null;
+                }
+                double[] coefficients = coefficients(values);
+                int degree = chopped(coefficients, tolerance * scale);
+                // The tail must have been seen to die out, not merely be cut off
+                if (degree <= n - 3) {
+                    return Arrays.copyOf(coefficients, degree + 1);
+                }
+                // Near a pole or kink more points barely help; halving the piece does
+                if (tail(coefficients) > SLOW_DECAY * scale) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the Chebyshev coefficients of the polynomial through the given values at the
+     * points cos(j pi / n), j = 0 .. n, by a direct cosine transform.
+     */
+    private static double[] coefficients(double[] values) {
+        int n = values.length - 1;
+        double[] cosines = new double[2 * n];
+        for (int m = 0; m < 2 * n; m++) {
+            cosines[m] = Math.cos(Math.PI * m / n);
+        }
+        double[] c = new double[n + 1];
+        for (int k = 0; k <= n; k++) {
+            double sum = 0.5 * (values[0] + (k % 2 == 0 ? values[n] : -values[n]));
+            for (int j = 1; j < n; j++) {
+                sum += values[j] * cosines[(j * k) % (2 * n)];
+            }
+            c[k] = 2.0 / n * sum;
+        }
+        c[0] *= 0.5;
+        c[n] *= 0.5;
+        return c;
+    }
+
+    // Bound on the magnitude of a series on its piece
+    private static double magnitude(double[] c) {
+        double sum = 0;
+        for (double coefficient : c) {
+            sum += Math.abs(coefficient);
+        }
+        return sum;
+    }
+
+    // Largest magnitude among the last quarter of the coefficients
+    private static double tail(double[] c) {
+        double max = 0;
+        for (int k = c.length - c.length / 4; k < c.length; k++) {
+            max = Math.max(max, Math.abs(c[k]));
+        }
+        return max;
+    }
+
+    // Index of the last coefficient above the threshold, or 0 if there is none
+    private static int chopped(double[] c, double threshold) {
+        int degree = c.length - 1;
+        while (degree > 0 && !(Math.abs(c[degree]) > threshold)) {
+            degree--;
+        }
+        return degree;
+    }
+
+    // Clenshaw's recurrence for the sum of c[k] T_k(t)
+    private static double clenshaw(double[] c, double t) {
+        double b1 = 0;
+        double b2 = 0;
+        for (int k = c.length - 1; k >= 1; k--) {
+            double b0 = c[k] + 2 * t * b1 - b2;
+            b2 = b1;
+            b1 = b0;
+        }
+        return c[0] + t * b1 - b2;
+    }
+
+    // Coefficients of the derivative with respect to t
+    private static double[] differentiate(double[] c) {
+        int n = c.length - 1;
+        if (n == 0) {
+            return new double[] {0};
+        }
+        double[] d = new double[n];
+        for (int k = n - 1; k >= 0; k--) {
+            d[k] = (k + 2 < n ? d[k + 2] : 0) + 2 * (k + 1) * c[k + 1];
+        }
+        d[0] *= 0.5;
+        return d;
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    /**
+     * Returns true if the parameters the function depends on still have the values the proxy
+     * was built with.
+     */
+    public boolean isCurrent() {
+        for (int i = 0; i < parameters.length; i++) {
+            if (Double.doubleToLongBits(parameters[i].getValue()) != Double.doubleToLongBits(parameterValues[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the whole range is covered by resolved pieces.
+     */
+    public boolean isResolved() {
+        for (Piece piece : pieces) {
+            if (!piece.isResolved()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the stretches, as {lower, upper}, where the proxy defers to the function itself.
+     * Adjacent unresolved pieces are joined into one stretch.
+     */
+    public List<double[]> getUnresolvedRanges() {
+        List<double[]> ranges = new ArrayList<>();
+        for (Piece piece : pieces) {
+            if (!piece.isResolved()) ranges.add(new double[] {piece.lower, piece.upper});
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns the number of pieces, resolved or not.
+     */
+    public int getPieceCount() {
+        return pieces.length;
+    }
+
+    /**
+     * Evaluates the proxy at x. Outside the range and on unresolved pieces this is the
+     * function's own value.
+     */
+    public double evaluate(double x) {
+        Piece piece = pieceAt(x);
+        if (piece == null || !piece.isResolved()) {
+            return function.applyAsDouble(x);
+        }
+        return clenshaw(piece.coefficients, piece.toUnit(x));
+    }
+
+    /**
+     * Evaluates the proxy at every value of xs, writing the results to ys.
+     */
+    public void evaluate(double[] xs, double[] ys) {
+        for (int i = 0; i < xs.length; i++) {
+            ys[i] = evaluate(xs[i]);
+        }
+    }
+
+    private Piece pieceAt(double x) {
+        if (!(x >= lower && x <= upper)) {
+            return null;
+        }
+        int low = 0;
+        int high = pieces.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (pieces[middle].lower <= x) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return pieces[low];
+    }
+
+    /**
+     * Returns the integral of the proxy over its resolved pieces. It is the integral over the
+     * whole range when the proxy {@linkplain #isResolved is resolved}.
+     */
+    public double integral() {
+        double sum = 0;
+        for (Piece piece : pieces) {
+            if (!piece.isResolved()) continue;
+            // The integral of T_k over [-1, 1] is 2 / (1 - k^2) for even k and 0 for odd k
+            double[] c = piece.coefficients;
+            double pieceSum = 0;
+            for (int k = 0; k < c.length; k += 2) {
+                pieceSum += c[k] * 2 / (1 - (double) k * k);
+            }
+            sum += pieceSum * 0.5 * (piece.upper - piece.lower);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the roots on the resolved pieces, in increasing order. A function that is zero on
+     * a whole piece has no isolated roots there and contributes none.
+     */
+    public double[] roots() {
+        double[] result = roots;
+        if (result == null) {
+            List<Double> found = new ArrayList<>();
+            for (Piece piece : pieces) {
+                if (piece.isResolved()) seriesRoots(piece, magnitude(piece.coefficients), found, 0);
+            }
+            roots = result = sortedDistinct(found);
+        }
+        return result.clone();
+    }
+
+    /**
+     * Returns the local maxima on the resolved pieces, in increasing order.
+     */
+    public double[] maxima() {
+        findExtrema();
+        return maxima.clone();
+    }
+
+    /**
+     * Returns the local minima on the resolved pieces, in increasing order.
+     */
+    public double[] minima() {
+        findExtrema();
+        return minima.clone();
+    }
+
+    // Critical points are the roots of the derivative, told apart by the sign of the second
+    private void findExtrema() {
+        if (minima != null) return;
+        List<Double> foundMaxima = new ArrayList<>();
+        List<Double> foundMinima = new ArrayList<>();
+        for (Piece piece : pieces) {
+            if (!piece.isResolved()) continue;
+            double[] first = differentiate(piece.coefficients);
+            double[] second = differentiate(first);
+            List<Double> critical = new ArrayList<>();
+            seriesRoots(new Piece(piece.lower, piece.upper, first), magnitude(first), critical, 0);
+            for (double x : critical) {
+                double curvature = clenshaw(second, piece.toUnit(x));
+                if (curvature < 0) foundMaxima.add(x);
+                if (curvature > 0) foundMinima.add(x);
+            }
+        }
+        maxima = sortedDistinct(foundMaxima);
+        minima = sortedDistinct(foundMinima);
+    }
+
+    /**
+     * Adds the roots of a piece's series to found. Series of high degree are split in half
+     * first, since the halves need fewer coefficients and the eigenvalues cost the cube of the
+     * degree; pieces bounded away from zero are skipped outright.
+     */
+    private void seriesRoots(Piece piece, double scale, List<Double> found, int depth) {
+        double[] c = piece.coefficients;
+        double rest = 0;
+        for (int k = 1; k < c.length; k++) {
+            rest += Math.abs(c[k]);
+        }
+        // |T_k| <= 1 on the piece, so a dominant constant term cannot be cancelled
+        if (Math.abs(c[0]) > rest) {
+            return;
+        }
+        if (c.length - 1 > MAX_COLLEAGUE_DEGREE && depth < MAX_ROOT_SPLITS) {
+            double middle = 0.5 * (piece.lower + piece.upper);
+            seriesRoots(restrict(piece, piece.lower, middle, scale), scale, found, depth + 1);
+            seriesRoots(restrict(piece, middle, piece.upper, scale), scale, found, depth + 1);
+            return;
+        }
+        for (double t : unitRoots(c)) {
+            found.add(polish(piece, c, t));
+        }
+    }
+
+    // The series of a piece re-interpolated on [a, b] and chopped anew, relative to the whole piece's scale
+    private Piece restrict(Piece piece, double a, double b, double scale) {
+        int n = piece.coefficients.length - 1;
+        double[] values = new double[n + 1];
+        for (int j = 0; j <= n; j++) {
+            double x = 0.5 * (a + b) + 0.5 * (b - a) * Math.cos(Math.PI * j / n);
+            values[j] = clenshaw(piece.coefficients, piece.toUnit(x));
+        }
+        double[] coefficients = coefficients(values);
+        return new Piece(a, b, Arrays.copyOf(coefficients, chopped(coefficients, tolerance * scale) + 1));
+    }
+
+    // Newton steps on the series, kept only while they reduce the residual and stay on the piece
+    private static double polish(Piece piece, double[] c, double t) {
+        double[] d = differentiate(c);
+        double residual = Math.abs(clenshaw(c, t));
+        for (int i = 0; i < 3 && residual > 0; i++) {
+            double slope = clenshaw(d, t);
+            if (slope == 0) break;
+            double next = t - clenshaw(c, t) / slope;
+            double nextResidual = Math.abs(clenshaw(c, next));
+            if (!(next >= -1 && next <= 1 && nextResidual < residual)) break;
+            t = next;
+            residual = nextResidual;
+        }
+        return piece.fromUnit(t);
+    }
+
+    private double[] sortedDistinct(List<Double> values) {
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        // Roots on a shared end point are found by both pieces, and double roots come in pairs
+        double tolerance = 1e-7 * (upper - lower);
+        int count = 0;
+        for (double value : sorted) {
+            if (count == 0 || value - sorted[count - 1] > tolerance) {
+                sorted[count++] = value;
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Returns the real roots in [-1, 1] of the sum of c[k] T_k(t): the real eigenvalues of its
+     * colleague matrix, or sign changes on a fine grid should the eigenvalues fail to converge.
+     */
+    private static double[] unitRoots(double[] c) {
+        int n = c.length - 1;
+        while (n > 0 && c[n] == 0) n--;
+        if (n == 0) {
+            return new double[0];
+        }
+        if (n == 1) {
+            double t = -c[0] / c[1];
+            return t >= -1 && t <= 1 ? new double[] {t} : new double[0];
+        }
+        double[][] matrix = colleague(c, n);
+        double[] real = new double[n + 1];
+        double[] imaginary = new double[n + 1];
+        if (!eigenvalues(matrix, n, real, imaginary)) {
+            return gridRoots(c, n);
+        }
+        List<Double> roots = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            if (Math.abs(imaginary[i]) <= IMAGINARY_TOLERANCE && Math.abs(real[i]) <= 1 + IMAGINARY_TOLERANCE) {
+                roots.add(Math.max(-1, Math.min(1, real[i])));
+            }
+        }
+        return roots.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Returns the transpose of the colleague matrix of a degree n Chebyshev series, 1-based.
+     * It follows from t T_0 = T_1 and t T_k = (T_{k+1} + T_{k-1}) / 2, with T_n eliminated
+     * using the series itself; the transpose is upper Hessenberg, as the QR iteration needs.
+     */
+    private static double[][] colleague(double[] c, int n) {
+        double[][] a = new double[n + 1][n + 1];
+        a[2][1] = 1;
+        for (int i = 2; i < n; i++) {
+            a[i - 1][i] = 0.5;
+            a[i + 1][i] = 0.5;
+        }
+        a[n - 1][n] += 0.5;
+        for (int k = 0; k < n; k++) {
+            a[k + 1][n] -= c[k] / (2 * c[n]);
+        }
+        return a;
+    }
+
+    // Sign changes of the series on a grid, refined by bisection
+    private static double[] gridRoots(double[] c, int n) {
+        int cells = 8 * n;
+        List<Double> roots = new ArrayList<>();
+        double previousT = -1;
+        double previous = clenshaw(c, previousT);
+        for (int i = 1; i <= cells; i++) {
+            double t = -1 + 2.0 * i / cells;
+            double value = clenshaw(c, t);
+            if (previous == 0) {
+                roots.add(previousT);
+            } else if (Math.signum(previous) * Math.signum(value) < 0) {
+                double a = previousT;
+                double b = t;
+                for (int k = 0; k < 60; k++) {
+                    double middle = 0.5 * (a + b);
+                    if (Math.signum(clenshaw(c, middle)) == Math.signum(previous)) {
+                        a = middle;
+                    } else {
+                        b = middle;
+                    }
+                }
+                roots.add(0.5 * (a + b));
+            }
+            previousT = t;
+            previous = value;
+        }
+        if (previous == 0) roots.add(1.0);
+        return roots.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Computes the eigenvalues of the 1-based upper Hessenberg matrix a, which is overwritten,
+     * by balancing followed by the shifted QR iteration (after Numerical Recipes' balanc and hqr).
+     * @return false if an eigenvalue failed to converge
+     */
+    private static boolean eigenvalues(double[][] a, int n, double[] wr, double[] wi) {
+        balance(a, n);
+        double anorm = 0;
+        for (int i = 1; i <= n; i++) {
+            for (int j = Math.max(i - 1, 1); j <= n; j++) {
+                anorm += Math.abs(a[i][j]);
+            }
+        }
+        int nn = n;
+        double t = 0;
+        double p = 0, q = 0, r = 0, s, w, x, y, z = 0;
+        while (nn >= 1) {
+            int its = 0;
+            int l;
+            do {
+                for (l = nn; l >= 2; l--) {
+                    s = Math.abs(a[l - 1][l - 1]) + Math.abs(a[l][l]);
+                    if (s == 0) s = anorm;
+                    if (Math.abs(a[l][l - 1]) + s == s) {
+                        a[l][l - 1] = 0;
+                        break;
+                    }
+                }
+                x = a[nn][nn];
+                if (l == nn) {
+                    // One root found
+                    wr[nn] = x + t;
+                    wi[nn--] = 0;
+                } else {
+                    y = a[nn - 1][nn - 1];
+                    w = a[nn][nn - 1] * a[nn - 1][nn];
+                    if (l == nn - 1) {
+                        // Two roots found
+                        p = 0.5 * (y - x);
+                        q = p * p + w;
+                        z = Math.sqrt(Math.abs(q));
+                        x += t;
+                        if (q >= 0) {
+                            z = p + Math.copySign(z, p);
+                            wr[nn - 1] = wr[nn] = x + z;
+                            if (z != 0) wr[nn] = x - w / z;
+                            wi[nn - 1] = wi[nn] = 0;
+                        } else {
+                            wr[nn - 1] = wr[nn] = x + p;
+                            wi[nn - 1] = -(wi[nn] = z);
+                        }
+                        nn -= 2;
+                    } else {
+                        if (its == MAX_QR_ITERATIONS) {
+                            return false;
+                        }
+                        if (its == 10 || its == 20) {
+                            // Exceptional shift
+                            t += x;
+                            for (int i = 1; i <= nn; i++) a[i][i] -= x;
+                            s = Math.abs(a[nn][nn - 1]) + Math.abs(a[nn - 1][nn - 2]);
+                            y = x = 0.75 * s;
+                            w = -0.4375 * s * s;
+                        }
+                        ++its;
+                        int m;
+                        for (m = nn - 2; m >= l; m--) {
+                            z = a[m][m];
+                            r = x - z;
+                            s = y - z;
+                            p = (r * s - w) / a[m + 1][m] + a[m][m + 1];
+                            q = a[m + 1][m + 1] - z - r - s;
+                            r = a[m + 2][m + 1];
+                            s = Math.abs(p) + Math.abs(q) + Math.abs(r);
+                            p /= s;
+                            q /= s;
+                            r /= s;
+                            if (m == l) break;
+                            double u = Math.abs(a[m][m - 1]) * (Math.abs(q) + Math.abs(r));
+                            double v = Math.abs(p) * (Math.abs(a[m - 1][m - 1]) + Math.abs(z) + Math.abs(a[m + 1][m + 1]));
+                            if (u + v == v) break;
+                        }
+                        for (int i = m + 2; i <= nn; i++) {
+                            a[i][i - 2] = 0;
+                            if (i != m + 2) a[i][i - 3] = 0;
+                        }
+                        for (int k = m; k <= nn - 1; k++) {
+                            if (k != m) {
+                                p = a[k][k - 1];
+                                q = a[k + 1][k - 1];
+                                r = 0;
+                                if (k != nn - 1) r = a[k + 2][k - 1];
+                                if ((x = Math.abs(p) + Math.abs(q) + Math.abs(r)) != 0) {
+                                    p /= x;
+                                    q /= x;
+                                    r /= x;
+                                }
+                            }
+                            if ((s = Math.copySign(Math.sqrt(p * p + q * q + r * r), p)) != 0) {
+                                if (k == m) {
+                                    if (l != m) a[k][k - 1] = -a[k][k - 1];
+                                } else {
+                                    a[k][k - 1] = -s * x;
+                                }
+                                p += s;
+                                x = p / s;
+                                y = q / s;
+                                z = r / s;
+                                q /= p;
+                                r /= p;
+                                for (int j = k; j <= nn; j++) {
+                                    p = a[k][j] + q * a[k + 1][j];
+                                    if (k != nn - 1) {
+                                        p += r * a[k + 2][j];
+                                        a[k + 2][j] -= p * z;
+                                    }
+                                    a[k + 1][j] -= p * y;
+                                    a[k][j] -= p * x;
+                                }
+                                int mmin = Math.min(nn, k + 3);
+                                for (int i = l; i <= mmin; i++) {
+                                    p = x * a[i][k] + y * a[i][k + 1];
+                                    if (k != nn - 1) {
+                                        p += z * a[i][k + 2];
+                                        a[i][k + 2] -= p * r;
+                                    }
+                                    a[i][k + 1] -= p * q;
+                                    a[i][k] -= p;
+                                }
+                            }
+                        }
+                    }
+                }
+            } while (l < nn - 1);
+        }
+        return true;
+    }
+
+    // Diagonal similarity by powers of two making row and column norms comparable
+    private static void balance(double[][] a, int n) {
+        boolean done = false;
+        while (!done) {
+            done = true;
+            for (int i = 1; i <= n; i++) {
+                double r = 0;
+                double c = 0;
+                for (int j = 1; j <= n; j++) {
+                    if (j != i) {
+                        c += Math.abs(a[j][i]);
+                        r += Math.abs(a[i][j]);
+                    }
+                }
+                if (c != 0 && r != 0) {
+                    double g = r / 2;
+                    double f = 1;
+                    double s = c + r;
+                    while (c < g) {
+                        f *= 2;
+                        c *= 4;
+                    }
+                    g = r * 2;
+                    while (c > g) {
+                        f /= 2;
+                        c /= 4;
+                    }
+                    if ((c + r) / f < 0.95 * s) {
+                        done = false;
+                        g = 1 / f;
+                        for (int j = 1; j <= n; j++) a[i][j] *= g;
+                        for (int j = 1; j <= n; j++) a[j][i] *= f;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if evaluating the proxy is likely to be cheaper than evaluating f directly,
+     * judging by a rough count of operations: a coefficient of the proxy against an elementary
+     * function or an arithmetic operation of f's tree.
+     */
+    public boolean isCheaperThan(Function f) {
+        double direct;
+        if (f.getExpressionTree() == null) {
+            // Custom evaluators are typically a difference quotient of another function
+            direct = Double.POSITIVE_INFINITY;
+        } else if (f.getRationalForm() != null) {
+            return false;
+        } else {
+            direct = cost(f.getExpressionTree());
+        }
+        double proxy = 0;
+        for (Piece piece : pieces) {
+            double share = (piece.upper - piece.lower) / (upper - lower);
+            proxy += share * (piece.isResolved() ? piece.coefficients.length : direct);
+        }
+        return proxy < direct;
+    }
+
+    // Cost in units of one step of Clenshaw's recurrence
+    private static double cost(Expression tree) {
+        double cost = 1;
+        for (Expression node : CommonSubexpressions.nodes(tree)) {
+            if (node instanceof FunctionCall || node instanceof BinaryFunctionCall
+                    || (node instanceof BinaryOperation
+                        && ((BinaryOperation) node).getOperator() == BinaryOperation.Operator.POWER)) {
+                cost += 8;
+            } else {
+                cost += 0.25;
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mathplotter.utils;
+
+import com.mathplotter.exceptions.MathParsingException;
+import com.mathplotter.expression.CommonSubexpressions;
+import com.mathplotter.expression.ExpressionProgram;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of parsed expression programs, shared by all functions.
+ * Entries are keyed by the expression text with whitespace removed, so "sin(x) + 1" and
+ * "sin(x)+1" share one parse and, once either becomes hot, one compiled class. The least
+ * recently used entry is evicted when the cache is full. The capacity comes from the
+ * {@code mathplotter.cache.size} system property (default 256).
+ */
+public final class ExpressionCache {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final ExpressionCache shared =
+            new ExpressionCache(Integer.getInteger("mathplotter.cache.size", DEFAULT_CAPACITY));
+
+    private final int capacity;
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by this
+    private final Map<String, ExpressionProgram> programs;
+    private long hits;
+    private long misses;
+
+    public ExpressionCache(int capacity) {
+        this.capacity = capacity;
+        this.programs = new LinkedHashMap<String, ExpressionProgram>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ExpressionProgram> eldest) {
+                return size() > ExpressionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache used by {@link com.mathplotter.model.Function}.
+     */
+    public static ExpressionCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Returns the program for the given expression, parsing it on a miss.
+     * @param expression The expression text
+     * @param eliminateCommonSubexpressions Whether the program's tree has common subexpressions merged
+     * @throws MathParsingException If the expression is invalid; failures are not cached
+     */
+    public synchronized ExpressionProgram get(String expression, boolean eliminateCommonSubexpressions)
+            throws MathParsingException {
+        String normalized = normalize(expression);
+        // Newlines cannot occur in normalized text, so the two variants never collide
+        String key = eliminateCommonSubexpressions ? normalized + "\ncse" : normalized;
+        ExpressionProgram program = programs.get(key);
+        if (program != null) {
+            hits++;
+            return program;
+        }
+        misses++;
+        MathParser parser = new MathParser(normalized);
+        program = new ExpressionProgram(eliminateCommonSubexpressions
+                ? CommonSubexpressions.eliminate(parser.getTree()) : parser.getTree());
+        programs.put(key, program);
+        return program;
+    }
+
+    /**
+     * Returns the expression text with all whitespace removed.
+     */
+    public static String normalize(String expression) {
+        return expression.replaceAll("\\s+", "");
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return programs.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        programs.clear();
+    }
+}
@@ -0,0 +1,135 @@
+package com.mathplotter.utils;
+
+import com.mathplotter.expression.BatchEvaluators;
+import com.mathplotter.expression.CommonSubexpressions;
+import com.mathplotter.expression.Expression;
+import com.mathplotter.expression.SharedSubexpressionEvaluator;
+import com.mathplotter.model.Function;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates a set of functions together at the same x values.
+ * Subexpressions are merged across all the functions, so curves such as sin(x), sin(x)+1,
+ * 2*sin(x) and the derivative cos(x)*... compute sin(x) once per column rather than once per
+ * curve. Functions that have nothing to share, or are better served on their own (rational
+ * functions, custom evaluators and functions already compiled), keep their individual
+ * evaluation. Fused evaluations count toward each function's promotion to compiled code.
+ * Instances are immutable; build a new one when {@link #isFor} says so.
+ */
+public final class FusedEvaluator {
+
+    private final List<Function> functions;
+    private final boolean approximate;
+    // Indexes into functions of the fused ones, and their merged trees
+    private final List<Integer> fusedIndexes = new ArrayList<>();
+    private final List<Expression> fusedTrees;
+    private final SharedSubexpressionEvaluator fusedEvaluator;
+
+    /**
+     * @param approximate Whether to evaluate with approximate elementary functions, as
+     *        {@link Function#evaluateForDisplay} does; only for sampling that is drawn
+     */
+    public FusedEvaluator(List<Function> functions, boolean approximate) {
+        this.functions = new ArrayList<>(functions);
+        // The vector evaluator has fast elementary functions of its own
+        this.approximate = approximate && !BatchEvaluators.isVectorEnabled();
+        List<Expression> trees = new ArrayList<>();
+        for (int i = 0; i < this.functions.size(); i++) {
+            Function f = this.functions.get(i);
+            Expression tree = f.getExpressionTree() == null || f.getRationalForm() != null || isCompiled(f)
+                    ? null : this.approximate ? f.getDisplayTree() : f.getExpressionTree();
+            if (tree != null) {
+                fusedIndexes.add(i);
+                trees.add(tree);
+            }
+        }
+        List<Expression> merged = CommonSubexpressions.eliminate(trees);
+        // Only functions that share a node with another one gain from joining in
+        Map<Expression, Integer> owners = new IdentityHashMap<>();
+        List<Set<Expression>> nodeSets = new ArrayList<>();
+        for (Expression tree : merged) {
+            Set<Expression> nodes = CommonSubexpressions.nodes(tree);
+            nodeSets.add(nodes);
+            for (Expression node : nodes) owners.merge(node, 1, Integer::sum);
+        }
+        List<Integer> indexes = new ArrayList<>();
+        List<Expression> fused = new ArrayList<>();
+        for (int i = 0; i < merged.size(); i++) {
+            for (Expression node : nodeSets.get(i)) {
+                if (owners.get(node) > 1) {
+                    indexes.add(fusedIndexes.get(i));
+                    fused.add(merged.get(i));
+                    break;
+                }
+            }
+        }
+        fusedIndexes.clear();
+        fusedIndexes.addAll(indexes);
+        this.fusedTrees = fused;
+        this.fusedEvaluator = new SharedSubexpressionEvaluator(fused);
+    }
+
+    // Compiled code beats the interpreter even with the work shared, except that the vector
+    // evaluator runs compiled functions on their trees too
+    private static boolean isCompiled(Function f) {
+        return f.getTier() == Function.Tier.COMPILED && !BatchEvaluators.isVectorEnabled();
+    }
+
+    /**
+     * Returns true if this evaluator was built for exactly these functions, in this order,
+     * and in the same mode, and none of the fused ones has been compiled since.
+     */
+    public boolean isFor(List<Function> functions, boolean approximate) {
+        if (functions.size() != this.functions.size()
+                || (approximate && !BatchEvaluators.isVectorEnabled()) != this.approximate) {
+            return false;
+        }
+        for (int i = 0; i < functions.size(); i++) {
+            if (functions.get(i) != this.functions.get(i)) return false;
+        }
+        for (int index : fusedIndexes) {
+            if (isCompiled(this.functions.get(index))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if any functions are actually evaluated together.
+     */
+    public boolean isFused() {
+        return !fusedTrees.isEmpty();
+    }
+
+    /**
+     * Evaluates every function at every value of xs.
+     * @return One array of values per function, in the order the functions were given
+     */
+    public double[][] evaluate(double[] xs) {
+        double[][] ys = new double[functions.size()][];
+        double[][] fusedYs = new double[fusedTrees.size()][];
+        for (int i = 0; i < fusedYs.length; i++) {
+            fusedYs[i] = ys[fusedIndexes.get(i)] = new double[xs.length];
+        }
+        if (fusedYs.length > 0) {
+            fusedEvaluator.evaluate(xs, fusedYs, xs.length);
+            for (int index : fusedIndexes) {
+                functions.get(index).countEvaluations(xs.length);
+            }
+        }
+        for (int i = 0; i < ys.length; i++) {
+            if (ys[i] != null) continue;
+            ys[i] = new double[xs.length];
+            Function f = functions.get(i);
+            if (approximate) {
+                f.evaluateForDisplay(xs, ys[i]);
+            } else {
+                f.evaluate(xs, ys[i]);
+            }
+        }
+        return ys;
+    }
+}
@@ -1,46 +1,65 @@
 package com.mathplotter.utils;
 
 import com.mathplotter.exceptions.MathParsingException;
+import com.mathplotter.expression.BinaryFunction;
+import com.mathplotter.expression.BinaryFunctionCall;
+import com.mathplotter.expression.BinaryOperation;
+import com.mathplotter.expression.BinaryOperation.Operator;
+import com.mathplotter.expression.Constant;
+import com.mathplotter.expression.Expression;
+import com.mathplotter.expression.FunctionCall;
+import com.mathplotter.expression.FunctionRegistry;
+import com.mathplotter.expression.Negation;
+import com.mathplotter.expression.Parameter;
+import com.mathplotter.expression.Parameters;
+import com.mathplotter.expression.Simplifier;
+import com.mathplotter.expression.UnaryFunction;
+import com.mathplotter.expression.Variable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
+/**
+ * Recursive-descent parser for function expressions.
+ * The expression is parsed once, in the constructor, into an immutable {@link Expression}
+ * tree, which is then simplified; evaluation only walks that tree.
+ * The cursor fields are used by the constructor alone, so a constructed parser is effectively
+ * immutable and {@link #evaluate} may be called from any number of threads.
+ */
 public class MathParser {
 
     private final String expression;
+    private final Expression tree;
     private int pos = -1, ch;
-
-    private final Map<String, Double> variables = new HashMap<>();
-    private final Map<String, Function<Double, Double>> functions = new HashMap<>();
-
-    public MathParser(String expression) {
-        this.expression = expression.replaceAll("\\s+", "");
-        addDefaultFunctions();
-        variables.put("pi", Math.PI);
-        variables.put("e", Math.E);
+    // The parameters the expression refers to, by name
+    private final Map<String, Parameter> referenced = new HashMap<>();
+
+    // Named constants; functions come from the shared FunctionRegistry
+    private static final Map<String, Double> CONSTANTS;
+    static {
+        Map<String, Double> constants = new HashMap<>();
+        constants.put("pi", Math.PI);
+        constants.put("e", Math.E);
+        CONSTANTS = Collections.unmodifiableMap(constants);
     }
 
-    private void addDefaultFunctions() {
-        functions.put("sin", Math::sin);
-        functions.put("cos", Math::cos);
-        functions.put("tan", Math::tan);
-        functions.put("sqrt", Math::sqrt);
-        functions.put("abs", Math::abs);
-        functions.put("log", Math::log);
-        functions.put("log10", Math::log10);
-        functions.put("exp", Math::exp);
-        functions.put("asin", Math::asin);
-        functions.put("acos", Math::acos);
-        functions.put("atan", Math::atan);
-        functions.put("ceil", Math::ceil);
-        functions.put("floor", Math::floor);
+    public MathParser(String expression) throws MathParsingException {
+        this.expression = expression.replaceAll("\\s+", "");
+        // Parameters first used here are only registered once the whole expression has parsed,
+        // so that a typo leaves no slot behind. Should one be registered meanwhile, parsing
+        // again binds to it
+        Expression parsed = parse();
+        while (!Parameters.register(referenced.values())) {
+            parsed = parse();
+        }
+        this.tree = Simplifier.simplify(parsed);
     }
 
-    void nextChar() {
+    private void nextChar() {
         ch = (++pos < expression.length()) ? expression.charAt(pos) : -1;
     }
 
-    boolean eat(int charToEat) {
+    private boolean eat(int charToEat) {
         // No need to skip spaces here anymore
         if (ch == charToEat) {
             nextChar();
@@ -49,81 +68,118 @@ public class MathParser {
         return false;
     }
 
-    public double evaluate(double xValue) throws MathParsingException {
-        variables.put("x", xValue);
+    private Expression parse() throws MathParsingException {
+        referenced.clear();
         pos = -1;
         nextChar();
-        double result = parseExpression();
+        Expression result = parseExpression();
         if (pos < expression.length()) {
             throw new MathParsingException("Unexpected: " + (char) ch);
         }
         return result;
     }
 
+    private static boolean isFunction(String name) {
+        return FunctionRegistry.unary(name) != null || FunctionRegistry.binary(name) != null;
+    }
+
+    /**
+     * Returns the parsed expression tree.
+     */
+    public Expression getTree() {
+        return tree;
+    }
+
+    public double evaluate(double xValue) {
+        return tree.evaluate(xValue);
+    }
+
     // Grammar:
     // expression = term | expression `+` term | expression `-` term
     // term = factor | term `*` factor | term `/` factor
-    // factor = `+` factor | `-` factor | `(` expression `)` | number
+    // factor = `+` factor | `-` factor | `(` expression `)` | number | `x` | constant | parameter
     //        | functionName factor | factor `^` factor
 
-    double parseExpression() throws MathParsingException {
-        double x = parseTerm();
+    private Expression parseExpression() throws MathParsingException {
+        Expression x = parseTerm();
         for (;;) {
-            if (eat('+')) x += parseTerm(); // addition
-            else if (eat('-')) x -= parseTerm(); // subtraction
+            if (eat('+')) x = new BinaryOperation(Operator.ADD, x, parseTerm()); // addition
+            else if (eat('-')) x = new BinaryOperation(Operator.SUBTRACT, x, parseTerm()); // subtraction
             else return x;
         }
     }
 
-    double parseTerm() throws MathParsingException {
-        double x = parseFactor();
+    private Expression parseTerm() throws MathParsingException {
+        Expression x = parseFactor();
         for (;;) {
-            if (eat('*')) x *= parseFactor(); // multiplication
-            else if (eat('/')) x /= parseFactor(); // division
+            if (eat('*')) x = new BinaryOperation(Operator.MULTIPLY, x, parseFactor()); // multiplication
+            else if (eat('/')) x = new BinaryOperation(Operator.DIVIDE, x, parseFactor()); // division
             else return x;
         }
     }
 
-    double parseFactor() throws MathParsingException {
+    private Expression parseFactor() throws MathParsingException {
         if (eat('+')) return parseFactor(); // unary plus
-        if (eat('-')) return -parseFactor(); // unary minus
+        if (eat('-')) return new Negation(parseFactor()); // unary minus
 
-        double x;
+        Expression x;
         int startPos = this.pos;
         if (eat('(')) { // parentheses
             x = parseExpression();
             if (!eat(')')) throw new MathParsingException("Missing ')'");
         } else if ((ch >= '0' && ch <= '9') || ch == '.') { // numbers
             while ((ch >= '0' && ch <= '9') || ch == '.') nextChar();
-            x = Double.parseDouble(expression.substring(startPos, this.pos));
+            String number = expression.substring(startPos, this.pos);
+            try {
+                x = new Constant(Double.parseDouble(number));
+            } catch (NumberFormatException e) {
+                throw new MathParsingException("Invalid number: " + number);
+            }
         } else if (ch >= 'a' && ch <= 'z') { // functions & variables
             while (ch >= 'a' && ch <= 'z') nextChar();
+            int lettersEnd = this.pos;
+            while ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')) nextChar();
+            // Names with digits such as atan2 or log10 need parentheses; otherwise sin2 is sin(2)
+            if (ch != '(' || !isFunction(expression.substring(startPos, this.pos))) {
+                this.pos = lettersEnd - 1;
+                nextChar();
+            }
             String funcOrVar = expression.substring(startPos, this.pos);
-            if (variables.containsKey(funcOrVar)) {
-                x = variables.get(funcOrVar);
-            } else if (functions.containsKey(funcOrVar)) {
+            UnaryFunction unary = FunctionRegistry.unary(funcOrVar);
+            BinaryFunction binary = FunctionRegistry.binary(funcOrVar);
+            if (funcOrVar.equals("x")) {
+                x = Variable.X;
+            } else if (CONSTANTS.containsKey(funcOrVar)) {
+                x = new Constant(CONSTANTS.get(funcOrVar));
+            } else if (unary != null || binary != null) {
                 // Check for function arguments in parentheses
                 if (eat('(')) {
-                    double arg1 = parseExpression();
+                    Expression arg1 = parseExpression();
                     if (eat(',')) {
                         // Function with two arguments
-                        double arg2 = parseExpression();
+                        Expression arg2 = parseExpression();
                         if (!eat(')')) throw new MathParsingException("Missing ')' after function arguments");
-                        if (funcOrVar.equals("log")) {
-                            // log(base, x) = Math.log(x) / Math.log(base)
-                            x = Math.log(arg2) / Math.log(arg1);
-                        } else {
+                        if (binary == null) {
                             throw new MathParsingException("Function '" + funcOrVar + "' does not support two arguments");
                         }
+                        x = new BinaryFunctionCall(binary, arg1, arg2);
                     } else {
                         if (!eat(')')) throw new MathParsingException("Missing ')' after function argument");
+                        if (unary == null) {
+                            throw new MathParsingException("Function '" + funcOrVar + "' requires two arguments");
+                        }
                         // Single-argument function
-                        x = functions.get(funcOrVar).apply(arg1);
+                        x = new FunctionCall(unary, arg1);
                     }
+                } else if (unary != null) {
+                    // Function without parentheses, e.g., sin2
+                    x = new FunctionCall(unary, parseFactor());
                 } else {
-                    // Function without parentheses, e.g., sinx
-                    x = functions.get(funcOrVar).apply(parseFactor());
+                    throw new MathParsingException("Missing '(' after function '" + funcOrVar + "'");
                 }
+            } else if (Parameters.isValidName(funcOrVar)) {
+                // Free parameter such as a in a*sin(x), bound to a shared slot
+                x = referenced.computeIfAbsent(funcOrVar, Parameters::lookup);
             } else {
                 throw new MathParsingException("Unknown function or variable: " + funcOrVar);
             }
@@ -131,8 +187,8 @@ public class MathParser {
             throw new MathParsingException("Unexpected: " + (char)ch);
         }
 
-        if (eat('^')) x = Math.pow(x, parseFactor()); // exponentiation
+        if (eat('^')) x = new BinaryOperation(Operator.POWER, x, parseFactor()); // exponentiation
 
         return x;
     }
-} 
\ No newline at end of file
+}
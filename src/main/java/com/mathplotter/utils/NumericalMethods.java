@@ -1,73 +1,106 @@
 package com.mathplotter.utils;
 
-import com.mathplotter.exceptions.MathParsingException;
+import com.mathplotter.expression.Differentiator;
+import com.mathplotter.expression.DualNumberEvaluator;
+import com.mathplotter.expression.Expression;
+import com.mathplotter.expression.Interval;
+import com.mathplotter.expression.IntervalEvaluator;
+import com.mathplotter.expression.RationalFunction;
 import com.mathplotter.model.Function;
 import com.mathplotter.model.Point;
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.awt.geom.Point2D;
 
 public class NumericalMethods {
 
     private static final double DERIVATIVE_H = 1e-7;
+    // Stretches of the sampling grid at most this many cells wide are sampled rather than bisected
+    private static final int LEAF_CELLS = 32;
+    private static final Comparator<Point> BY_X = Comparator.comparingDouble(Point::getX);
 
     /**
      * Finds intersection points between two functions in the specified range.
-     * Uses a step-based approach to detect where the difference between the functions
-     * between the two functions, which indicates an intersection.
+     * The intersections are the roots of a {@link ChebyshevProxy} of the difference between
+     * the functions. Where the proxy cannot resolve the difference, a step-based approach
+     * detects where the difference changes sign, skipping stretches where interval
+     * arithmetic proves the curves apart.
      */
     public static List<Point> findIntersections(Function f1, Function f2, double xMin, double xMax) {
         List<Point> intersections = new ArrayList<>();
+        if (!(xMax > xMin)) {
+            return intersections;
+        }
         // Define the step size for iteration. A smaller step increases accuracy but reduces performance.
         double step = (xMax - xMin) / 20000.0; 
 
-        try {
-            double prevDiff = f1.evaluate(xMin) - f2.evaluate(xMin);
+        double tolerance = f1.getExpressionTree() != null && f2.getExpressionTree() != null
+                ? ChebyshevProxy.EXACT_TOLERANCE : ChebyshevProxy.NOISY_TOLERANCE;
+        ChebyshevProxy difference = ChebyshevProxy.build(x -> f1.evaluate(x) - f2.evaluate(x),
+                xMin, xMax, tolerance, Collections.emptySet());
+        for (double x : difference.roots()) {
+            intersections.add(new Point(x, f1.evaluate(x)));
+        }
+        for (double[] range : difference.getUnresolvedRanges()) {
+            sampleIntersections(f1, f2, grid(range[0], range[1], step), intersections);
+        }
+        intersections.sort(BY_X);
+        return intersections;
+    }
 
-            for (double x = xMin + step; x <= xMax; x += step) {
-                double currentDiff = f1.evaluate(x) - f2.evaluate(x);
+    private static void sampleIntersections(Function f1, Function f2, double[] xs, List<Point> intersections) {
+        BitSet cells = f2.getExpressionTree() != null
+                ? cellsWithPossibleZero(f1.getExpressionTree(), f2.getExpressionTree(), xs) : allCells(xs);
+        for (int[] run : runs(cells)) {
+            double[] part = Arrays.copyOfRange(xs, run[0], run[1] + 1);
+            double[] ys1 = evaluate(f1, part);
+            double[] ys2 = evaluate(f2, part);
+            for (int i = 1; i < part.length; i++) {
+                double prevDiff = ys1[i - 1] - ys2[i - 1];
+                double currentDiff = ys1[i] - ys2[i];
                 // If the sign of the difference has changed, an intersection has occurred.
-                if (Math.signum(prevDiff) != Math.signum(currentDiff)) {
+                if (signChanges(prevDiff, currentDiff)) {
                     // Approximate the y-value at the intersection point.
-                    double y = f1.evaluate(x);
-                    intersections.add(new Point(x, y));
+                    intersections.add(new Point(part[i], ys1[i]));
                 }
-                prevDiff = currentDiff;
             }
-        } catch (MathParsingException e) {
-            // Handle parsing errors silently
         }
-        return intersections;
     }
 
     /**
-     * Calculates the definite integral of a function using Simpson's rule.
+     * Calculates the definite integral of a function. Functions that a {@link ChebyshevProxy}
+     * resolves over the whole range are integrated exactly on the proxy, which amounts to
+     * Clenshaw-Curtis quadrature; others, such as those with a pole in range, by Simpson's rule.
      * @param f The function to integrate
      * @param start The lower bound of integration
      * @param end The upper bound of integration
-     * @param n The number of subintervals (must be even)
+     * @param n The number of subintervals for Simpson's rule (must be even)
      * @return The approximate value of the definite integral
      */
     public static double integrate(Function f, double start, double end, int n) {
-        double h = (end - start) / n;
-        double sum = 0;
-        try {
-            sum = f.evaluate(start) + f.evaluate(end);
-
-            // Summation of terms with coefficient 4
-            for (int i = 1; i < n; i++) {
-                double x = start + i * h;
-                sum += 4 * f.evaluate(x);
+        if (start != end && Double.isFinite(end - start)) {
+            ChebyshevProxy proxy = f.getProxy(Math.min(start, end), Math.max(start, end));
+            if (proxy.isResolved()) {
+                return start < end ? proxy.integral() : -proxy.integral();
             }
+        }
+        double h = (end - start) / n;
+        double[] xs = new double[n + 1];
+        for (int i = 0; i <= n; i++) {
+            xs[i] = start + i * h;
+        }
+        xs[n] = end;
+        double[] ys = evaluate(f, xs);
 
-            // Summation of terms with coefficient 2
-            for (int i = 1; i < n - 1; i++) {
-                double x = start + i * h;
-                sum += 2 * f.evaluate(x);
-            }
-        } catch (MathParsingException e) {
-            return 0.0;
+        double sum = ys[0] + ys[n];
+        for (int i = 1; i < n; i++) {
+            // Odd nodes have coefficient 4, even interior nodes coefficient 2
+            sum += (i % 2 == 1 ? 4 : 2) * ys[i];
         }
 
         return sum * h / 3;
@@ -82,26 +115,33 @@ public class NumericalMethods {
      */
     public static double derivative(Function f, double x) {
         double h = 1e-6; // Small step size for numerical differentiation
-        try {
-            return (f.evaluate(x + h) - f.evaluate(x - h)) / (2 * h);
-        } catch (MathParsingException e) {
-            return 0.0;
-        }
+        return (f.evaluate(x + h) - f.evaluate(x - h)) / (2 * h);
     }
 
     /**
      * Creates a new Function object representing the derivative of the given function.
+     * The derivative is taken symbolically when possible, so repeated derivatives stay exact
+     * and cost about as much as the original function; otherwise it falls back to
+     * central differences.
      * @param f The original function
      * @return A new Function object representing the derivative
      */
     public static Function derivative(Function f) {
-        return Function.createDerivative("d/dx(" + f.getExpression() + ")", f.getColor(), x -> {
-            try {
-                return derivative(f, x);
-            } catch (Exception e) {
-                return 0.0;
-            }
-        });
+        String expression = "d/dx(" + f.getExpression() + ")";
+        Expression symbolic = symbolicDerivative(f);
+        if (symbolic != null) {
+            return Function.createDerivative(expression, f.getColor(), symbolic);
+        }
+        return Function.createDerivative(expression, f.getColor(), x -> derivative(f, x));
+    }
+
+    // Returns the symbolic derivative of f, or null if f has no tree or calls a function with no known derivative
+    private static Expression symbolicDerivative(Function f) {
+        return symbolicDerivative(f.getExpressionTree());
+    }
+
+    private static Expression symbolicDerivative(Expression tree) {
+        return tree != null ? Differentiator.differentiate(tree) : null;
     }
 
     /**
@@ -109,21 +149,7 @@ public class NumericalMethods {
      * A local maximum occurs where the first derivative changes from positive to negative.
      */
     public static List<Point> findLocalMaxima(Function f, double xMin, double xMax) {
-        List<Point> maxima = new ArrayList<>();
-        double step = (xMax - xMin) / 10000.0;
-        
-        for (double x = xMin; x < xMax; x += step) {
-            try {
-                double prevSlope = derivative(f, x - step);
-                double currentSlope = derivative(f, x);
-                if (prevSlope > 0 && currentSlope < 0) {
-                    maxima.add(new Point(x, f.evaluate(x)));
-                }
-            } catch (MathParsingException e) {
-                // Skip points that can't be evaluated
-            }
-        }
-        return maxima;
+        return findLocalExtrema(f, xMin, xMax, true);
     }
 
     /**
@@ -131,21 +157,7 @@ public class NumericalMethods {
      * A local minimum occurs where the first derivative changes from negative to positive.
      */
     public static List<Point> findLocalMinima(Function f, double xMin, double xMax) {
-        List<Point> minima = new ArrayList<>();
-        double step = (xMax - xMin) / 10000.0;
-
-        for (double x = xMin; x < xMax; x += step) {
-            try {
-                double prevSlope = derivative(f, x - step);
-                double currentSlope = derivative(f, x);
-                if (prevSlope < 0 && currentSlope > 0) {
-                    minima.add(new Point(x, f.evaluate(x)));
-                }
-            } catch (MathParsingException e) {
-                // Skip points that can't be evaluated
-            }
-        }
-        return minima;
+        return findLocalExtrema(f, xMin, xMax, false);
     }
 
     /**
@@ -153,34 +165,89 @@ public class NumericalMethods {
      * @param f The function to analyze
      * @param xMin The lower bound of the range
      * @param xMax The upper bound of the range
-     * @return A list of points representing all extrema
+     * @return A list of points representing all extrema, ordered by x
      */
     public static List<Point> findExtrema(Function f, double xMin, double xMax) {
+        List<Point> extrema = findLocalMaxima(f, xMin, xMax);
+        extrema.addAll(findLocalMinima(f, xMin, xMax));
+        extrema.sort(BY_X);
+        return extrema;
+    }
+
+    /**
+     * Extrema are the roots of the derivative of the function's {@link ChebyshevProxy}.
+     * Where the proxy is unresolved, the derivative is sampled for sign changes instead.
+     */
+    private static List<Point> findLocalExtrema(Function f, double xMin, double xMax, boolean maxima) {
         List<Point> extrema = new ArrayList<>();
-        // Implementation of findExtrema method
+        if (!(xMax > xMin)) {
+            return extrema;
+        }
+        double step = (xMax - xMin) / 10000.0;
+
+        ChebyshevProxy proxy = f.getProxy(xMin, xMax);
+        for (double x : maxima ? proxy.maxima() : proxy.minima()) {
+            extrema.add(new Point(x, f.evaluate(x)));
+        }
+        Expression derivative = proxy.isResolved() ? null : symbolicDerivative(f);
+        for (double[] range : proxy.getUnresolvedRanges()) {
+            double[] xs = grid(range[0], range[1], step);
+            for (int[] run : runs(cellsWithPossibleZero(derivative, null, xs))) {
+                double[][] jets = jets(f, Arrays.copyOfRange(xs, run[0], run[1] + 1));
+                double[] values = jets[0];
+                double[] slopes = jets[1];
+                for (int i = 0; i < slopes.length - 1; i++) {
+                    double prevSlope = slopes[i];
+                    double currentSlope = slopes[i + 1];
+                    if (maxima ? prevSlope > 0 && currentSlope < 0 : prevSlope < 0 && currentSlope > 0) {
+                        extrema.add(new Point(xs[run[0] + i + 1], values[i + 1]));
+                    }
+                }
+            }
+        }
+        extrema.sort(BY_X);
         return extrema;
     }
 
     /**
      * Finds zero crossings (roots/x-intercepts) of a function in the specified range.
-     * Uses a step-based approach to detect sign changes.
+     * The roots of polynomials and rational functions are computed from their coefficients,
+     * and those of other functions from their {@link ChebyshevProxy}; where the proxy is
+     * unresolved, a step-based approach detects sign changes.
      */
     public static List<Point> findRoots(Function f, double xMin, double xMax) {
         List<Point> roots = new ArrayList<>();
+        RationalFunction rational = f.getRationalForm();
+        if (rational != null && !rational.getNumerator().isZero()) {
+            for (double root : rational.realRoots()) {
+                if (root >= xMin && root <= xMax) {
+                    roots.add(new Point(root, 0));
+                }
+            }
+            return roots;
+        }
+        if (!(xMax > xMin)) {
+            return roots;
+        }
         double step = (xMax - xMin) / 20000.0;
-        try {
-            double prevY = f.evaluate(xMin);
-            for (double x = xMin + step; x <= xMax; x += step) {
-                double currY = f.evaluate(x);
-                if (Math.signum(prevY) != Math.signum(currY)) {
-                    // Approximate the root location
-                    roots.add(new Point(x, 0));
+        ChebyshevProxy proxy = f.getProxy(xMin, xMax);
+        for (double root : proxy.roots()) {
+            roots.add(new Point(root, 0));
+        }
+        for (double[] range : proxy.getUnresolvedRanges()) {
+            double[] xs = grid(range[0], range[1], step);
+            for (int[] run : runs(cellsWithPossibleZero(f.getExpressionTree(), null, xs))) {
+                double[] part = Arrays.copyOfRange(xs, run[0], run[1] + 1);
+                double[] ys = evaluate(f, part);
+                for (int i = 1; i < part.length; i++) {
+                    if (signChanges(ys[i - 1], ys[i])) {
+                        // Approximate the root location
+                        roots.add(new Point(part[i], 0));
+                    }
                 }
-                prevY = currY;
             }
-        } catch (MathParsingException e) {
-            // Handle parsing errors silently
         }
+        roots.sort(BY_X);
         return roots;
     }
 
@@ -191,15 +258,18 @@ public class NumericalMethods {
     public static List<Point> findInflectionPoints(Function f, double xMin, double xMax) {
         List<Point> inflections = new ArrayList<>();
         double step = (xMax - xMin) / 10000.0;
-        for (double x = xMin; x < xMax; x += step) {
-            try {
-                double prevSecond = secondDerivative(f, x - step);
-                double currentSecond = secondDerivative(f, x);
-                if (Math.signum(prevSecond) != Math.signum(currentSecond)) {
-                    inflections.add(new Point(x, f.evaluate(x)));
+        double[] grid = withPrecedingPoint(sweep(xMin, xMax, step, false), step);
+        Expression second = symbolicDerivative(symbolicDerivative(f));
+        for (int[] run : runs(cellsWithPossibleZero(second, null, grid))) {
+            double[][] jets = jets(f, Arrays.copyOfRange(grid, run[0], run[1] + 1));
+            double[] values = jets[0];
+            double[] seconds = jets[2];
+            for (int i = 0; i < seconds.length - 1; i++) {
+                double prevSecond = seconds[i];
+                double currentSecond = seconds[i + 1];
+                if (signChanges(prevSecond, currentSecond)) {
+                    inflections.add(new Point(grid[run[0] + i + 1], values[i + 1]));
                 }
-            } catch (MathParsingException e) {
-                // Skip points that can't be evaluated
             }
         }
         return inflections;
@@ -211,10 +281,141 @@ public class NumericalMethods {
      */
     public static double secondDerivative(Function f, double x) {
         double h = 1e-4;
-        try {
-            return (f.evaluate(x + h) - 2 * f.evaluate(x) + f.evaluate(x - h)) / (h * h);
-        } catch (MathParsingException e) {
-            return 0.0;
+        return (f.evaluate(x + h) - 2 * f.evaluate(x) + f.evaluate(x - h)) / (h * h);
+    }
+
+    /**
+     * Returns the sample positions start, start + step, ... up to end, accumulated the same way
+     * as a {@code for (x = start; x <= end; x += step)} loop.
+     */
+    private static double[] sweep(double start, double end, double step, boolean includeEnd) {
+        if (!(step > 0)) {
+            return new double[0];
+        }
+        double[] xs = new double[(int) Math.min((end - start) / step + 2, Integer.MAX_VALUE - 8)];
+        int count = 0;
+        for (double x = start; includeEnd ? x <= end : x < end; x += step) {
+            if (count == xs.length) xs = Arrays.copyOf(xs, count * 2);
+            xs[count++] = x;
+        }
+        return Arrays.copyOf(xs, count);
+    }
+
+    // Equally spaced points from lower to upper, both included, at most step apart
+    private static double[] grid(double lower, double upper, double step) {
+        int cells = (int) Math.max(1, Math.min(Math.ceil((upper - lower) / step), Integer.MAX_VALUE - 8));
+        double[] xs = new double[cells + 1];
+        for (int i = 0; i < cells; i++) {
+            xs[i] = lower + (upper - lower) * i / cells;
+        }
+        xs[cells] = upper;
+        return xs;
+    }
+
+    // Whether the sign differs between two defined values, including leaving or reaching zero
+    private static boolean signChanges(double previous, double current) {
+        return !Double.isNaN(previous) && !Double.isNaN(current) && Math.signum(previous) != Math.signum(current);
+    }
+
+    /**
+     * Returns the cells [xs[k], xs[k+1]] of the grid on which first - second, or first alone
+     * if second is null, may vanish. Interval enclosures rule out whole stretches at once, so
+     * only the neighbourhoods of actual zeros (and of poles) are left to be sampled.
+     * Every cell is returned if first is null.
+     */
+    private static BitSet cellsWithPossibleZero(Expression first, Expression second, double[] xs) {
+        if (first == null) {
+            return allCells(xs);
+        }
+        BitSet cells = new BitSet();
+        if (xs.length > 1) {
+            markPossibleZeros(first, second, xs, 0, xs.length - 1, cells);
+        }
+        return cells;
+    }
+
+    // Cells from .. to - 1, bisected until they are proven free of zeros or few enough to sample
+    private static void markPossibleZeros(Expression first, Expression second, double[] xs, int from, int to, BitSet cells) {
+        Interval range = IntervalEvaluator.evaluate(first, xs[from], xs[to]);
+        if (second != null) {
+            range = range.minus(IntervalEvaluator.evaluate(second, xs[from], xs[to]));
+        }
+        if (!range.contains(0)) {
+            return;
+        }
+        if (to - from <= LEAF_CELLS) {
+            cells.set(from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        markPossibleZeros(first, second, xs, from, middle, cells);
+        markPossibleZeros(first, second, xs, middle, to, cells);
+    }
+
+    private static BitSet allCells(double[] xs) {
+        BitSet cells = new BitSet();
+        cells.set(0, Math.max(0, xs.length - 1));
+        return cells;
+    }
+
+    // Maximal runs of consecutive cells, as {first point, last point}
+    private static List<int[]> runs(BitSet cells) {
+        List<int[]> runs = new ArrayList<>();
+        for (int from = cells.nextSetBit(0); from >= 0; ) {
+            int to = cells.nextClearBit(from);
+            runs.add(new int[] {from, to});
+            from = cells.nextSetBit(to);
+        }
+        return runs;
+    }
+
+    // Prepends the point one step before xs[0]
+    private static double[] withPrecedingPoint(double[] xs, double step) {
+        double[] extended = new double[xs.length + 1];
+        extended[0] = xs.length > 0 ? xs[0] - step : 0;
+        System.arraycopy(xs, 0, extended, 1, xs.length);
+        return extended;
+    }
+
+    private static double[] evaluate(Function f, double[] xs) {
+        double[] ys = new double[xs.length];
+        f.evaluate(xs, ys);
+        return ys;
+    }
+
+    private static double[] offset(double[] xs, double delta) {
+        double[] shifted = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) shifted[i] = xs[i] + delta;
+        return shifted;
+    }
+
+    /**
+     * Returns {f(x), f'(x), f''(x)} for every x in one pass. Functions with an expression tree
+     * are differentiated by forward-mode automatic differentiation, which is exact and costs
+     * a few evaluations; other functions fall back to central differences.
+     */
+    private static double[][] jets(Function f, double[] xs) {
+        double[] values = new double[xs.length];
+        double[] firsts = new double[xs.length];
+        double[] seconds = new double[xs.length];
+        Expression tree = f.getExpressionTree();
+        if (tree != null) {
+            DualNumberEvaluator.evaluate(tree, xs, values, firsts, seconds);
+            return new double[][] {values, firsts, seconds};
+        }
+        f.evaluate(xs, values);
+        double h1 = 1e-6;
+        double[] forward = evaluate(f, offset(xs, h1));
+        double[] backward = evaluate(f, offset(xs, -h1));
+        for (int i = 0; i < xs.length; i++) {
+            firsts[i] = (forward[i] - backward[i]) / (2 * h1);
+        }
+        double h2 = 1e-4;
+        forward = evaluate(f, offset(xs, h2));
+        backward = evaluate(f, offset(xs, -h2));
+        for (int i = 0; i < xs.length; i++) {
+            seconds[i] = (forward[i] - 2 * values[i] + backward[i]) / (h2 * h2);
         }
+        return new double[][] {values, firsts, seconds};
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package com.mathplotter.utils;
+
+import java.util.List;
+
+/**
+ * A sampled curve in graph coordinates, ready to be stroked: points in increasing x.
+ * The curve is broken at every point whose y is not finite, which lies outside the function's
+ * domain or on a pole, and after every point marked as followed by a jump. Polylines are
+ * immutable, and keep the samples themselves so that a later view can reuse them.
+ */
+public final class Polyline {
+    final double[] xs;
+    final double[] ys;
+    // Whether the curve jumps between point i and point i + 1
+    final boolean[] jumps;
+    private final int size;
+    private final int evaluations;
+
+    Polyline(double[] xs, double[] ys, boolean[] jumps, int size, int evaluations) {
+        this.xs = xs;
+        this.ys = ys;
+        this.jumps = jumps;
+        this.size = size;
+        this.evaluations = evaluations;
+    }
+
+    /**
+     * Joins polylines sampled over adjacent ranges, given from left to right; a point shared by
+     * the end of one part and the start of the next is kept once.
+     */
+    public static Polyline concatenate(List<Polyline> parts) {
+        int capacity = 0;
+        for (Polyline part : parts) capacity += part.size;
+        double[] xs = new double[capacity];
+        double[] ys = new double[capacity];
+        boolean[] jumps = new boolean[capacity];
+        int size = 0;
+        int evaluations = 0;
+        for (Polyline part : parts) {
+            int start = size > 0 && part.size > 0 && part.xs[0] == xs[size - 1] ? 1 : 0;
+            if (start == 1) {
+                // The shared point is kept from the previous part, but jumps as this one does
+                jumps[size - 1] |= part.jumps[0];
+            }
+            int count = part.size - start;
+            System.arraycopy(part.xs, start, xs, size, count);
+            System.arraycopy(part.ys, start, ys, size, count);
+            System.arraycopy(part.jumps, start, jumps, size, count);
+            size += count;
+            evaluations += part.evaluations;
+        }
+        return new Polyline(xs, ys, jumps, size, evaluations);
+    }
+
+    /**
+     * Returns the newer polyline extended on either side by the points of the older one that
+     * lie outside its range but within [lower, upper], so that samples taken earlier stay
+     * available for {@link AdaptiveSampler#resample}. Only the newer evaluations are counted.
+     */
+    public static Polyline splice(Polyline older, Polyline newer, double lower, double upper) {
+        if (newer.size == 0) return newer;
+        double first = newer.xs[0];
+        double last = newer.xs[newer.size - 1];
+        double[] xs = new double[older.size + newer.size];
+        double[] ys = new double[xs.length];
+        boolean[] jumps = new boolean[xs.length];
+        int size = 0;
+        int i = 0;
+        while (i < older.size && older.xs[i] < lower) i++;
+        for (; i < older.size && older.xs[i] < first; i++, size++) {
+            xs[size] = older.xs[i];
+            ys[size] = older.ys[i];
+            jumps[size] = older.jumps[i] && i + 1 < older.size && older.xs[i + 1] < first;
+        }
+        System.arraycopy(newer.xs, 0, xs, size, newer.size);
+        System.arraycopy(newer.ys, 0, ys, size, newer.size);
+        System.arraycopy(newer.jumps, 0, jumps, size, newer.size);
+        size += newer.size;
+        while (i < older.size && older.xs[i] <= last) i++;
+        for (; i < older.size && older.xs[i] <= upper; i++, size++) {
+            xs[size] = older.xs[i];
+            ys[size] = older.ys[i];
+            jumps[size] = older.jumps[i];
+        }
+        jumps[size - 1] = false;
+        return new Polyline(xs, ys, jumps, size, newer.evaluations);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    // The index of the first point at or right of x, or the size if there is none
+    int indexOf(double x) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (xs[middle] < x) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Returns true if the curve must not be joined from this point to the next one.
+     */
+    public boolean jumpsAfter(int index) {
+        return jumps[index];
+    }
+
+    /**
+     * Returns how many times the function was evaluated to produce this polyline; samples
+     * reused from an earlier polyline are not counted.
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+}
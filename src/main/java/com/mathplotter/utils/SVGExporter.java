@@ -143,24 +143,27 @@ public class SVGExporter {
             svg.append("<path d=\"");
             boolean firstPoint = true;
             
+            // Sample every column in one batch call
+            double[] xs = new double[width + 1];
+            double[] ys = new double[xs.length];
+            for (int screenX = 0; screenX <= width; screenX++) {
+                xs[screenX] = screenToGraphX(screenX);
+            }
+            function.evaluate(xs, ys);
+            
             // Generate path data
             for (int screenX = 0; screenX <= width; screenX++) {
-                double graphX = screenToGraphX(screenX);
-                try {
-                    double graphY = function.evaluate(graphX);
-                    if (Double.isFinite(graphY)) {
-                        double screenY = graphToScreenY(graphY);
-                        
-                        if (firstPoint) {
-                            svg.append("M ").append(screenX).append(" ").append(screenY);
-                            firstPoint = false;
-                        } else {
-                            svg.append(" L ").append(screenX).append(" ").append(screenY);
-                        }
+                double graphY = ys[screenX];
+                if (Double.isFinite(graphY)) {
+                    double screenY = graphToScreenY(graphY);
+                    
+                    if (firstPoint) {
+                        svg.append("M ").append(screenX).append(" ").append(screenY);
+                        firstPoint = false;
                     } else {
-                        firstPoint = true; // Start new path segment
+                        svg.append(" L ").append(screenX).append(" ").append(screenY);
                     }
-                } catch (Exception e) {
+                } else {
                     firstPoint = true; // Start new path segment
                 }
             }
@@ -186,20 +189,20 @@ public class SVGExporter {
         double axisY = graphToScreenY(0);
         svg.append("M ").append(startX).append(" ").append(axisY);
         
-        // Draw the function curve from start to end
-        double xRange = xMax - xMin;
-        for (int screenX = (int) startX; screenX <= graphToScreenX(graphPanel.getShadeEnd()); screenX++) {
-            double graphX = screenToGraphX(screenX);
-            if (graphX >= graphPanel.getShadeStart() && graphX <= graphPanel.getShadeEnd()) {
-                try {
-                    double graphY = graphPanel.getShadedFunction().evaluate(graphX);
-                    if (Double.isFinite(graphY)) {
-                        double screenY = graphToScreenY(graphY);
-                        svg.append(" L ").append(screenX).append(" ").append(screenY);
-                    }
-                } catch (Exception e) {
-                    // Skip points where function evaluation fails
-                }
+        // Sample the shaded columns in one batch call
+        int firstX = (int) startX;
+        int lastX = (int) graphToScreenX(graphPanel.getShadeEnd());
+        double[] xs = new double[Math.max(0, lastX - firstX + 1)];
+        double[] ys = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = screenToGraphX(firstX + i);
+        }
+        graphPanel.getShadedFunction().evaluate(xs, ys);
+        
+        // Draw the function curve from start to end, skipping points outside its domain
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] >= graphPanel.getShadeStart() && xs[i] <= graphPanel.getShadeEnd() && Double.isFinite(ys[i])) {
+                svg.append(" L ").append(firstX + i).append(" ").append(graphToScreenY(ys[i]));
             }
         }
         
@@ -143,17 +143,22 @@ public class CalculationPanel extends JPanel {
             resultsArea.setText("");
             return;
         }
+        // Read the selection and view on the EDT; the worker must not touch Swing components
+        final AnalysisType analysis = currentAnalysis;
+        final Function selected = (Function) derivativeFunc.getSelectedItem();
+        final Function first = (Function) intersectionFunc1.getSelectedItem();
+        final Function second = (Function) intersectionFunc2.getSelectedItem();
+        final double xMin = graphPanel.getGraphSettings().getxMin();
+        final double xMax = graphPanel.getGraphSettings().getxMax();
         // Run in background for UI responsiveness
         new SwingWorker<List<Point>, Void>() {
             StringBuilder sb = new StringBuilder();
             @Override
             protected List<Point> doInBackground() {
                 List<Point> points = new java.util.ArrayList<>();
-                double xMin = graphPanel.getGraphSettings().getxMin();
-                double xMax = graphPanel.getGraphSettings().getxMax();
-                switch (currentAnalysis) {
+                switch (analysis) {
                     case MAXIMA: {
-                        Function f = (Function) derivativeFunc.getSelectedItem();
+                        Function f = selected;
                         if (f != null) {
                             points = com.mathplotter.utils.NumericalMethods.findLocalMaxima(f, xMin, xMax);
                             sb.append(points.size()).append(" maxima found in current view.\n");
@@ -164,7 +169,7 @@ public class CalculationPanel extends JPanel {
                         break;
                     }
                     case MINIMA: {
-                        Function f = (Function) derivativeFunc.getSelectedItem();
+                        Function f = selected;
                         if (f != null) {
                             points = com.mathplotter.utils.NumericalMethods.findLocalMinima(f, xMin, xMax);
                             sb.append(points.size()).append(" minima found in current view.\n");
@@ -175,7 +180,7 @@ public class CalculationPanel extends JPanel {
                         break;
                     }
                     case INFLECTION: {
-                        Function f = (Function) derivativeFunc.getSelectedItem();
+                        Function f = selected;
                         if (f != null) {
                             points = com.mathplotter.utils.NumericalMethods.findInflectionPoints(f, xMin, xMax);
                             sb.append(points.size()).append(" inflection points found in current view.\n");
@@ -186,8 +191,8 @@ public class CalculationPanel extends JPanel {
                         break;
                     }
                     case INTERSECTIONS: {
-                        Function f1 = (Function) intersectionFunc1.getSelectedItem();
-                        Function f2 = (Function) intersectionFunc2.getSelectedItem();
+                        Function f1 = first;
+                        Function f2 = second;
                         if (f1 != null && f2 != null && !f1.equals(f2)) {
                             points = com.mathplotter.utils.NumericalMethods.findIntersections(f1, f2, xMin, xMax);
                             sb.append(points.size()).append(" intersections found in current view.\n");
@@ -198,7 +203,7 @@ public class CalculationPanel extends JPanel {
                         break;
                     }
                     case ZEROS: {
-                        Function f = (Function) derivativeFunc.getSelectedItem();
+                        Function f = selected;
                         if (f != null) {
                             points = com.mathplotter.utils.NumericalMethods.findRoots(f, xMin, xMax);
                             sb.append(points.size()).append(" zeros found in current view.\n");
@@ -11,6 +11,7 @@ public class ControlPanel extends JPanel {
 
     private final FunctionInputPanel functionInputPanel;
     private final CalculationPanel calculationPanel;
+    private final ParameterPanel parameterPanel;
     private final JPanel viewControlPanel;
     private final JButton zoomInButton, zoomOutButton, resetButton;
 
@@ -21,6 +22,7 @@ public class ControlPanel extends JPanel {
 
         functionInputPanel = new FunctionInputPanel(graphPanel, this);
         calculationPanel = new CalculationPanel(graphPanel, this);
+        parameterPanel = new ParameterPanel(graphPanel);
         
         // View controls
         viewControlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 2));
@@ -45,6 +47,7 @@ public class ControlPanel extends JPanel {
         JPanel container = new JPanel();
         container.setLayout(new BoxLayout(container, BoxLayout.Y_AXIS));
         container.add(functionInputPanel);
+        container.add(parameterPanel);
         container.add(viewControlPanel);
         container.add(calculationPanel);
 
@@ -54,5 +57,6 @@ public class ControlPanel extends JPanel {
     public void updateFunctionLists(List<Function> functions) {
         calculationPanel.updateFunctionLists(functions);
         functionInputPanel.updateFunctionList(functions);
+        parameterPanel.updateParameters(functions);
     }
 } 
\ No newline at end of file
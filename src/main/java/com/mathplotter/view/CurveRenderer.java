@@ -0,0 +1,221 @@
+package com.mathplotter.view;
+
+import com.mathplotter.model.Function;
+import com.mathplotter.utils.AdaptiveSampler;
+import com.mathplotter.utils.FusedEvaluator;
+import com.mathplotter.utils.Polyline;
+
+import java.awt.*;
+import java.awt.geom.GeneralPath;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.BiConsumer;
+
+/**
+ * Samples curves and renders them into tiles on a dedicated ForkJoin pool, never on the EDT.
+ * The x range is cut into chunks of {@link #CHUNK_SIZE} pixels, and every curve in every chunk
+ * is sampled as a task of its own, so the work spreads over all cores both for many curves and
+ * for one curve over a wide range. The missing tiles are then stroked in parallel too, leaving
+ * the EDT only images to blit. The number of threads comes from the
+ * {@code mathplotter.render.threads} system property (default: one per core).
+ */
+final class CurveRenderer {
+
+    /** Width in pixels of the chunks the x range is sampled in. */
+    static final int CHUNK_SIZE = 64;
+
+    private static final ForkJoinPool pool = new ForkJoinPool(
+            Integer.getInteger("mathplotter.render.threads", Runtime.getRuntime().availableProcessors()),
+            p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("curve-renderer-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+
+    private CurveRenderer() {
+    }
+
+    /**
+     * A curve to render: the function, its colour, how to sample it for drawing, and where its
+     * initial samples come from: the samples of an earlier rendering, or the fused evaluator.
+     */
+    static final class Curve {
+        final Function function;
+        final Color color;
+        final BiConsumer<double[], double[]> evaluator;
+        final Polyline previous;
+        // Index of the function in the fused evaluator, or -1
+        final int fusedIndex;
+
+        Curve(Function function, Color color, BiConsumer<double[], double[]> evaluator, Polyline previous,
+              int fusedIndex) {
+            this.function = function;
+            this.color = color;
+            this.evaluator = evaluator;
+            this.previous = previous;
+            this.fusedIndex = fusedIndex;
+        }
+    }
+
+    /**
+     * Rendered tiles, in the order they were asked for, and the curves sampled for them.
+     */
+    static final class Result {
+        final List<BufferedImage> tiles;
+        final Map<Function, Polyline> curves;
+
+        Result(List<BufferedImage> tiles, Map<Function, Polyline> curves) {
+            this.tiles = tiles;
+            this.curves = curves;
+        }
+    }
+
+    /**
+     * Renders tiles in the background.
+     * @param curves The curves, in drawing order
+     * @param fused Evaluates the curves with a fused index together at the start of every
+     *        chunk, or null if there are none
+     * @param firstColumn The first tile column to sample
+     * @param lastColumn The last tile column to sample
+     * @param tiles The column and row of every tile to render, within the sampled columns
+     * @param xScale Pixels per unit of x
+     * @param yScale Pixels per unit of y
+     * @param yRange The height of the view in units of y, for telling poles from steep curves
+     * @param deviceScale Device pixels per pixel
+     */
+    static CompletableFuture<Result> render(List<Curve> curves, FusedEvaluator fused, long firstColumn, long lastColumn,
+                                            List<long[]> tiles, double xScale, double yScale, double yRange,
+                                            double deviceScale) {
+        return CompletableFuture.supplyAsync(() -> {
+            int size = TileCache.TILE_SIZE;
+            int chunksPerColumn = size / CHUNK_SIZE;
+            int chunks = (int) (lastColumn - firstColumn + 1) * chunksPerColumn;
+            double origin = firstColumn * (double) size;
+            // One polyline per curve per chunk
+            Polyline[][] parts = new Polyline[curves.size()][chunks];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                double lower = (origin + chunk * CHUNK_SIZE) / xScale;
+                double upper = (origin + (chunk + 1) * CHUNK_SIZE) / xScale;
+                int c = chunk;
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    // Fused curves share one evaluation of their initial samples per chunk
+                    double[] xs = AdaptiveSampler.initialSamples(lower, upper, xScale);
+                    double[][] ys = fused != null ? fused.evaluate(xs) : null;
+                    List<ForkJoinTask<?>> refinements = new ArrayList<>();
+                    for (int i = 0; i < curves.size(); i++) {
+                        Curve curve = curves.get(i);
+                        double[] initial = curve.fusedIndex >= 0 ? ys[curve.fusedIndex] : null;
+                        int k = i;
+                        refinements.add(ForkJoinTask.adapt(() -> {
+                            parts[k][c] = sample(curve, initial, xs, lower, upper, xScale, yScale);
+                        }));
+                    }
+                    ForkJoinTask.invokeAll(refinements);
+                }));
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            // Join the chunks into one polyline per curve and tile column
+            Map<Function, Polyline> sampled = new HashMap<>();
+            Map<Long, Polyline[]> columns = new HashMap<>();
+            for (int i = 0; i < curves.size(); i++) {
+                List<Polyline> all = new ArrayList<>();
+                for (int chunk = 0; chunk < chunks; chunk++) all.add(parts[i][chunk]);
+                sampled.put(curves.get(i).function, Polyline.concatenate(all));
+                for (int column = 0; column < chunks / chunksPerColumn; column++) {
+                    List<Polyline> inColumn = all.subList(column * chunksPerColumn, (column + 1) * chunksPerColumn);
+                    columns.computeIfAbsent(firstColumn + column, key -> new Polyline[curves.size()])[i] =
+                            Polyline.concatenate(inColumn);
+                }
+            }
+
+            List<ForkJoinTask<BufferedImage>> renderings = new ArrayList<>();
+            for (long[] tile : tiles) {
+                Polyline[] inColumn = columns.get(tile[0]);
+                renderings.add(ForkJoinTask.adapt(() -> renderTile(curves, inColumn,
+                        tile[0] * (double) size / xScale, (tile[1] + 1) * (double) size / yScale,
+                        xScale, yScale, yRange, deviceScale)));
+            }
+            ForkJoinTask.invokeAll(renderings);
+            List<BufferedImage> images = new ArrayList<>();
+            for (ForkJoinTask<BufferedImage> rendering : renderings) images.add(rendering.join());
+            return new Result(images, sampled);
+        }, pool);
+    }
+
+    private static Polyline sample(Curve curve, double[] initial, double[] xs, double lower, double upper,
+                                   double xScale, double yScale) {
+        int budget = AdaptiveSampler.EVALUATIONS_PER_PIXEL * CHUNK_SIZE;
+        if (curve.previous != null) {
+            return AdaptiveSampler.resample(curve.previous, lower, upper, curve.evaluator, xScale, yScale, budget);
+        }
+        if (initial == null) {
+            initial = new double[xs.length];
+            curve.evaluator.accept(xs, initial);
+        }
+        return AdaptiveSampler.sample(xs, initial, curve.evaluator, xScale, yScale, budget);
+    }
+
+    private static BufferedImage renderTile(List<Curve> curves, Polyline[] polylines, double left, double top,
+                                            double xScale, double yScale, double yRange, double deviceScale) {
+        int pixels = (int) Math.ceil(TileCache.TILE_SIZE * deviceScale);
+        BufferedImage tile = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = tile.createGraphics();
+        g2d.scale(deviceScale, deviceScale);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setStroke(new BasicStroke(2));
+        for (int i = 0; i < curves.size(); i++) {
+            g2d.setColor(curves.get(i).color);
+            plotFunction(g2d, curves.get(i).function, polylines[i], left, top, xScale, yScale, yRange);
+        }
+        g2d.dispose();
+        return tile;
+    }
+
+    /**
+     * Strokes a curve onto a tile whose top left corner is at (left, top) in graph
+     * coordinates, at the given scales in pixels per unit.
+     */
+    private static void plotFunction(Graphics2D g2d, Function f, Polyline curve, double left, double top,
+                                     double xScale, double yScale, double yRange) {
+        GeneralPath path = new GeneralPath();
+        boolean firstPoint = true;
+
+        for (int i = 0; i < curve.size(); i++) {
+            double y = curve.getY(i);
+
+            if (Double.isNaN(y) || Double.isInfinite(y)) {
+                firstPoint = true; // A math error such as log(-1)
+                continue;
+            }
+
+            double screenX = (curve.getX(i) - left) * xScale;
+            double screenY = (top - y) * yScale;
+
+            // A jump of more than the whole view may be a pole, which must not be joined up
+            if (!firstPoint && Math.abs(y - curve.getY(i - 1)) > yRange
+                    && !f.enclose(curve.getX(i - 1), curve.getX(i)).isBounded()) {
+                firstPoint = true;
+            }
+
+            if (firstPoint) {
+                path.moveTo(screenX, screenY);
+                firstPoint = false;
+            } else {
+                path.lineTo(screenX, screenY);
+            }
+            if (curve.jumpsAfter(i)) {
+                firstPoint = true; // Discontinuity
+            }
+        }
+        g2d.draw(path);
+    }
+}
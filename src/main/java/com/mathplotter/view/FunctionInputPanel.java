@@ -134,7 +134,7 @@ public class FunctionInputPanel extends JPanel {
                 return;
             }
 
-            Function newFunction = new Function(expression, color);
+            Function newFunction = new Function(expression, color, Function.ELIMINATE_COMMON_SUBEXPRESSIONS);
             graphPanel.addFunction(newFunction);
             
             // This now becomes the single source of truth for updating all lists.
@@ -1,15 +1,25 @@
 package com.mathplotter.view;
 
+import com.mathplotter.expression.DomainError;
+import com.mathplotter.expression.Expression;
+import com.mathplotter.expression.Parameter;
+import com.mathplotter.expression.Parameters;
 import com.mathplotter.model.Function;
 import com.mathplotter.model.GraphSettings;
 import com.mathplotter.model.Point;
+import com.mathplotter.utils.ChebyshevProxy;
+import com.mathplotter.utils.FusedEvaluator;
 import com.mathplotter.utils.NumericalMethods;
+import com.mathplotter.utils.Polyline;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -18,8 +28,13 @@ import java.awt.event.MouseWheelEvent;
 import java.util.stream.Collectors;
 
 import javax.swing.SwingWorker;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.swing.Timer;
 
 public class GraphPanel extends JPanel {
@@ -40,6 +55,32 @@ public class GraphPanel extends JPanel {
     private boolean showCursor = false;
     private static final int SNAP_DISTANCE = 10; // pixels
 
+    // Whether curves are sampled with approximate elementary functions; drawing only
+    private boolean fastMath = false;
+    // Evaluates the visible curves together; rebuilt when they change
+    private FusedEvaluator fusedEvaluator;
+    // Evaluations spent sampling curves in the last rendering of tiles
+    private int lastFrameEvaluations;
+    // The curve last drawn for each function
+    private final Map<com.mathplotter.model.Function, CachedCurve> curveCache = new HashMap<>();
+
+    // Back buffers for the grid and axes, and shading and special points; curves are tiled
+    private final Layer axesLayer = new Layer(true);
+    private final Layer analysisLayer = new Layer(false);
+    private final TileCache curveTiles = new TileCache();
+    // What the curve tiles show apart from the view, the same but for parameter values, the
+    // rendering of missing tiles under way, and the tiles of the last frame that had none missing
+    private Object curveContents;
+    private Object curveFunctions;
+    private CompletableFuture<CurveRenderer.Result> rendering;
+    private List<PlacedTile> lastCompleteFrame = new ArrayList<>();
+    // The functions whose rendering last failed
+    private Object failedFunctions;
+    private static final Font LABEL_FONT = new Font("Arial", Font.PLAIN, 10);
+    // Formatted axis labels by value
+    private final Map<Double, String> axisLabels = new HashMap<>();
+    private static final int MAX_AXIS_LABELS = 1000;
+
     // View change listeners
     public interface ViewChangeListener {
         void onViewChanged();
@@ -139,15 +180,9 @@ public class GraphPanel extends JPanel {
 
         if (nearest != null) {
             double x = graphMouse.getX();
-            try {
-                double y = nearest.evaluate(x);
-                this.curvePoint = new Point2D.Double(x, y);
-                this.nearestFunction = nearest;
-                this.showCursor = true;
-            } catch (Exception ex) {
-                this.showCursor = false;
-                this.nearestFunction = null;
-            }
+            this.curvePoint = new Point2D.Double(x, nearest.evaluate(x));
+            this.nearestFunction = nearest;
+            this.showCursor = true;
         } else {
             this.showCursor = false;
             this.nearestFunction = null;
@@ -161,16 +196,14 @@ public class GraphPanel extends JPanel {
 
         for (com.mathplotter.model.Function func : functions) {
             if (!func.isVisible()) continue;
-            try {
-                double y = func.evaluate(graphPoint.getX());
-                Point2D.Double screenFuncPoint = graphToScreen(new Point2D.Double(graphPoint.getX(), y));
-                double distance = mousePosition.distance(screenFuncPoint);
-                if (distance < SNAP_DISTANCE && distance < minDistance) {
-                    minDistance = distance;
-                    nearestFunc = func;
-                }
-            } catch (Exception e) {
-                continue;
+            double y = func.evaluate(graphPoint.getX());
+            // Outside the domain there is no point on the curve to snap to
+            if (!Double.isFinite(y)) continue;
+            Point2D.Double screenFuncPoint = graphToScreen(new Point2D.Double(graphPoint.getX(), y));
+            double distance = mousePosition.distance(screenFuncPoint);
+            if (distance < SNAP_DISTANCE && distance < minDistance) {
+                minDistance = distance;
+                nearestFunc = func;
             }
         }
         return nearestFunc;
@@ -200,6 +233,15 @@ public class GraphPanel extends JPanel {
             double mouseX = settings.getxMin() + (screenPos.x / (double) getWidth()) * (settings.getxMax() - settings.getxMin());
             double mouseY = settings.getyMax() - (screenPos.y / (double) getHeight()) * (settings.getyMax() - settings.getyMin());
             String message = String.format("  x: %.4f, y: %.4f", mouseX, mouseY);
+            // Say why a curve has a gap under the mouse
+            for (com.mathplotter.model.Function func : functions) {
+                if (!func.isVisible()) continue;
+                DomainError error = func.getDomainError(mouseX);
+                if (error != DomainError.NONE) {
+                    message += String.format(" | f(x)=%s: %s", func.getExpression(), error.getDescription());
+                    break;
+                }
+            }
             firePropertyChange("coordinates", null, message);
         }
     }
@@ -211,11 +253,13 @@ public class GraphPanel extends JPanel {
 
     public void removeFunction(com.mathplotter.model.Function function) {
         functions.remove(function);
+        curveCache.remove(function);
         repaint();
     }
 
     public void removeAllFunctions() {
         functions.clear();
+        curveCache.clear();
         this.specialPoints.clear();
         this.shadedFunction = null;
         repaint();
@@ -293,20 +337,352 @@ public class GraphPanel extends JPanel {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        // Each layer is redrawn only when what it shows has changed, so moving the cursor
+        // costs a few blits and the overlay. Device pixels per pixel keep them sharp on HiDPI.
+        double scale = g2d.getTransform().getScaleX();
+        List<Object> view = Arrays.asList(settings.getxMin(), settings.getxMax(), settings.getyMin(), settings.getyMax(),
+                width, height, scale);
+
+        Graphics2D layer = axesLayer.redraw(Arrays.asList(view, getBackground()), width, height, scale, getBackground());
+        if (layer != null) {
+            drawGrid(layer);
+            drawAxes(layer);
+            layer.dispose();
+        }
+        axesLayer.draw(g2d, width, height);
 
-        drawGrid(g2d);
-        drawAxes(g2d);
-        drawFunctions(g2d);
-        drawShadedArea(g2d);
-        // Only draw special points for the current analysis
-        if (currentAnalysis != AnalysisType.NONE) {
-            drawSpecialPoints(g2d);
+        // Parameters and fast math change the values of the functions, not the functions
+        List<Object> values = Arrays.asList(view, fastMath, Parameters.getModificationCount());
+        List<Object> drawnFunctions = new ArrayList<>();
+        for (com.mathplotter.model.Function function : functions) {
+            drawnFunctions.add(function);
+            drawnFunctions.add(function.isVisible());
+            drawnFunctions.add(function.getColor());
+        }
+        curveFunctions = Arrays.asList(fastMath, drawnFunctions, scale);
+        curveContents = Arrays.asList(curveFunctions, Parameters.getModificationCount());
+        curveTiles.validate(curveContents);
+        drawCurveTiles(g2d, width, height, scale);
+
+        if (shadedFunction != null || currentAnalysis != AnalysisType.NONE) {
+            layer = analysisLayer.redraw(Arrays.asList(values, shadedFunction, shadeStart, shadeEnd,
+                    currentAnalysis, new ArrayList<>(specialPoints)), width, height, scale, null);
+            if (layer != null) {
+                drawShadedArea(layer);
+                // Only draw special points for the current analysis
+                if (currentAnalysis != AnalysisType.NONE) {
+                    drawSpecialPoints(layer);
+                }
+                layer.dispose();
+            }
+            analysisLayer.draw(g2d, width, height);
         }
+
         if (showCursor && curvePoint != null && nearestFunction != null) {
             drawInteractiveCursor((Graphics2D) g);
         }
     }
 
+    /**
+     * Draws the curves from tiles, rendering those not already cached in the background. The
+     * tile grid is fixed in graph space at the zoom level nearest the view, and its tiles are
+     * scaled to the view, so they stay valid as it pans and through small zooms. Until missing
+     * tiles arrive, cached tiles of nearby levels stand in for them, and where there are none,
+     * the last complete frame.
+     */
+    private void drawCurveTiles(Graphics2D g2d, int width, int height, double scale) {
+        int size = TileCache.TILE_SIZE;
+        double viewXScale = width / (settings.getxMax() - settings.getxMin());
+        double viewYScale = height / (settings.getyMax() - settings.getyMin());
+        long xLevel = TileCache.level(viewXScale);
+        long yLevel = TileCache.level(viewYScale);
+        double xScale = TileCache.scale(xLevel);
+        double yScale = TileCache.scale(yLevel);
+        // Rows count upwards from the graph origin
+        long firstColumn = (long) Math.floor(settings.getxMin() * xScale / size);
+        long lastColumn = (long) Math.floor(settings.getxMax() * xScale / size);
+        long firstRow = (long) Math.floor(settings.getyMin() * yScale / size);
+        long lastRow = (long) Math.floor(settings.getyMax() * yScale / size);
+        long tileBytes = 4L * (long) Math.ceil(size * scale) * (long) Math.ceil(size * scale);
+        curveTiles.reserve(2 * (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1) * tileBytes);
+
+        Graphics2D tiles = (Graphics2D) g2d.create();
+        tiles.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        List<long[]> missing = new ArrayList<>();
+        List<PlacedTile> shown = new ArrayList<>();
+        for (long column = firstColumn; column <= lastColumn; column++) {
+            for (long row = firstRow; row <= lastRow; row++) {
+                BufferedImage tile = curveTiles.get(xLevel, yLevel, column, row);
+                if (tile != null) {
+                    PlacedTile placed = new PlacedTile(tile, column, row, xScale, yScale);
+                    drawTile(tiles, placed, viewXScale, viewYScale);
+                    shown.add(placed);
+                } else {
+                    missing.add(new long[] {column, row});
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            tiles.dispose();
+            lastCompleteFrame = shown;
+            return;
+        }
+
+        Shape clip = tiles.getClip();
+        Area uncovered = new Area();
+        for (long[] tile : missing) {
+            Rectangle bounds = tileBounds(new PlacedTile(null, tile[0], tile[1], xScale, yScale), viewXScale, viewYScale);
+            List<PlacedTile> standIns = standIns(tile[0], tile[1], xLevel, yLevel);
+            if (standIns == null) {
+                uncovered.add(new Area(bounds));
+                continue;
+            }
+            tiles.setClip(clip);
+            tiles.clip(bounds);
+            for (PlacedTile placed : standIns) drawTile(tiles, placed, viewXScale, viewYScale);
+        }
+        if (!uncovered.isEmpty()) {
+            tiles.setClip(clip);
+            tiles.clip(uncovered);
+            for (PlacedTile placed : lastCompleteFrame) drawTile(tiles, placed, viewXScale, viewYScale);
+        }
+        tiles.dispose();
+
+        // One rendering at a time; the repaint when it finishes starts the next if needed
+        if (rendering == null) {
+            startRendering(xLevel, yLevel, missing, shown, xScale, yScale, settings.getyMax() - settings.getyMin(), scale);
+        }
+    }
+
+    /**
+     * Returns the cached tiles of the nearest other zoom level that together cover the given
+     * tile, or null if no level has all of them.
+     */
+    private List<PlacedTile> standIns(long column, long row, long xLevel, long yLevel) {
+        int size = TileCache.TILE_SIZE;
+        double xScale = TileCache.scale(xLevel);
+        double yScale = TileCache.scale(yLevel);
+        double left = column * size / xScale;
+        double right = (column + 1) * size / xScale;
+        double bottom = row * size / yScale;
+        double top = (row + 1) * size / yScale;
+        for (int[] offset : TileCache.STAND_IN_LEVELS) {
+            long x = xLevel + offset[0];
+            long y = yLevel + offset[1];
+            double otherXScale = TileCache.scale(x);
+            double otherYScale = TileCache.scale(y);
+            long firstColumn = (long) Math.floor(left * otherXScale / size);
+            long lastColumn = (long) Math.ceil(right * otherXScale / size) - 1;
+            long firstRow = (long) Math.floor(bottom * otherYScale / size);
+            long lastRow = (long) Math.ceil(top * otherYScale / size) - 1;
+            List<PlacedTile> found = new ArrayList<>();
+            search:
+            for (long c = firstColumn; c <= lastColumn; c++) {
+                for (long r = firstRow; r <= lastRow; r++) {
+                    BufferedImage tile = curveTiles.get(x, y, c, r);
+                    if (tile == null) {
+                        found = null;
+                        break search;
+                    }
+                    found.add(new PlacedTile(tile, c, r, otherXScale, otherYScale));
+                }
+            }
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    private void drawTile(Graphics2D g2d, PlacedTile placed, double viewXScale, double viewYScale) {
+        Rectangle bounds = tileBounds(placed, viewXScale, viewYScale);
+        g2d.drawImage(placed.image, bounds.x, bounds.y, bounds.width, bounds.height, null);
+    }
+
+    // Where a tile goes in the view. Every edge is rounded on its own, so neighbouring tiles
+    // share their edges exactly and no seams show between them
+    private Rectangle tileBounds(PlacedTile placed, double viewXScale, double viewYScale) {
+        int size = TileCache.TILE_SIZE;
+        int x0 = (int) Math.round((placed.column * size / placed.xScale - settings.getxMin()) * viewXScale);
+        int x1 = (int) Math.round(((placed.column + 1) * size / placed.xScale - settings.getxMin()) * viewXScale);
+        int y0 = (int) Math.round((settings.getyMax() - (placed.row + 1) * size / placed.yScale) * viewYScale);
+        int y1 = (int) Math.round((settings.getyMax() - placed.row * size / placed.yScale) * viewYScale);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    private void startRendering(long xLevel, long yLevel, List<long[]> missing, List<PlacedTile> shown,
+                                double xScale, double yScale, double yRange, double scale) {
+        long firstColumn = Long.MAX_VALUE;
+        long lastColumn = Long.MIN_VALUE;
+        for (long[] tile : missing) {
+            firstColumn = Math.min(firstColumn, tile[0]);
+            lastColumn = Math.max(lastColumn, tile[0]);
+        }
+        double lower = firstColumn * (double) TileCache.TILE_SIZE / xScale;
+        double upper = (lastColumn + 1) * (double) TileCache.TILE_SIZE / xScale;
+
+        // Curves sampled for an overlapping range keep their samples, so a pan only samples the
+        // newly exposed strip and a zoom only fills in where the samples have become too sparse.
+        // The rest are evaluated together, sharing common subexpressions.
+        List<CurveRenderer.Curve> curves = new ArrayList<>();
+        List<com.mathplotter.model.Function> fresh = new ArrayList<>();
+        boolean approximate = fastMath;
+        for (com.mathplotter.model.Function function : functions) {
+            if (!function.isVisible()) continue;
+            // Curves analysed over this very range have a Chebyshev proxy, which may be cheaper
+            ChebyshevProxy proxy = function.getExistingProxy(settings.getxMin(), settings.getxMax());
+            if (proxy != null && !proxy.isCheaperThan(function)) proxy = null;
+            BiConsumer<double[], double[]> evaluator = proxy != null
+                    ? proxy::evaluate : (x, y) -> sample(function, approximate, x, y);
+            CachedCurve cached = curveCache.get(function);
+            Polyline previous = cached != null && cached.isReusableFor(function, lower, upper, fastMath)
+                    ? cached.polyline : null;
+            int fusedIndex = -1;
+            if (previous == null && proxy == null) {
+                fusedIndex = fresh.size();
+                fresh.add(function);
+            }
+            curves.add(new CurveRenderer.Curve(function, function.getColor(), evaluator, previous, fusedIndex));
+        }
+        FusedEvaluator fused = null;
+        if (!fresh.isEmpty()) {
+            if (fusedEvaluator == null || !fusedEvaluator.isFor(fresh, fastMath)) {
+                fusedEvaluator = new FusedEvaluator(fresh, fastMath);
+            }
+            fused = fusedEvaluator;
+        }
+
+        Object contents = curveContents;
+        Object functionsShown = curveFunctions;
+        CompletableFuture<CurveRenderer.Result> job = CurveRenderer.render(curves, fused, firstColumn, lastColumn,
+                missing, xScale, yScale, yRange, scale);
+        rendering = job;
+        job.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            rendering = null;
+            if (error != null) {
+                failRendering(contents, functionsShown, xLevel, yLevel, missing, error);
+            } else if (contents.equals(curveContents)) {
+                finishRendering(xLevel, yLevel, missing, result);
+            } else if (functionsShown.equals(curveFunctions)) {
+                // Only parameter values have changed, as while a slider is dragged. The tiles
+                // are stale, but the curves would freeze if every rendering were thrown away, so
+                // they stand in until the rendering for the latest values, started by the
+                // repaint, arrives
+                List<PlacedTile> frame = new ArrayList<>(shown);
+                for (int i = 0; i < missing.size(); i++) {
+                    frame.add(new PlacedTile(result.tiles.get(i), missing.get(i)[0], missing.get(i)[1], xScale, yScale));
+                }
+                lastCompleteFrame = frame;
+            }
+            repaint();
+        }));
+    }
+
+    // Failed tiles are left blank rather than rendered again on every repaint, until what the
+    // curves show changes. The failure is reported once for the functions, not again for every
+    // parameter value a slider passes through
+    private void failRendering(Object contents, Object functionsShown, long xLevel, long yLevel,
+                               List<long[]> missing, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        cause.printStackTrace();
+        if (!contents.equals(curveContents)) return;
+        BufferedImage blank = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        for (long[] tile : missing) {
+            curveTiles.put(xLevel, yLevel, tile[0], tile[1], blank);
+        }
+        if (!functionsShown.equals(failedFunctions)) {
+            failedFunctions = functionsShown;
+            JOptionPane.showMessageDialog(this, "Error drawing functions: " + cause.getMessage(), "Drawing Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void finishRendering(long xLevel, long yLevel, List<long[]> missing, CurveRenderer.Result result) {
+        for (int i = 0; i < missing.size(); i++) {
+            curveTiles.put(xLevel, yLevel, missing.get(i)[0], missing.get(i)[1], result.tiles.get(i));
+        }
+        // Keep earlier samples around the view for the next pan or zoom
+        double span = settings.getxMax() - settings.getxMin();
+        int evaluations = 0;
+        for (Map.Entry<com.mathplotter.model.Function, Polyline> entry : result.curves.entrySet()) {
+            com.mathplotter.model.Function function = entry.getKey();
+            Polyline curve = entry.getValue();
+            evaluations += curve.getEvaluations();
+            CachedCurve cached = curveCache.get(function);
+            if (cached != null && cached.isCurrent(fastMath)) {
+                curve = Polyline.splice(cached.polyline, curve, settings.getxMin() - span, settings.getxMax() + span);
+            }
+            curveCache.put(function, new CachedCurve(function, curve, fastMath));
+        }
+        lastFrameEvaluations = evaluations;
+    }
+
+    /**
+     * A tile as drawn in a frame: its image, its column and row, and the scales it was
+     * rendered at.
+     */
+    private static final class PlacedTile {
+        final BufferedImage image;
+        final long column;
+        final long row;
+        final double xScale;
+        final double yScale;
+
+        PlacedTile(BufferedImage image, long column, long row, double xScale, double yScale) {
+            this.image = image;
+            this.column = column;
+            this.row = row;
+            this.xScale = xScale;
+            this.yScale = yScale;
+        }
+    }
+
+    /**
+     * A cached image of one layer of the plot, redrawn only when the key describing what it
+     * shows changes. Keys are compared with equals, so lists of the inputs make good keys.
+     */
+    private static final class Layer {
+        private final boolean opaque;
+        private BufferedImage image;
+        private Object key;
+
+        Layer(boolean opaque) {
+            this.opaque = opaque;
+        }
+
+        /**
+         * Returns a graphics context to redraw the layer with, in component coordinates on a
+         * cleared image, or null if the layer already shows the given key.
+         */
+        Graphics2D redraw(Object key, int width, int height, double scale, Color background) {
+            if (image != null && key.equals(this.key)) return null;
+            int imageWidth = (int) Math.ceil(width * scale);
+            int imageHeight = (int) Math.ceil(height * scale);
+            if (image == null || image.getWidth() != imageWidth || image.getHeight() != imageHeight) {
+                image = new BufferedImage(imageWidth, imageHeight,
+                        opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+            }
+            this.key = key;
+            Graphics2D g2d = image.createGraphics();
+            if (opaque) {
+                g2d.setColor(background);
+                g2d.fillRect(0, 0, imageWidth, imageHeight);
+            } else {
+                g2d.setComposite(AlphaComposite.Clear);
+                g2d.fillRect(0, 0, imageWidth, imageHeight);
+                g2d.setComposite(AlphaComposite.SrcOver);
+            }
+            g2d.scale(scale, scale);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            return g2d;
+        }
+
+        void draw(Graphics2D g2d, int width, int height) {
+            g2d.drawImage(image, 0, 0, width, height, null);
+        }
+    }
+
     private void drawGrid(Graphics2D g2d) {
         g2d.setColor(new Color(200, 200, 200));
         g2d.setStroke(new BasicStroke(1));
@@ -359,14 +735,16 @@ public class GraphPanel extends JPanel {
     }
 
     private void drawXAxisLabels(Graphics2D g2d, int axisY) {
-        g2d.setFont(new Font("Arial", Font.PLAIN, 10));
+        g2d.setFont(LABEL_FONT);
         FontMetrics fm = g2d.getFontMetrics();
 
         double range = settings.getxMax() - settings.getxMin();
         double spacing = calculateOptimalSpacing(range, getWidth());
 
-        // Draw tick marks and labels
-        for (double x = Math.ceil(settings.getxMin() / spacing) * spacing; x <= settings.getxMax(); x += spacing) {
+        // Draw tick marks and labels; ticks are whole multiples of the spacing, so their labels
+        // come out the same from one frame of a pan to the next
+        for (double k = Math.ceil(settings.getxMin() / spacing); k * spacing <= settings.getxMax(); k++) {
+            double x = k * spacing;
             int screenX = (int) graphToScreenX(x);
 
             // Draw tick mark
@@ -375,7 +753,7 @@ public class GraphPanel extends JPanel {
 
             // Draw label
             if (Math.abs(x) > 1e-10) { // Don't label zero
-                String label = formatAxisLabel(x);
+                String label = axisLabel(x);
                 int labelWidth = fm.stringWidth(label);
                 g2d.drawString(label, screenX - labelWidth/2, axisY + 18);
             }
@@ -386,13 +764,14 @@ public class GraphPanel extends JPanel {
     }
 
     private void drawYAxisLabels(Graphics2D g2d, int axisX) {
-        g2d.setFont(new Font("Arial", Font.PLAIN, 10));
+        g2d.setFont(LABEL_FONT);
         FontMetrics fm = g2d.getFontMetrics();
 
         double range = settings.getyMax() - settings.getyMin();
         double spacing = calculateOptimalSpacing(range, getHeight());
 
-        for (double y = Math.ceil(settings.getyMin() / spacing) * spacing; y <= settings.getyMax(); y += spacing) {
+        for (double k = Math.ceil(settings.getyMin() / spacing); k * spacing <= settings.getyMax(); k++) {
+            double y = k * spacing;
             int screenY = (int) graphToScreenY(y);
 
             // Draw tick mark
@@ -401,7 +780,7 @@ public class GraphPanel extends JPanel {
 
             // Draw label
             if (Math.abs(y) > 1e-10) { // Don't label zero
-                String label = formatAxisLabel(y);
+                String label = axisLabel(y);
                 g2d.drawString(label, axisX - fm.stringWidth(label) - 8, screenY + 4);
             }
 
@@ -443,6 +822,17 @@ public class GraphPanel extends JPanel {
         return 10 * magnitude;
     }
 
+    // Formatting is slow next to drawing, and the same ticks show up frame after frame
+    private String axisLabel(double value) {
+        String label = axisLabels.get(value);
+        if (label == null) {
+            if (axisLabels.size() >= MAX_AXIS_LABELS) axisLabels.clear();
+            label = formatAxisLabel(value);
+            axisLabels.put(value, label);
+        }
+        return label;
+    }
+
     private String formatAxisLabel(double value) {
         if (Math.abs(value) < 1e-10) return "0";
 
@@ -457,50 +847,77 @@ public class GraphPanel extends JPanel {
         return String.format("%.2f", value);
     }
 
-    private void drawFunctions(Graphics2D g2d) {
-        for (com.mathplotter.model.Function function : functions) {
-            if (function.isVisible()) {
-                plotFunction(g2d, function);
+    /**
+     * A curve as last drawn, with what it was sampled from: it can be reused for another view
+     * only while the function still evaluates the same.
+     */
+    private static final class CachedCurve {
+        final Polyline polyline;
+        private final boolean fastMath;
+        // The parameters of the expression and their values; custom evaluators, whose
+        // dependencies are unknown, go stale when any parameter changes
+        private final Parameter[] parameters;
+        private final double[] parameterValues;
+        private final long modificationCount;
+
+        CachedCurve(com.mathplotter.model.Function function, Polyline polyline, boolean fastMath) {
+            this.polyline = polyline;
+            this.fastMath = fastMath;
+            Expression tree = function.getExpressionTree();
+            this.parameters = tree != null ? Parameters.referencedBy(tree).toArray(new Parameter[0]) : null;
+            this.parameterValues = new double[parameters != null ? parameters.length : 0];
+            for (int i = 0; i < parameterValues.length; i++) {
+                parameterValues[i] = parameters[i].getValue();
             }
+            this.modificationCount = Parameters.getModificationCount();
         }
-    }
 
-    private void plotFunction(Graphics2D g2d, com.mathplotter.model.Function f) {
-        g2d.setColor(f.getColor());
-        g2d.setStroke(new BasicStroke(2));
-
-        GeneralPath path = new GeneralPath();
-        
-        double xRange = settings.getxMax() - settings.getxMin();
-        double yRange = settings.getyMax() - settings.getyMin();
-        double pixelToX = xRange / getWidth();
+        boolean isReusableFor(com.mathplotter.model.Function function, double xMin, double xMax, boolean fastMath) {
+            if (polyline.size() == 0) return false;
+            if (polyline.getX(0) >= xMax || polyline.getX(polyline.size() - 1) <= xMin) return false;
+            return isCurrent(fastMath);
+        }
 
-        boolean firstPoint = true;
+        // Whether the function still evaluates as it did when sampled
+        boolean isCurrent(boolean fastMath) {
+            if (this.fastMath != fastMath) return false;
+            if (parameters == null) {
+                return modificationCount == Parameters.getModificationCount();
+            }
+            for (int i = 0; i < parameters.length; i++) {
+                if (Double.compare(parameters[i].getValue(), parameterValues[i]) != 0) return false;
+            }
+            return true;
+        }
+    }
 
-        for (int screenX = 0; screenX < getWidth(); screenX++) {
-            double x = settings.getxMin() + screenX * pixelToX;
-            try {
-                double y = f.evaluate(x);
+    /**
+     * Returns how many function evaluations the last rendering of curve tiles took.
+     */
+    public int getLastFrameEvaluations() {
+        return lastFrameEvaluations;
+    }
 
-                if (Double.isNaN(y) || Double.isInfinite(y)) {
-                    firstPoint = true; // Discontinuity
-                    continue;
-                }
+    // Sampling for drawing; may trade exactness for speed, so never use it for reported numbers
+    private static void sample(com.mathplotter.model.Function f, boolean approximate, double[] xs, double[] ys) {
+        if (approximate) {
+            f.evaluateForDisplay(xs, ys);
+        } else {
+            f.evaluate(xs, ys);
+        }
+    }
 
-                double screenY = getHeight() - ((y - settings.getyMin()) / yRange) * getHeight();
+    /**
+     * Selects whether this view draws curves with approximate sin, cos, exp, log and powers.
+     * The difference is far below a pixel; analysis results and exports always use exact values.
+     */
+    public void setFastMath(boolean fastMath) {
+        this.fastMath = fastMath;
+        repaint();
+    }
 
-                if (firstPoint) {
-                    path.moveTo(screenX, screenY);
-                    firstPoint = false;
-                } else {
-                    path.lineTo(screenX, screenY);
-                }
-            } catch (Exception e) {
-                // In case of math errors for specific points (e.g., log(-1))
-                firstPoint = true;
-            }
-        }
-        g2d.draw(path);
+    public boolean isFastMath() {
+        return fastMath;
     }
 
     private void drawSpecialPoints(Graphics2D g2d) {
@@ -523,41 +940,34 @@ public class GraphPanel extends JPanel {
         g2d.setColor(new Color(200, 200, 255, 100));
         
         double xRange = settings.getxMax() - settings.getxMin();
-        double yRange = settings.getyMax() - settings.getyMin();
-        double pixelToX = xRange / getWidth();
+
+        // Sample the shaded columns in one batch call
+        int firstX = graphToScreenX(shadeStart);
+        int lastX = graphToScreenX(shadeEnd);
+        double[] xs = new double[Math.max(0, lastX - firstX + 1)];
+        double[] ys = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = settings.getxMin() + ((firstX + i) / (double) getWidth()) * xRange;
+        }
+        sample(shadedFunction, fastMath, xs, ys);
 
         GeneralPath path = new GeneralPath();
+        // Start from the left boundary at the x-axis (y=0)
+        path.moveTo(firstX, graphToScreenY(0));
         
-        try {
-            // Start from the left boundary at the x-axis (y=0)
-            path.moveTo(graphToScreenX(shadeStart), graphToScreenY(0));
-            
-            // Draw the function curve from start to end
-            for (int screenX = graphToScreenX(shadeStart); screenX <= graphToScreenX(shadeEnd); screenX++) {
-                double x = settings.getxMin() + (screenX / (double) getWidth()) * xRange;
-                if (x >= shadeStart && x <= shadeEnd) {
-                    try {
-                        double y = shadedFunction.evaluate(x);
-                        if (Double.isFinite(y)) {
-                            double screenY = graphToScreenY(y);
-                            path.lineTo(screenX, screenY);
-                        }
-                    } catch (Exception e) {
-                        // Skip points where function evaluation fails
-                    }
-                }
+        // Draw the function curve from start to end, skipping points outside its domain
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] >= shadeStart && xs[i] <= shadeEnd && Double.isFinite(ys[i])) {
+                path.lineTo(firstX + i, graphToScreenY(ys[i]));
             }
-            
-            // Close the path by going back to the x-axis
-            path.lineTo(graphToScreenX(shadeEnd), graphToScreenY(0));
-            path.closePath();
-            
-            // Fill the shaded area
-            g2d.fill(path);
-            
-        } catch (Exception e) {
-            // Skip shading if function evaluation fails
         }
+        
+        // Close the path by going back to the x-axis
+        path.lineTo(lastX, graphToScreenY(0));
+        path.closePath();
+        
+        // Fill the shaded area
+        g2d.fill(path);
     }
 
     private void drawInteractiveCursor(Graphics2D g2d) {
@@ -66,6 +66,13 @@ public class MainFrame extends JFrame {
         fileMenu.add(exportJsonItem);
         fileMenu.add(importJsonItem);
         menuBar.add(fileMenu);
+
+        JMenu viewMenu = new JMenu("View");
+        JCheckBoxMenuItem fastMathItem = new JCheckBoxMenuItem("Fast Approximate Rendering");
+        fastMathItem.setToolTipText("Draw curves with faster, sub-pixel accurate math; results are unaffected");
+        fastMathItem.addActionListener(e -> graphPanel.setFastMath(fastMathItem.isSelected()));
+        viewMenu.add(fastMathItem);
+        menuBar.add(viewMenu);
         setJMenuBar(menuBar);
     }
 
@@ -135,7 +142,7 @@ public class MainFrame extends JFrame {
                 // First pass: create all normal functions
                 for (FunctionDTO dto : functionDTOs) {
                     if (!isDerivativeExpression(dto.expression)) {
-                        Function f = new Function(dto.expression, new Color(dto.colorRGB));
+                        Function f = new Function(dto.expression, new Color(dto.colorRGB), Function.ELIMINATE_COMMON_SUBEXPRESSIONS);
                         f.setVisible(dto.visible);
                         importedFunctions.add(f);
                         graphPanel.addFunction(f);
@@ -170,7 +177,7 @@ public class MainFrame extends JFrame {
                 base = importedFunctions.stream().filter(fn -> fn.getExpression().equals(innerExpr)).findFirst().orElse(null);
                 if (base == null) {
                     try {
-                        base = new Function(innerExpr, new Color(colorRGB));
+                        base = new Function(innerExpr, new Color(colorRGB), Function.ELIMINATE_COMMON_SUBEXPRESSIONS);
                         importedFunctions.add(base);
                     } catch (Exception e) {
                         return null;
@@ -0,0 +1,96 @@
+package com.mathplotter.view;
+
+import com.mathplotter.expression.Expression;
+import com.mathplotter.expression.Parameter;
+import com.mathplotter.expression.Parameters;
+import com.mathplotter.model.Function;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * One slider per parameter used by the plotted functions.
+ * Moving a slider only rebinds the parameter and repaints; no expression is parsed again.
+ */
+public class ParameterPanel extends JPanel {
+
+    // Slider positions per unit; the range is [-RANGE, RANGE]
+    private static final int STEPS_PER_UNIT = 100;
+    private static final int RANGE = 10;
+
+    private final GraphPanel graphPanel;
+    private List<Parameter> shownParameters = new ArrayList<>();
+
+    public ParameterPanel(GraphPanel graphPanel) {
+        this.graphPanel = graphPanel;
+        setLayout(new GridBagLayout());
+        setBorder(BorderFactory.createTitledBorder("Parameters"));
+        setVisible(false);
+    }
+
+    /**
+     * Shows a slider for every parameter referenced by the given functions.
+     */
+    public void updateParameters(List<Function> functions) {
+        Set<Parameter> used = new TreeSet<>((p, q) -> p.getName().compareTo(q.getName()));
+        for (Function function : functions) {
+            Expression tree = function.getExpressionTree();
+            if (tree != null) {
+                used.addAll(Parameters.referencedBy(tree));
+            }
+        }
+        List<Parameter> parameters = new ArrayList<>(used);
+        if (parameters.equals(shownParameters)) {
+            return;
+        }
+        shownParameters = parameters;
+        removeAll();
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(1, 2, 1, 2);
+        gbc.gridy = 0;
+        for (Parameter parameter : parameters) {
+            addRow(parameter, gbc);
+            gbc.gridy++;
+        }
+        setVisible(!parameters.isEmpty());
+        revalidate();
+        repaint();
+    }
+
+    private void addRow(Parameter parameter, GridBagConstraints gbc) {
+        JLabel nameLabel = new JLabel(parameter.getName() + " =");
+        JLabel valueLabel = new JLabel(format(parameter.getValue()));
+        valueLabel.setPreferredSize(new Dimension(50, valueLabel.getPreferredSize().height));
+        int position = (int) Math.round(Math.max(-RANGE, Math.min(RANGE, parameter.getValue())) * STEPS_PER_UNIT);
+        JSlider slider = new JSlider(-RANGE * STEPS_PER_UNIT, RANGE * STEPS_PER_UNIT, position);
+        slider.addChangeListener(e -> {
+            double value = slider.getValue() / (double) STEPS_PER_UNIT;
+            parameter.setValue(value);
+            valueLabel.setText(format(value));
+            // Only a re-sample is needed: every function reads the parameter on evaluation
+            graphPanel.repaint();
+        });
+
+        gbc.gridx = 0;
+        gbc.weightx = 0;
+        gbc.fill = GridBagConstraints.NONE;
+        add(nameLabel, gbc);
+        gbc.gridx = 1;
+        gbc.weightx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        add(slider, gbc);
+        gbc.gridx = 2;
+        gbc.weightx = 0;
+        gbc.fill = GridBagConstraints.NONE;
+        add(valueLabel, gbc);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
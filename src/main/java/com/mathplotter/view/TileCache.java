@@ -0,0 +1,171 @@
+package com.mathplotter.view;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Memory-bounded cache of rendered curve tiles, as in a map viewer.
+ * Graph space is cut into squares of {@link #TILE_SIZE} pixels at each zoom level, addressed by
+ * the zoom levels of x and y and the column and row of the tile, counted from the origin.
+ * There are {@link #LEVELS_PER_DOUBLING} levels per doubling of scale; the view shows the tiles
+ * of the level nearest its scale, stretched or shrunk by less than the step between levels.
+ * A tile only depends on those and on what is plotted, so panning back over a region, or
+ * zooming within a level, blits its tiles again instead of sampling and stroking the curves.
+ * The least recently used tiles are
+ * evicted once they take more than the {@code mathplotter.tiles.memory} system property in
+ * megabytes (default 64), or than twice the tiles of the view on very large screens.
+ */
+final class TileCache {
+
+    /** Width and height of a tile in pixels. */
+    static final int TILE_SIZE = 256;
+    static final int DEFAULT_MEMORY_MB = 64;
+    /**
+     * Zoom levels per doubling of scale. Tiles are shown at most 2^(1/8), about 9%, off the
+     * scale they were rendered at, which is not noticeable in a stroked curve, and a zoom
+     * only needs new tiles every fourth root of two.
+     */
+    static final int LEVELS_PER_DOUBLING = 4;
+    // Levels either way whose tiles may stand in for missing ones
+    private static final int STAND_IN_RANGE = 2 * LEVELS_PER_DOUBLING;
+    /**
+     * Offsets from a zoom level to the levels whose tiles may stand in for its missing ones,
+     * nearest first, as {x offset, y offset}. Zooming keeps x and y within a level of each
+     * other, so the offsets are too.
+     */
+    static final List<int[]> STAND_IN_LEVELS = standInLevels();
+
+    private final long configuredBytes;
+    private long maxBytes;
+    // Access-ordered, so iteration starts at the least recently used tile; guarded by this
+    private final Map<Key, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    // What the tiles show, apart from the view
+    private Object contents;
+
+    TileCache() {
+        this(Integer.getInteger("mathplotter.tiles.memory", DEFAULT_MEMORY_MB) * (1L << 20));
+    }
+
+    TileCache(long maxBytes) {
+        this.configuredBytes = maxBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the zoom level closest to the given scale in pixels per unit.
+     */
+    static long level(double scale) {
+        return Math.round(Math.log(scale) / Math.log(2) * LEVELS_PER_DOUBLING);
+    }
+
+    /**
+     * Returns the scale in pixels per unit that tiles of a zoom level are rendered at.
+     */
+    static double scale(long level) {
+        return Math.pow(2, level / (double) LEVELS_PER_DOUBLING);
+    }
+
+    private static List<int[]> standInLevels() {
+        List<int[]> offsets = new ArrayList<>();
+        for (int dx = -STAND_IN_RANGE; dx <= STAND_IN_RANGE; dx++) {
+            for (int dy = dx - 1; dy <= dx + 1; dy++) {
+                if ((dx != 0 || dy != 0) && Math.abs(dy) <= STAND_IN_RANGE) offsets.add(new int[] {dx, dy});
+            }
+        }
+        // Nearest first; between equally near levels, finer tiles shrink better than coarse ones grow
+        offsets.sort(Comparator.<int[]>comparingInt(o -> Math.abs(o[0]) + Math.abs(o[1]))
+                .thenComparingInt(o -> -(o[0] + o[1])));
+        return Collections.unmodifiableList(offsets);
+    }
+
+    /**
+     * Drops every tile unless the contents are equal to those of the tiles already cached,
+     * for example the plotted functions and their colours.
+     */
+    synchronized void validate(Object contents) {
+        if (!contents.equals(this.contents)) {
+            clear();
+            this.contents = contents;
+        }
+    }
+
+    /**
+     * Makes room for at least the given number of bytes of tiles, beyond the configured limit
+     * if need be: the tiles of one view must fit, or they would evict each other for ever.
+     */
+    synchronized void reserve(long bytes) {
+        maxBytes = Math.max(configuredBytes, bytes);
+    }
+
+    /**
+     * Returns the tile at the given address, or null if it is not cached.
+     */
+    synchronized BufferedImage get(long xLevel, long yLevel, long column, long row) {
+        return tiles.get(new Key(xLevel, yLevel, column, row));
+    }
+
+    synchronized void put(long xLevel, long yLevel, long column, long row, BufferedImage tile) {
+        BufferedImage previous = tiles.put(new Key(xLevel, yLevel, column, row), tile);
+        if (previous != null) bytes -= bytesOf(previous);
+        bytes += bytesOf(tile);
+        Iterator<BufferedImage> eldest = tiles.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            BufferedImage evicted = eldest.next();
+            // Never evict the tile just added
+            if (evicted == tile) break;
+            bytes -= bytesOf(evicted);
+            eldest.remove();
+        }
+    }
+
+    synchronized int size() {
+        return tiles.size();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized void clear() {
+        tiles.clear();
+        bytes = 0;
+    }
+
+    private static long bytesOf(BufferedImage tile) {
+        return 4L * tile.getWidth() * tile.getHeight();
+    }
+
+    private static final class Key {
+        private final long xLevel;
+        private final long yLevel;
+        private final long column;
+        private final long row;
+
+        Key(long xLevel, long yLevel, long column, long row) {
+            this.xLevel = xLevel;
+            this.yLevel = yLevel;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return xLevel == other.xLevel && yLevel == other.yLevel && column == other.column && row == other.row;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(xLevel, yLevel, column, row);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mathplotter.expression.BinaryOperation.Operator;
+import com.mathplotter.utils.MathParser;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class CommonSubexpressionsTest {
+
+    private static final double[] XS = {-2, -0.5, 0, 0.3, 1, 2.5, 7, Double.NaN};
+
+    @Test
+    void equalSubtreesBecomeOneNode() throws Exception {
+        Expression tree = CommonSubexpressions.eliminate(new MathParser("sin(x)^2+cos(x)*sin(x)+sin(x)").getTree());
+        BinaryOperation outer = (BinaryOperation) tree;
+        BinaryOperation inner = (BinaryOperation) outer.getLeft();
+        Expression square = ((BinaryOperation) inner.getLeft()).getLeft();
+        Expression product = ((BinaryOperation) inner.getRight()).getRight();
+        assertSame(outer.getRight(), square);
+        assertSame(outer.getRight(), product);
+        Set<Expression> shared = CommonSubexpressions.sharedNodes(tree);
+        assertEquals(1, shared.size());
+        assertTrue(shared.contains(outer.getRight()));
+    }
+
+    @Test
+    void treesWithoutRepetitionShareNothing() throws Exception {
+        Expression tree = CommonSubexpressions.eliminate(new MathParser("sin(x)+cos(2*x)").getTree());
+        assertTrue(CommonSubexpressions.sharedNodes(tree).isEmpty());
+        assertFalse(new SharedSubexpressionEvaluator(tree).isSharing());
+    }
+
+    @Test
+    void subtreesAreMergedAcrossExpressions() throws Exception {
+        List<Expression> merged = CommonSubexpressions.eliminate(Arrays.asList(
+                new MathParser("sin(x)+1").getTree(), new MathParser("2*sin(x)").getTree()));
+        assertSame(((BinaryOperation) merged.get(0)).getLeft(), ((BinaryOperation) merged.get(1)).getRight());
+        assertEquals(1, CommonSubexpressions.sharedNodes(merged).size());
+    }
+
+    @Test
+    void sharedNodesAreComputedOncePerEvaluation() {
+        AtomicInteger calls = new AtomicInteger();
+        UnaryFunction counted = new UnaryFunction("counted", x -> {
+            calls.incrementAndGet();
+            return Math.sin(x);
+        });
+        Expression shared = new FunctionCall(counted, Variable.X);
+        // counted(x)^2 + cos(x)*counted(x) + counted(x)
+        Expression tree = new BinaryOperation(Operator.ADD,
+                new BinaryOperation(Operator.ADD,
+                        new BinaryOperation(Operator.POWER, shared, new Constant(2)),
+                        new BinaryOperation(Operator.MULTIPLY, new FunctionCall(FunctionRegistry.COS, Variable.X), shared)),
+                shared);
+        SharedSubexpressionEvaluator evaluator = new SharedSubexpressionEvaluator(tree);
+
+        calls.set(0);
+        double value = evaluator.evaluate(0.7);
+        assertEquals(1, calls.get());
+        calls.set(0);
+        assertEquals(tree.evaluate(0.7), value);
+        assertEquals(3, calls.get());
+
+        double[] ys = new double[XS.length];
+        calls.set(0);
+        evaluator.evaluate(XS, ys, XS.length);
+        assertEquals(XS.length, calls.get());
+
+        Expression other = new BinaryOperation(Operator.MULTIPLY, new Constant(3), shared);
+        double[][] both = new double[2][XS.length];
+        calls.set(0);
+        new SharedSubexpressionEvaluator(Arrays.asList(tree, other)).evaluate(XS, both, XS.length);
+        assertEquals(XS.length, calls.get());
+        for (int i = 0; i < XS.length; i++) {
+            assertEquals(tree.evaluate(XS[i]), both[0][i]);
+            assertEquals(other.evaluate(XS[i]), both[1][i]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "sin(x)^2+cos(x)*sin(x)+sin(x)", "exp(-x^2)/(1+exp(-x^2))", "log(2,x+1)+log(2,x+1)^3",
+            "sqrt(x*x+1)-1/sqrt(x*x+1)", "-(x+1)*(x+1)", "atan(x)*atan(x)+2", "x^x+x^x"})
+    void sharedEvaluationMatchesTheTree(String expression) throws Exception {
+        Expression tree = CommonSubexpressions.eliminate(new MathParser(expression).getTree());
+        SharedSubexpressionEvaluator evaluator = new SharedSubexpressionEvaluator(tree);
+        assertTrue(evaluator.isSharing(), expression);
+        double[] ys = new double[XS.length];
+        evaluator.evaluate(XS, ys, XS.length);
+        for (int i = 0; i < XS.length; i++) {
+            double expected = tree.evaluate(XS[i]);
+            assertEquals(expected, evaluator.evaluate(XS[i]), expression + " at x=" + XS[i]);
+            assertEquals(expected, ys[i], expression + " in a batch at x=" + XS[i]);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.mathplotter.utils.MathParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class DifferentiatorTest {
+
+    // Points inside the domain of every expression below, away from kinks
+    private static final double[] XS = {0.13, 0.4, 0.7, 0.9};
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "x", "7", "x^2", "x^3-2*x+1", "1/x", "x/(x^2+1)", "-x^5", "sqrt(x)", "x^0.5", "x^-2",
+            "2^x", "x^x", "exp(-x^2)", "log(x)", "log10(3*x)", "log(2,x)", "sin(x)^2+cos(x)*sin(x)",
+            "tan(x)", "asin(x)", "acos(x)", "atan(3*x)", "abs(x-2)", "sin(sin(sin(x)))", "ceil(x)*x",
+            "erf(x)"})
+    void derivativeMatchesCentralDifferences(String expression) throws Exception {
+        Expression f = new MathParser(expression).getTree();
+        Expression derivative = Differentiator.differentiate(f);
+        assertNotNull(derivative, expression);
+        for (double x : XS) {
+            double h = 1e-6;
+            double expected = (f.evaluate(x + h) - f.evaluate(x - h)) / (2 * h);
+            assertEquals(expected, derivative.evaluate(x), 1e-6 * Math.max(1, Math.abs(expected)),
+                    "d/dx " + expression + " at x=" + x);
+        }
+    }
+
+    @Test
+    void secondDerivativeMatchesCentralDifferences() throws Exception {
+        Expression f = new MathParser("x^3*sin(x)").getTree();
+        Expression second = Differentiator.differentiate(Differentiator.differentiate(f));
+        for (double x : XS) {
+            double h = 1e-4;
+            double expected = (f.evaluate(x + h) - 2 * f.evaluate(x) + f.evaluate(x - h)) / (h * h);
+            assertEquals(expected, second.evaluate(x), 1e-5 * Math.max(1, Math.abs(expected)));
+        }
+    }
+
+    @Test
+    void derivativeIsSimplified() throws Exception {
+        assertEquals("0.0", Differentiator.differentiate(new MathParser("5+pi").getTree()).toString());
+        assertEquals("1.0", Differentiator.differentiate(new MathParser("x+1").getTree()).toString());
+    }
+
+    @Test
+    void functionsWithoutKnownDerivativeHaveNone() throws Exception {
+        assertNull(Differentiator.differentiate(new MathParser("gamma(x)").getTree()));
+        assertNull(Differentiator.differentiate(new MathParser("1+2*atan2(x,1)").getTree()));
+        assertNull(Differentiator.differentiate(new MathParser("-sin(gamma(x))").getTree()));
+        // A function of a constant has derivative zero whatever the function
+        assertNotNull(Differentiator.differentiate(new MathParser("x+gamma(2)").getTree()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.mathplotter.utils.MathParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class DualNumberEvaluatorTest {
+
+    private static final double[] XS = {0.13, 0.4, 0.7, 0.9, 1.6, 2.5};
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "x", "3", "x^2", "x^3-2*x+1", "1/x", "x/(x^2+1)", "sqrt(x)", "x^1.5", "2^x", "x^x",
+            "exp(-x^2)", "log(x)", "log10(x)", "log(3,x)", "sin(x)^2+cos(x)*sin(x)", "tan(x/2)",
+            "atan(x)", "abs(x-2)", "-x^4", "sin(sin(x))*exp(x)"})
+    void jetsMatchSymbolicDerivatives(String expression) throws Exception {
+        Expression f = new MathParser(expression).getTree();
+        Expression first = Differentiator.differentiate(f);
+        Expression second = Differentiator.differentiate(first);
+        double[] values = new double[XS.length];
+        double[] firsts = new double[XS.length];
+        double[] seconds = new double[XS.length];
+        DualNumberEvaluator.evaluate(f, XS, values, firsts, seconds);
+        for (int i = 0; i < XS.length; i++) {
+            double x = XS[i];
+            double[] jet = DualNumberEvaluator.evaluate(f, x);
+            assertClose(f.evaluate(x), jet[0], expression + " at x=" + x);
+            assertClose(first.evaluate(x), jet[1], expression + "' at x=" + x);
+            assertClose(second.evaluate(x), jet[2], expression + "'' at x=" + x);
+            assertEquals(jet[0], values[i]);
+            assertEquals(jet[1], firsts[i]);
+            assertEquals(jet[2], seconds[i]);
+        }
+    }
+
+    @Test
+    void functionsWithoutAnalyticDerivativeAreDifferentiatedNumerically() throws Exception {
+        Expression f = new MathParser("gamma(x)").getTree();
+        double x = 2.5;
+        double h = 1e-4;
+        double[] jet = DualNumberEvaluator.evaluate(f, x);
+        assertEquals(f.evaluate(x), jet[0]);
+        assertEquals((f.evaluate(x + h) - f.evaluate(x - h)) / (2 * h), jet[1], 1e-6);
+        assertEquals((f.evaluate(x + h) - 2 * f.evaluate(x) + f.evaluate(x - h)) / (h * h), jet[2], 1e-4);
+    }
+
+    @Test
+    void parametersAreConstants() throws Exception {
+        Parameter a = Parameters.get("a");
+        double old = a.getValue();
+        try {
+            a.setValue(3);
+            double[] jet = DualNumberEvaluator.evaluate(new MathParser("a*x^2").getTree(), 2);
+            assertEquals(12, jet[0]);
+            assertEquals(12, jet[1]);
+            assertEquals(6, jet[2]);
+        } finally {
+            a.setValue(old);
+        }
+    }
+
+    private static void assertClose(double expected, double actual, String message) {
+        assertEquals(expected, actual, 1e-12 * Math.max(1, Math.abs(expected)), message);
+    }
+}
@@ -0,0 +1,40 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.mathplotter.utils.MathParser;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ExpressionCompilerTest {
+
+    private static final double[] XS = {
+            -1000, -7.5, -Math.PI, -2, -1, -0.5, -1e-9, 0, 1e-9, 0.25, 0.5, 1, 2, Math.E, 3, 10, 1e6,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "x", "42", "-x", "x+1", "2*x-3", "x/3", "1/x", "x^2", "x^3", "x^0.5", "2^x", "x^x",
+            "sin(x)", "cos(2*x)+tan(x)", "sqrt(x)", "abs(x-1)", "log(x)", "log10(x)", "exp(-x^2)",
+            "asin(x)", "acos(x/2)", "atan(x)", "ceil(x)", "floor(-x)", "log(2,x)",
+            "sin(x)^2+cos(x)*sin(x)+sin(x)", "(x^2-1)/(x-1)", "-(x+pi)*e", "x*0", "0/x"})
+    void compiledAndBatchEvaluationMatchTheInterpreter(String expression) throws Exception {
+        Expression tree = new MathParser(expression).getTree();
+        assertMatchesInterpreter(tree, expression);
+        assertMatchesInterpreter(CommonSubexpressions.eliminate(tree), expression + " with shared subexpressions");
+    }
+
+    private static void assertMatchesInterpreter(Expression tree, String description) {
+        DoubleUnaryOperator compiled = ExpressionCompiler.compile(tree);
+        assertNotNull(compiled, description);
+        double[] batch = new double[XS.length];
+        tree.evaluate(XS, batch, XS.length);
+        for (int i = 0; i < XS.length; i++) {
+            double expected = tree.evaluate(XS[i]);
+            assertEquals(expected, compiled.applyAsDouble(XS[i]), description + " compiled at x=" + XS[i]);
+            assertEquals(expected, batch[i], description + " in a batch at x=" + XS[i]);
+        }
+    }
+}
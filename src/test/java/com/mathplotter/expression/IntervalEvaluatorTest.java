@@ -0,0 +1,76 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mathplotter.utils.MathParser;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class IntervalEvaluatorTest {
+
+    private static final int INTERVALS = 300;
+    private static final int SAMPLES = 64;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "x^2-3*x+1", "x^3-x", "(x-1)^4", "x^-2", "x^0.5", "x^-0.5", "x^1.5+x", "-x^5/120",
+            "sin(x)", "cos(3*x)+sin(x)^2", "tan(x)", "sqrt(x)+1", "abs(x-0.3)", "log(x)", "log10(x^2)",
+            "exp(-x^2)", "exp(x)*sin(x)", "asin(x/4)", "acos(x/7)", "atan(x)*x", "ceil(x)", "floor(x/2)",
+            "1/x", "1/(x^2-2)", "(x+1)/(x-1)", "log(2,x+3)", "x^x", "sin(1/x)", "sqrt(1-x^2)"})
+    void enclosureContainsEverySampledValue(String expression) throws Exception {
+        Expression tree = new MathParser(expression).getTree();
+        Random random = new Random(expression.hashCode());
+        for (int k = 0; k < INTERVALS; k++) {
+            double lower = -10 + 20 * random.nextDouble();
+            // Widths from about 1e-6 up to 10
+            double upper = lower + Math.pow(10, -6 + 7 * random.nextDouble());
+            Interval enclosure = IntervalEvaluator.evaluate(tree, lower, upper);
+            for (int i = 0; i <= SAMPLES; i++) {
+                double x = i == SAMPLES ? upper : lower + (upper - lower) * i / SAMPLES;
+                double y = tree.evaluate(x);
+                if (Double.isFinite(y)) {
+                    assertTrue(enclosure.contains(y),
+                            expression + " at x=" + x + " is " + y + ", outside " + enclosure + " for [" + lower + ", " + upper + "]");
+                }
+            }
+        }
+    }
+
+    @Test
+    void provesTheAbsenceOfRootsAndPoles() throws Exception {
+        Interval positive = IntervalEvaluator.evaluate(new MathParser("sin(x)^2+1").getTree(), -1, 1);
+        assertFalse(positive.contains(0));
+        assertTrue(positive.isBounded());
+        assertFalse(IntervalEvaluator.evaluate(new MathParser("exp(x)").getTree(), -50, 50).contains(0));
+        assertTrue(IntervalEvaluator.evaluate(new MathParser("1/(x-2)").getTree(), -1, 1).isBounded());
+        assertFalse(IntervalEvaluator.evaluate(new MathParser("tan(x)").getTree(), 1, 2).isBounded());
+    }
+
+    @Test
+    void leavesOutPointsWhereTheExpressionIsUndefined() throws Exception {
+        assertTrue(IntervalEvaluator.evaluate(new MathParser("sqrt(x)").getTree(), -2, -1).isEmpty());
+        assertTrue(IntervalEvaluator.evaluate(new MathParser("log(x)+1").getTree(), -2, 0).isEmpty());
+        Interval partly = IntervalEvaluator.evaluate(new MathParser("sqrt(x)").getTree(), -4, 4);
+        assertEquals(0, partly.getLower(), Double.MIN_VALUE);
+        assertTrue(partly.contains(2));
+    }
+
+    @Test
+    void parametersAreTakenAtTheirCurrentValue() throws Exception {
+        Expression tree = new MathParser("a*x").getTree();
+        Parameter a = Parameters.get("a");
+        double old = a.getValue();
+        try {
+            a.setValue(-2);
+            Interval enclosure = IntervalEvaluator.evaluate(tree, 1, 3);
+            assertTrue(enclosure.contains(-2) && enclosure.contains(-6));
+            assertFalse(enclosure.contains(0));
+        } finally {
+            a.setValue(old);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PolynomialTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    @Test
+    void findsSimpleRoots() {
+        assertRoots(Polynomial.of(-6, 11, -6, 1), 1, 2, 3);
+        assertRoots(Polynomial.of(0, -1, 0, 1), -1, 0, 1);
+        assertRoots(Polynomial.of(-2, 0, 1), -Math.sqrt(2), Math.sqrt(2));
+        assertRoots(Polynomial.of(3, 2), -1.5);
+        assertRoots(Polynomial.of(1, 0, 1));
+        assertRoots(Polynomial.of(1, 0, 0, 0, 1));
+        assertRoots(Polynomial.ZERO);
+    }
+
+    @Test
+    void findsMultipleRoots() {
+        // (x-1)^3
+        assertRoots(Polynomial.of(-1, 3, -3, 1), 1);
+        // (x-2)^4
+        assertRoots(Polynomial.of(16, -32, 24, -8, 1), 2);
+        // (x+1)^2 (x-3)
+        assertRoots(Polynomial.of(-3, -5, -1, 1), -1, 3);
+        // (x-0.5)^5
+        assertRoots(Polynomial.of(-0.5, 1).pow(5), 0.5);
+        // x^2 (x-1)^2 (x^2+1)
+        assertRoots(Polynomial.of(0, 0, 1, -2, 2, -2, 1), 0, 1);
+    }
+
+    @Test
+    void keepsCloseDistinctRootsApart() {
+        assertRoots(Polynomial.of(-1, 1).times(Polynomial.of(-1.001, 1)).times(Polynomial.of(5, 1)), -5, 1, 1.001);
+    }
+
+    private static void assertRoots(Polynomial p, double... expected) {
+        List<Double> roots = p.realRoots();
+        assertEquals(expected.length, roots.size(), p + " has roots " + roots);
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue(Math.abs(roots.get(i) - expected[i]) <= TOLERANCE,
+                    p + " has roots " + roots + ", expected " + Arrays.toString(expected));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mathplotter.exceptions.MathParsingException;
+import com.mathplotter.model.Function;
+import com.mathplotter.utils.MathParser;
+import java.awt.Color;
+import org.junit.jupiter.api.Test;
+
+class RationalFunctionTest {
+
+    @Test
+    void leavesProductsWithARepeatedRootToTheTree() throws MathParsingException {
+        String product = "(x-1)*(x-1)*(x-1)*(x-1)*(x-1)";
+        assertNull(RationalFunction.recognize(new MathParser(product).getTree()));
+        Function function = new Function(product, Color.BLACK);
+        Polynomial expanded = Polynomial.of(-1, 5, -10, 10, -5, 1);
+        for (double d = 1e-3; d > 1e-5; d /= 3) {
+            for (double x : new double[] {1 - d, 1 + d}) {
+                double exact = Math.pow(x - 1, 5);
+                assertEquals(exact, function.evaluate(x), 1e-12 * Math.abs(exact));
+                // Horner's scheme on the expanded coefficients is off by far more than the value
+                assertTrue(Math.abs(expanded.evaluate(x) - exact) > 1e-3 * Math.abs(exact));
+            }
+        }
+    }
+
+    @Test
+    void expandsProductsOfMonomialsAndLinearFactors() throws MathParsingException {
+        RationalFunction quadratic = RationalFunction.recognize(new MathParser("(x+1)*(x-2)").getTree());
+        assertNotNull(quadratic);
+        assertEquals(2, quadratic.getNumerator().getDegree());
+        RationalFunction scaled = RationalFunction.recognize(new MathParser("3*x^2*(x-1)*(x+1)*(x-2)").getTree());
+        assertNull(scaled);
+        RationalFunction monomial = RationalFunction.recognize(new MathParser("3*x*x*x*(x-1)").getTree());
+        assertNotNull(monomial);
+        assertEquals(4, monomial.getNumerator().getDegree());
+    }
+
+    @Test
+    void hornerMatchesTheTreeAwayFromRepeatedRoots() throws MathParsingException {
+        Expression tree = new MathParser("(x-1)*(x+2)/(x*x+1)").getTree();
+        RationalFunction rational = RationalFunction.recognize(tree);
+        assertNotNull(rational);
+        for (double x = -3; x <= 3; x += 0.125) {
+            double expected = tree.evaluate(x);
+            assertEquals(expected, rational.evaluate(x), 1e-14 * Math.max(1, Math.abs(expected)));
+        }
+    }
+}
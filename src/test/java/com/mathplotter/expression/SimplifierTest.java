@@ -0,0 +1,95 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mathplotter.expression.BinaryOperation.Operator;
+import com.mathplotter.utils.MathParser;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SimplifierTest {
+
+    private static final double[] XS = {
+            -4, -1, -0.5, 0, 0.5, 1, 2, 10, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    private static final Expression X = Variable.X;
+
+    @Test
+    void foldsConstantSubtrees() throws Exception {
+        assertSimplifiesTo("2*pi", Double.toString(2 * Math.PI));
+        assertSimplifiesTo("sin(pi/2)+1", "2.0");
+        assertSimplifiesTo("log(2,8)", Double.toString(Math.log(8) / Math.log(2)));
+        assertSimplifiesTo("x+(2*3)", "(x+6.0)");
+        assertSimplifiesTo("-(-x)", "x");
+    }
+
+    @Test
+    void removesIdentities() throws Exception {
+        assertSimplifiesTo("x+0", "x");
+        assertSimplifiesTo("0+x", "x");
+        assertSimplifiesTo("x-0", "x");
+        assertSimplifiesTo("1*x", "x");
+        assertSimplifiesTo("x*1", "x");
+        assertSimplifiesTo("x/1", "x");
+        assertSimplifiesTo("x^1", "x");
+        assertSimplifiesTo("sin(x)^1", "sin(x)");
+        assertSimplifiesTo("x-(-sin(x))", "(x+sin(x))");
+    }
+
+    @Test
+    void expandsSmallIntegerPowersOfX() throws Exception {
+        assertSimplifiesTo("x^2", "(x*x)");
+        assertSimplifiesTo("x^3", "((x*x)*x)");
+        assertSimplifiesTo("x^-2", "(1.0/(x*x))");
+        assertSimplifiesTo("x^5", "(x^5.0)");
+        assertSimplifiesTo("x^0.5", "(x^0.5)");
+    }
+
+    @Test
+    void keepsZeroTimesAnUnknownOperand() throws Exception {
+        // 0*u and 0/u must stay NaN where u is, so the curve keeps the gaps of its domain
+        for (String expression : new String[] {"0*log(x)", "log(x)*0", "0/sqrt(x)", "0*x", "0/x"}) {
+            assertTrue(Double.isNaN(new MathParser(expression).getTree().evaluate(Double.NaN)), expression);
+        }
+        assertTrue(Double.isNaN(new MathParser("0*log(x)").getTree().evaluate(-1)));
+        assertTrue(Double.isNaN(new MathParser("0/sqrt(x)").getTree().evaluate(-1)));
+        assertTrue(Double.isNaN(new MathParser("0/x").getTree().evaluate(0)));
+        assertSimplifiesTo("0*5", "0.0");
+        assertSimplifiesTo("0/5", "0.0");
+    }
+
+    @Test
+    void simplifiedTreesTakeTheSameValues() {
+        Expression log = new FunctionCall(FunctionRegistry.LOG, X);
+        List<Expression> trees = Arrays.asList(
+                new BinaryOperation(Operator.ADD, X, new Constant(0)),
+                new BinaryOperation(Operator.MULTIPLY, new Constant(1), log),
+                new BinaryOperation(Operator.MULTIPLY, new Constant(0), log),
+                new BinaryOperation(Operator.DIVIDE, new Constant(0), X),
+                new BinaryOperation(Operator.POWER, X, new Constant(3)),
+                new BinaryOperation(Operator.POWER, X, new Constant(-4)),
+                new BinaryOperation(Operator.POWER, log, new Constant(1)),
+                new BinaryOperation(Operator.SUBTRACT, X, new Negation(new Constant(2))),
+                new Negation(new Negation(new FunctionCall(FunctionRegistry.SQRT, X))),
+                new BinaryOperation(Operator.MULTIPLY,
+                        new BinaryOperation(Operator.MULTIPLY, new Constant(2), new Constant(Math.PI)), X));
+        for (Expression tree : trees) {
+            Expression simplified = Simplifier.simplify(tree);
+            for (double x : XS) {
+                assertEquals(tree.evaluate(x), simplified.evaluate(x), tree + " -> " + simplified + " at x=" + x);
+            }
+        }
+    }
+
+    @Test
+    void leavesParametersUnfolded() throws Exception {
+        assertSimplifiesTo("a*1+0", "a");
+        assertSimplifiesTo("0*a", "(0.0*a)");
+    }
+
+    private static void assertSimplifiesTo(String expression, String expected) throws Exception {
+        assertEquals(expected, new MathParser(expression).getTree().toString(), expression);
+    }
+}
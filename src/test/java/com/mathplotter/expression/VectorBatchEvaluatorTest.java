@@ -0,0 +1,83 @@
+package com.mathplotter.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.mathplotter.utils.MathParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Runs the SIMD evaluator against the scalar one. Only runs in builds with the {@code vector}
+ * profile, where the SIMD evaluator is available.
+ */
+class VectorBatchEvaluatorTest {
+
+    // Lengths that leave remainders of every size after the full vectors
+    private static final int[] LENGTHS = {1, 3, 7, 8, 13, 64, 101};
+    // Lanes that must come out NaN or infinite as in the scalar evaluator
+    private static final double[] SPECIAL = {
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.0, -0.0, -1, 1, 1e-300, -1e300};
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "x+1", "x-2.5", "3*x", "x/7", "1/x", "x/(x-1)", "-x", "-(x*x)+x", "(x+1)^5", "(x-2)^-3",
+            "(x+0.5)^0.5", "x^x", "(x+1)^(x-1)", "sin(x)", "cos(3*x)", "tan(x)", "sqrt(x)", "abs(x)",
+            "log(x)", "log10(x)", "exp(x)", "exp(-x^2)", "asin(x/3)", "acos(x)", "atan(x)", "floor(x)+ceil(x)",
+            "log(2,x)", "hypot(x,3)", "sin(x)^2+cos(x)^2", "exp(x)/(1+exp(x))", "sqrt(1-x^2)*log(x+2)",
+            "tan(x)^3-1/(x*x-4)", "0*log(x)", "a*x^2+sin(a*x)"})
+    void matchesTheScalarEvaluator(String expression) throws Exception {
+        assumeTrue(BatchEvaluators.isVectorAvailable());
+        Expression tree = new MathParser(expression).getTree();
+        BatchEvaluator vector = vectorEvaluator();
+        for (int length : LENGTHS) {
+            double[] xs = new double[length];
+            for (int i = 0; i < length; i++) {
+                // Special values in every lane position, ordinary ones in between
+                xs[i] = i % 3 == 1 ? SPECIAL[(i / 3) % SPECIAL.length] : -6 + 12.0 * i / length;
+            }
+            double[] expected = new double[length];
+            double[] actual = new double[length];
+            BatchEvaluators.SCALAR.evaluate(tree, xs, expected, length);
+            vector.evaluate(tree, xs, actual, length);
+            for (int i = 0; i < length; i++) {
+                assertClose(expected[i], actual[i], expression + " at x=" + xs[i] + " of " + length);
+            }
+        }
+    }
+
+    @Test
+    void leavesTheRestOfTheOutputAlone() throws Exception {
+        assumeTrue(BatchEvaluators.isVectorAvailable());
+        double[] xs = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        double[] ys = new double[xs.length];
+        java.util.Arrays.fill(ys, 42);
+        vectorEvaluator().evaluate(new MathParser("sin(x)*(x+1)^3").getTree(), xs, ys, 5);
+        for (int i = 5; i < ys.length; i++) assertEquals(42, ys[i]);
+    }
+
+    private static BatchEvaluator vectorEvaluator() {
+        boolean enabled = BatchEvaluators.isVectorEnabled();
+        try {
+            assertTrue(BatchEvaluators.useVector(true));
+            BatchEvaluator vector = BatchEvaluators.current();
+            assertNotSame(BatchEvaluators.SCALAR, vector);
+            return vector;
+        } finally {
+            BatchEvaluators.useVector(enabled);
+        }
+    }
+
+    private static void assertClose(double expected, double actual, String message) {
+        if (Double.isNaN(expected) || Double.isInfinite(expected)) {
+            assertEquals(expected, actual, message);
+        } else {
+            // The SIMD elementary functions and repeated multiplication may differ in the last bits
+            assertTrue(Math.abs(expected - actual) <= 1e-12 * Math.max(1, Math.abs(expected)),
+                    message + ": expected " + expected + " but was " + actual);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.mathplotter.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mathplotter.expression.BatchEvaluators;
+import com.mathplotter.expression.DomainError;
+import com.mathplotter.utils.NumericalMethods;
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that evaluation allocates nothing once warmed up, in every tier and on both the scalar
+ * and the batch path, by watching the bytes allocated by the test thread.
+ */
+class FunctionAllocationTest {
+
+    private static final int BATCH_LENGTH = 256;
+    // Far below one array or boxed value per call, but above the noise of the measurement itself
+    private static final long TOLERANCE = 1024;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final double[] xs = new double[BATCH_LENGTH];
+    private final double[] ys = new double[BATCH_LENGTH];
+
+    FunctionAllocationTest() {
+        for (int i = 0; i < BATCH_LENGTH; i++) xs[i] = -3 + 6.0 * i / BATCH_LENGTH;
+    }
+
+    @Test
+    void interpretedEvaluationDoesNotAllocate() throws Exception {
+        // Calls stay below the compile threshold, so the function is interpreted throughout
+        Function scalar = new Function("sin(x)*x^3-log(2,abs(x)+1)/(x+5)", Color.BLACK);
+        assertNoAllocation(() -> scalar.evaluate(0.5), 1000, 3000);
+        Function batch = new Function("cos(x)*x^3+hypot(x,2)/(x+7)", Color.BLACK);
+        warmUpTwin(batch, false);
+        assertNoAllocation(() -> batch.evaluate(xs, ys), 2, 10);
+        assertEquals(Function.Tier.INTERPRETED, scalar.getTier());
+        assertEquals(Function.Tier.INTERPRETED, batch.getTier());
+    }
+
+    @Test
+    void sharedSubexpressionEvaluationDoesNotAllocate() throws Exception {
+        Function scalar = new Function("sin(x)^2+cos(x)*sin(x)+sin(x)", Color.BLACK, true);
+        assertNoAllocation(() -> scalar.evaluate(0.5), 1000, 3000);
+        Function batch = new Function("exp(-x^2)/(1+exp(-x^2))+log(2,x+4)^2", Color.BLACK, true);
+        warmUpTwin(batch, true);
+        assertNoAllocation(() -> batch.evaluate(xs, ys), 2, 10);
+        assertEquals(Function.Tier.INTERPRETED, scalar.getTier());
+        assertEquals(Function.Tier.INTERPRETED, batch.getTier());
+    }
+
+    @Test
+    void compiledEvaluationDoesNotAllocate() throws Exception {
+        Function f = compiled(new Function("exp(-x^2)*sin(3*x)+x/(x^2+1)", Color.BLACK));
+        assertNoAllocation(() -> f.evaluate(0.5), 1000, 10000);
+        settle(() -> f.evaluate(xs, ys), 10);
+        assertNoAllocation(() -> f.evaluate(xs, ys), 10, 100);
+    }
+
+    @Test
+    void rationalEvaluationDoesNotAllocate() throws Exception {
+        Function f = new Function("(x^3-2*x+1)/(x^2+1)", Color.BLACK);
+        assertNotNull(f.getRationalForm());
+        assertNoAllocation(() -> f.evaluate(0.5), 1000, 10000);
+        assertNoAllocation(() -> f.evaluate(xs, ys), 10, 100);
+    }
+
+    @Test
+    void symbolicDerivativeDoesNotAllocate() throws Exception {
+        Function derivative = NumericalMethods.derivative(new Function("x*sin(x)^2-atan(x)", Color.BLACK));
+        assertNotNull(derivative.getExpressionTree());
+        assertNoAllocation(() -> derivative.evaluate(0.5), 1000, 3000);
+        compiled(derivative);
+        assertNoAllocation(() -> derivative.evaluate(0.5), 1000, 10000);
+        settle(() -> derivative.evaluate(xs, ys), 10);
+        assertNoAllocation(() -> derivative.evaluate(xs, ys), 10, 100);
+    }
+
+    @Test
+    void differenceQuotientDerivativeDoesNotAllocate() throws Exception {
+        // gamma has no symbolic derivative, so this wraps central differences of f
+        Function derivative = NumericalMethods.derivative(new Function("gamma(x+4)", Color.BLACK));
+        assertNull(derivative.getExpressionTree());
+        assertNoAllocation(() -> derivative.evaluate(0.5), 1000, 10000);
+        assertNoAllocation(() -> derivative.evaluate(xs, ys), 10, 100);
+    }
+
+    @Test
+    void domainErrorWhereTheFunctionIsFiniteDoesNotAllocate() throws Exception {
+        // The status bar asks on every mouse move, for every visible function
+        Function f = new Function("log(x)+sqrt(4-x^2)/(x-1)", Color.BLACK);
+        assertNoAllocation(() -> f.getDomainError(0.5), 1000, 3000);
+        assertEquals(DomainError.NONE, f.getDomainError(0.5));
+        assertEquals(DomainError.LOG_OF_NON_POSITIVE, f.getDomainError(-0.5));
+        assertEquals(DomainError.SQRT_OF_NEGATIVE, f.getDomainError(3));
+        assertEquals(DomainError.DIVISION_BY_ZERO, f.getDomainError(1));
+    }
+
+    // The vector evaluator allocates its lanes until C2 has compiled it, which takes more calls
+    // than the compile threshold allows a function that must stay interpreted. A twin sharing
+    // the function's tree through the expression cache warms it up instead.
+    private void warmUpTwin(Function f, boolean eliminateCommonSubexpressions) throws Exception {
+        Function twin = new Function(f.getExpression(), Color.BLACK, eliminateCommonSubexpressions);
+        assertSame(f.getExpressionTree(), twin.getExpressionTree());
+        settle(() -> twin.evaluate(xs, ys), 10);
+    }
+
+    // Repeats rounds of calls until one allocates nothing, so that every path has been
+    // compiled, or until the JIT had more than enough time
+    private void settle(Runnable call, int calls) {
+        long id = Thread.currentThread().getId();
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            long before = threads.getThreadAllocatedBytes(id);
+            for (int i = 0; i < calls; i++) call.run();
+            if (threads.getThreadAllocatedBytes(id) - before < TOLERANCE) return;
+        }
+    }
+
+    // Evaluates f until it has been promoted to compiled code
+    private Function compiled(Function f) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (f.getTier() != Function.Tier.COMPILED && System.nanoTime() < deadline) {
+            f.evaluate(xs, ys);
+            Thread.sleep(1);
+        }
+        assertEquals(Function.Tier.COMPILED, f.getTier());
+        return f;
+    }
+
+    private void assertNoAllocation(Runnable call, int warmUp, int calls) {
+        for (int i = 0; i < warmUp; i++) call.run();
+        long id = Thread.currentThread().getId();
+        long overhead = threads.getThreadAllocatedBytes(id);
+        overhead = threads.getThreadAllocatedBytes(id) - overhead;
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < calls; i++) call.run();
+        long allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+        assertTrue(allocated < TOLERANCE, allocated + " bytes allocated by " + calls + " calls");
+    }
+}
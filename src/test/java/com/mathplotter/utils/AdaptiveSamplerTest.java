@@ -0,0 +1,160 @@
+package com.mathplotter.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.BiConsumer;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveSamplerTest {
+
+    // Pixels per unit on both axes
+    private static final double SCALE = 50;
+
+    @Test
+    void leavesStraightLinesAtTheInitialSamples() {
+        double[] xs = AdaptiveSampler.initialSamples(-10, 10, SCALE);
+        Polyline line = sample(x -> 3 * x - 1, -10, 10);
+        assertEquals(xs.length, line.size());
+        assertEquals(xs.length, line.getEvaluations());
+        assertEquals(0, jumps(line));
+    }
+
+    @Test
+    void refinesWhereTheCurveBends() {
+        DoubleUnaryOperator peak = x -> 5 * Math.exp(-400 * x * x);
+        Polyline polyline = sample(peak, -10, 10);
+        int nearPeak = 0;
+        int elsewhere = 0;
+        for (int i = 0; i < polyline.size(); i++) {
+            if (Math.abs(polyline.getX(i)) < 0.2) nearPeak++;
+            else if (Math.abs(polyline.getX(i)) > 1) elsewhere++;
+        }
+        // Away from the peak the initial samples suffice
+        assertTrue(nearPeak / 0.4 > 10 * elsewhere / 18.0, nearPeak + " samples near the peak, " + elsewhere + " elsewhere");
+        assertEquals(18 * SCALE / AdaptiveSampler.INITIAL_SPACING, elsewhere, 2);
+        // Between samples the curve stays within about a pixel of the chord
+        for (int i = 0; i < polyline.size() - 1; i++) {
+            double x0 = polyline.getX(i), x1 = polyline.getX(i + 1);
+            double middle = peak.applyAsDouble(0.5 * (x0 + x1));
+            double chord = 0.5 * (polyline.getY(i) + polyline.getY(i + 1));
+            assertTrue(Math.abs(middle - chord) * SCALE < 1, "off the chord between " + x0 + " and " + x1);
+        }
+        assertEquals(0, jumps(polyline));
+    }
+
+    @Test
+    void breaksTheCurveAtJumps() {
+        Polyline polyline = sample(Math::floor, -3.2, 3.3);
+        assertEquals(7, jumps(polyline));
+        for (int i = 0; i < polyline.size() - 1; i++) {
+            if (!polyline.jumpsAfter(i)) continue;
+            double x0 = polyline.getX(i), x1 = polyline.getX(i + 1);
+            assertTrue(Math.floor(x0) != Math.floor(x1), "jump between " + x0 + " and " + x1);
+            assertTrue((x1 - x0) * SCALE <= 1.0 / 16);
+        }
+    }
+
+    @Test
+    void joinsSteepButContinuousCurves() {
+        assertEquals(0, jumps(sample(x -> Math.atan(1000 * x), -2, 2)));
+        assertEquals(0, jumps(sample(x -> Math.cbrt(x), -2, 2)));
+    }
+
+    @Test
+    void resolvesTheEdgeOfTheDomain() {
+        Polyline polyline = sample(Math::sqrt, -1, 1);
+        double firstDefined = Double.NaN;
+        double lastUndefined = Double.NaN;
+        for (int i = 0; i < polyline.size(); i++) {
+            if (Double.isFinite(polyline.getY(i))) {
+                firstDefined = polyline.getX(i);
+                break;
+            }
+            lastUndefined = polyline.getX(i);
+        }
+        assertTrue(lastUndefined < 0 && firstDefined >= 0);
+        assertTrue((firstDefined - lastUndefined) * SCALE <= 1.0 / 16);
+    }
+
+    @Test
+    void staysWithinTheBudget() {
+        double[] xs = AdaptiveSampler.initialSamples(-1, 1, SCALE);
+        int budget = 100 * AdaptiveSampler.EVALUATIONS_PER_PIXEL;
+        Polyline polyline = AdaptiveSampler.sample(xs, values(x -> Math.sin(1 / x), xs), evaluator(x -> Math.sin(1 / x)),
+                SCALE, SCALE, budget);
+        assertTrue(polyline.getEvaluations() <= budget);
+    }
+
+    @Test
+    void resamplingKeepsSamplesStillInView() {
+        DoubleUnaryOperator f = x -> Math.sin(3 * x);
+        Polyline first = sample(f, -5, 5);
+        int[] evaluated = new int[1];
+        BiConsumer<double[], double[]> counting = (xs, ys) -> {
+            evaluated[0] += xs.length;
+            evaluator(f).accept(xs, ys);
+        };
+        // Panned by one unit: only the exposed strip is new
+        Polyline panned = AdaptiveSampler.resample(first, -4, 6, counting, SCALE, SCALE, budget(-4, 6));
+        assertEquals(evaluated[0], panned.getEvaluations());
+        assertTrue(panned.getEvaluations() < first.getEvaluations() / 4,
+                panned.getEvaluations() + " evaluations after a pan, " + first.getEvaluations() + " at first");
+        assertEquals(-4, panned.getX(0));
+        assertEquals(6, panned.getX(panned.size() - 1));
+        for (int i = 0; i < panned.size(); i++) {
+            assertEquals(f.applyAsDouble(panned.getX(i)), panned.getY(i));
+        }
+    }
+
+    @Test
+    void resamplingAChunkKeepsItsSamplesUpToBothEnds() {
+        DoubleUnaryOperator f = x -> Math.sin(3 * x);
+        Polyline first = sample(f, -5, 5);
+        // A chunk whose ends are samples of the earlier polyline, as when tiles are rendered again
+        double lower = first.getX(first.size() / 3);
+        double upper = first.getX(first.size() / 2);
+        int[] evaluated = new int[1];
+        Polyline chunk = AdaptiveSampler.resample(first, lower, upper, (xs, ys) -> {
+            evaluated[0] += xs.length;
+            evaluator(f).accept(xs, ys);
+        }, SCALE, SCALE, budget(lower, upper));
+        assertEquals(0, evaluated[0]);
+        assertEquals(lower, chunk.getX(0));
+        assertEquals(upper, chunk.getX(chunk.size() - 1));
+        for (int i = 1; i < chunk.size(); i++) {
+            assertTrue(chunk.getX(i) > chunk.getX(i - 1));
+        }
+    }
+
+    private static Polyline sample(DoubleUnaryOperator f, double lower, double upper) {
+        double[] xs = AdaptiveSampler.initialSamples(lower, upper, SCALE);
+        return AdaptiveSampler.sample(xs, values(f, xs), evaluator(f), SCALE, SCALE, budget(lower, upper));
+    }
+
+    private static int budget(double lower, double upper) {
+        return (int) ((upper - lower) * SCALE) * AdaptiveSampler.EVALUATIONS_PER_PIXEL;
+    }
+
+    private static double[] values(DoubleUnaryOperator f, double[] xs) {
+        double[] ys = new double[xs.length];
+        evaluator(f).accept(xs, ys);
+        return ys;
+    }
+
+    private static BiConsumer<double[], double[]> evaluator(DoubleUnaryOperator f) {
+        return (xs, ys) -> {
+            for (int i = 0; i < xs.length; i++) ys[i] = f.applyAsDouble(xs[i]);
+        };
+    }
+
+    private static int jumps(Polyline polyline) {
+        int jumps = 0;
+        for (int i = 0; i < polyline.size() - 1; i++) {
+            if (polyline.jumpsAfter(i)) jumps++;
+        }
+        return jumps;
+    }
+}
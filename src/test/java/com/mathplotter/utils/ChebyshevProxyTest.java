@@ -0,0 +1,86 @@
+package com.mathplotter.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mathplotter.expression.Parameter;
+import com.mathplotter.expression.Parameters;
+import java.util.Collections;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.jupiter.api.Test;
+
+class ChebyshevProxyTest {
+
+    @Test
+    void findsRootsOfSmoothFunctions() {
+        assertArrayEquals(new double[] {-Math.PI, 0, Math.PI, 2 * Math.PI}, proxy(Math::sin, -4, 7).roots(), 1e-12);
+        assertArrayEquals(new double[] {-Math.sqrt(2), Math.sqrt(2)}, proxy(x -> x * x - 2, -3, 3).roots(), 1e-12);
+        assertArrayEquals(new double[] {Math.log(3)}, proxy(x -> Math.exp(x) - 3, -2, 5).roots(), 1e-12);
+        // Zeros of cos(x^2) at sqrt(pi/2 + k pi), closer together as x grows
+        double[] roots = proxy(x -> Math.cos(x * x), 0, 4).roots();
+        assertEquals(5, roots.length);
+        for (int k = 0; k < roots.length; k++) {
+            assertEquals(Math.sqrt(Math.PI / 2 + k * Math.PI), roots[k], 1e-11);
+        }
+        assertEquals(0, proxy(x -> x * x + 1, -5, 5).roots().length);
+    }
+
+    @Test
+    void findsRootsAcrossKinks() {
+        ChebyshevProxy proxy = proxy(x -> Math.abs(x - 0.3) - 0.5, -2, 2);
+        assertTrue(proxy.getPieceCount() > 1);
+        assertArrayEquals(new double[] {-0.2, 0.8}, proxy.roots(), 1e-10);
+    }
+
+    @Test
+    void integratesSmoothFunctions() {
+        assertEquals(2, proxy(Math::sin, 0, Math.PI).integral(), 1e-13);
+        // sqrt(pi) erf(2)
+        assertEquals(Math.sqrt(Math.PI) * 0.9953222650189527, proxy(x -> Math.exp(-x * x), -2, 2).integral(), 1e-12);
+        assertEquals(Math.log(4), proxy(x -> 1 / x, 1, 4).integral(), 1e-13);
+        assertEquals(1.0 / 3, proxy(x -> x * x, 0, 1).integral(), 1e-15);
+        // Kink at 0: pieces on either side
+        assertEquals(2.5, proxy(Math::abs, -1, 2).integral(), 1e-12);
+    }
+
+    @Test
+    void findsExtrema() {
+        ChebyshevProxy proxy = proxy(x -> x * x * x - 3 * x, -3, 3);
+        assertArrayEquals(new double[] {-1}, proxy.maxima(), 1e-8);
+        assertArrayEquals(new double[] {1}, proxy.minima(), 1e-8);
+    }
+
+    @Test
+    void leavesPolesUnresolved() {
+        ChebyshevProxy proxy = proxy(x -> 1 / (x - 1), -2, 3);
+        assertFalse(proxy.isResolved());
+        for (double[] range : proxy.getUnresolvedRanges()) {
+            assertTrue(range[0] <= 1 && 1 <= range[1] || range[1] - range[0] < 1e-3);
+        }
+        assertEquals(0, proxy.roots().length);
+        assertEquals(1 / (2.5 - 1), proxy.evaluate(2.5), 1e-13);
+    }
+
+    @Test
+    void goesStaleWhenAParameterChanges() {
+        Parameter a = Parameters.get("a");
+        double old = a.getValue();
+        try {
+            a.setValue(2);
+            ChebyshevProxy proxy = ChebyshevProxy.build(x -> x - a.getValue(), -5, 5,
+                    ChebyshevProxy.EXACT_TOLERANCE, Collections.singleton(a));
+            assertArrayEquals(new double[] {2}, proxy.roots(), 1e-13);
+            assertTrue(proxy.isCurrent());
+            a.setValue(3);
+            assertFalse(proxy.isCurrent());
+        } finally {
+            a.setValue(old);
+        }
+    }
+
+    private static ChebyshevProxy proxy(DoubleUnaryOperator f, double lower, double upper) {
+        return ChebyshevProxy.build(f, lower, upper, ChebyshevProxy.EXACT_TOLERANCE, Collections.emptySet());
+    }
+}
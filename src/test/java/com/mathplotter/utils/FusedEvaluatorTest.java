@@ -0,0 +1,61 @@
+package com.mathplotter.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mathplotter.expression.BatchEvaluators;
+import com.mathplotter.model.Function;
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FusedEvaluatorTest {
+
+    private static final double[] XS = new double[1000];
+
+    static {
+        for (int i = 0; i < XS.length; i++) XS[i] = -5 + 10.0 * i / XS.length;
+    }
+
+    @Test
+    void fusedValuesMatchIndividualEvaluation() throws Exception {
+        List<Function> functions = Arrays.asList(new Function("sin(x)+1", Color.BLACK),
+                new Function("2*sin(x)", Color.BLACK), new Function("x^2-1", Color.BLACK));
+        FusedEvaluator fused = new FusedEvaluator(functions, false);
+        assertTrue(fused.isFused());
+        double[][] ys = fused.evaluate(XS);
+        for (int f = 0; f < functions.size(); f++) {
+            for (int i = 0; i < XS.length; i++) {
+                assertEquals(functions.get(f).evaluate(XS[i]), ys[f][i], 1e-15);
+            }
+        }
+    }
+
+    @Test
+    void fusedEvaluationsLeadToCompilation() throws Exception {
+        List<Function> functions = Arrays.asList(new Function("exp(-x^2)*cos(x)", Color.BLACK),
+                new Function("cos(x)/(1+x^2)", Color.BLACK));
+        FusedEvaluator fused = new FusedEvaluator(functions, false);
+        assertTrue(fused.isFused());
+        long calls = Function.COMPILE_THRESHOLD / XS.length + 1;
+        for (int i = 0; i < calls; i++) fused.evaluate(XS);
+        for (Function f : functions) {
+            assertTrue(f.getEvaluationCount() >= Function.COMPILE_THRESHOLD);
+            assertNotEquals(Function.Tier.INTERPRETED, f.getTier());
+        }
+
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (functions.stream().anyMatch(f -> f.getTier() == Function.Tier.COMPILING) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        for (Function f : functions) assertEquals(Function.Tier.COMPILED, f.getTier());
+        if (!BatchEvaluators.isVectorEnabled()) {
+            // Compiled functions are better off on their own
+            assertFalse(fused.isFor(functions, false));
+            assertFalse(new FusedEvaluator(functions, false).isFused());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mathplotter.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.mathplotter.exceptions.MathParsingException;
+import com.mathplotter.expression.Parameter;
+import com.mathplotter.expression.Parameters;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class MathParserTest {
+
+    @Test
+    void failedParsesLeaveNoParameterBehind() {
+        assertThrows(MathParsingException.class, () -> new MathParser("q*sin(x"));
+        assertNotSame(Parameters.lookup("q"), Parameters.lookup("q"));
+    }
+
+    @Test
+    void parsedExpressionsShareTheirParameters() throws MathParsingException {
+        Set<Parameter> first = Parameters.referencedBy(new MathParser("w*x+w").getTree());
+        Set<Parameter> second = Parameters.referencedBy(new MathParser("sin(w*x)").getTree());
+        assertEquals(1, first.size());
+        Parameter w = first.iterator().next();
+        assertSame(w, second.iterator().next());
+        assertSame(w, Parameters.get("w"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.mathplotter.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.mathplotter.model.Function;
+import com.mathplotter.model.Point;
+import java.awt.Color;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class NumericalMethodsTest {
+
+    @Test
+    void findsMultipleRootsOfPolynomials() throws Exception {
+        assertRoots("x^4-8*x^3+24*x^2-32*x+16", 2);
+        assertRoots("x^3-3*x^2+3*x-1", 1);
+    }
+
+    @Test
+    void skipsRootsWhereTheDenominatorVanishes() throws Exception {
+        assertRoots("(x^3-3*x^2+3*x-1)/(x-1)");
+        assertRoots("(x^2-1)/(x-1)", -1);
+        assertRoots("(x^3-x)/(x^2+1)", -1, 0, 1);
+    }
+
+    private static void assertRoots(String expression, double... expected) throws Exception {
+        Function f = new Function(expression, Color.BLACK);
+        assertNotNull(f.getRationalForm(), expression);
+        List<Point> roots = NumericalMethods.findRoots(f, -10, 10);
+        assertEquals(expected.length, roots.size(), expression + " has roots " + roots);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], roots.get(i).getX(), 1e-12, expression);
+        }
+    }
+}
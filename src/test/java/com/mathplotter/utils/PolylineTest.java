@@ -0,0 +1,60 @@
+package com.mathplotter.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.jupiter.api.Test;
+
+class PolylineTest {
+
+    private static final double SCALE = 43.5;
+
+    @Test
+    void concatenationKeepsAJumpRightAfterTheSharedPoint() {
+        // ceil jumps at -1, just after 0 and at 1; the right part starts with the jump at 0
+        double width = 64 / SCALE;
+        Polyline left = sample(Math::ceil, -width, 0);
+        Polyline right = sample(Math::ceil, 0, width);
+        assertEquals(3, jumps(left) + jumps(right));
+        assertTrue(right.jumpsAfter(0));
+
+        Polyline joined = Polyline.concatenate(Arrays.asList(left, right));
+        assertEquals(left.size() + right.size() - 1, joined.size());
+        assertEquals(3, jumps(joined));
+        int shared = left.size() - 1;
+        assertEquals(0, joined.getX(shared));
+        assertTrue(joined.jumpsAfter(shared));
+        assertFalse(joined.jumpsAfter(joined.size() - 1));
+    }
+
+    @Test
+    void concatenationKeepsPointsThatAreNotShared() {
+        Polyline left = sample(x -> -x, -1, -0.5);
+        Polyline right = sample(x -> -x, 0, 1);
+        Polyline joined = Polyline.concatenate(Arrays.asList(left, right));
+        assertEquals(left.size() + right.size(), joined.size());
+        assertEquals(left.getEvaluations() + right.getEvaluations(), joined.getEvaluations());
+        assertEquals(0, jumps(joined));
+    }
+
+    private static Polyline sample(DoubleUnaryOperator f, double lower, double upper) {
+        double[] xs = AdaptiveSampler.initialSamples(lower, upper, SCALE);
+        double[] ys = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) ys[i] = f.applyAsDouble(xs[i]);
+        int budget = (int) ((upper - lower) * SCALE) * AdaptiveSampler.EVALUATIONS_PER_PIXEL;
+        return AdaptiveSampler.sample(xs, ys, (in, out) -> {
+            for (int i = 0; i < in.length; i++) out[i] = f.applyAsDouble(in[i]);
+        }, SCALE, SCALE, budget);
+    }
+
+    private static int jumps(Polyline polyline) {
+        int jumps = 0;
+        for (int i = 0; i < polyline.size() - 1; i++) {
+            if (polyline.jumpsAfter(i)) jumps++;
+        }
+        return jumps;
+    }
+}
@@ -0,0 +1,60 @@
+package com.mathplotter.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class TileCacheTest {
+
+    @Test
+    void levelsAreDiscrete() {
+        for (long level = -40; level <= 40; level++) {
+            assertEquals(level, TileCache.level(TileCache.scale(level)));
+        }
+        assertEquals(TileCache.LEVELS_PER_DOUBLING, TileCache.level(2) - TileCache.level(1));
+        // A small zoom, as by the mouse wheel, stays on the same level
+        assertEquals(TileCache.level(100), TileCache.level(100 * 1.05));
+    }
+
+    @Test
+    void tilesAreShownCloseToTheirScale() {
+        double maxRatio = Math.pow(2, 0.5 / TileCache.LEVELS_PER_DOUBLING) * (1 + 1e-12);
+        for (double scale = 0.01; scale < 1e6; scale *= 1.013) {
+            double ratio = TileCache.scale(TileCache.level(scale)) / scale;
+            assertTrue(ratio <= maxRatio && 1 / ratio <= maxRatio, "scale " + scale);
+        }
+    }
+
+    @Test
+    void standInsStartAtTheNearestLevels() {
+        assertEquals(2, TileCache.STAND_IN_LEVELS.get(0).length);
+        int previous = 0;
+        for (int[] offset : TileCache.STAND_IN_LEVELS) {
+            int distance = Math.abs(offset[0]) + Math.abs(offset[1]);
+            assertTrue(distance >= previous && distance > 0);
+            assertTrue(Math.abs(offset[0] - offset[1]) <= 1);
+            previous = distance;
+        }
+        // Finer first
+        int[] first = TileCache.STAND_IN_LEVELS.get(0);
+        assertEquals(1, first[0] + first[1]);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedTiles() {
+        TileCache cache = new TileCache(3 * 4L * 16 * 16);
+        cache.put(0, 0, 0, 0, new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB_PRE));
+        cache.put(0, 0, 1, 0, new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB_PRE));
+        cache.put(1, 1, 0, 0, new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB_PRE));
+        assertNotNull(cache.get(0, 0, 0, 0));
+        cache.put(0, 0, 2, 0, new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB_PRE));
+        assertEquals(3, cache.size());
+        assertNull(cache.get(0, 0, 1, 0));
+        assertNotNull(cache.get(0, 0, 0, 0));
+        assertNotNull(cache.get(1, 1, 0, 0));
+    }
+}
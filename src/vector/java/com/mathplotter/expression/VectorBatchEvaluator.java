@@ -0,0 +1,288 @@
+package com.mathplotter.expression;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link BatchEvaluator} on the JDK Vector API.
+ * Arithmetic and the supported transcendental functions run on full {@link DoubleVector} lanes
+ * (AVX2: 4 doubles, AVX-512: 8 doubles); anything else falls back to the scalar column loop.
+ * <p>
+ * Only compiled with the {@code vector} Maven profile and loaded reflectively by
+ * {@link BatchEvaluators}; requires {@code --add-modules jdk.incubator.vector} at runtime.
+ */
+public final class VectorBatchEvaluator implements BatchEvaluator {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void evaluate(Expression expression, double[] xs, double[] ys, int length) {
+        evaluateNode(expression, xs, ys, length);
+    }
+
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+
+    private void evaluateNode(Expression node, double[] xs, double[] ys, int length) {
+        if (node instanceof BinaryOperation) {
+            BinaryOperation operation = (BinaryOperation) node;
+            evaluateNode(operation.getLeft(), xs, ys, length);
+            if (operation.getRight() instanceof Constant) {
+                apply(operation.getOperator(), ys, null, ((Constant) operation.getRight()).getValue(), length);
+                return;
+            }
+            ScratchColumns scratch = ScratchColumns.get();
+            double[] rightValues = scratch.acquire(length);
+            try {
+                evaluateNode(operation.getRight(), xs, rightValues, length);
+                apply(operation.getOperator(), ys, rightValues, 0, length);
+            } finally {
+                scratch.release();
+            }
+        } else if (node instanceof Negation) {
+            evaluateNode(((Negation) node).getOperand(), xs, ys, length);
+            int i = 0;
+            for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+                DoubleVector.fromArray(SPECIES, ys, i).neg().intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] = -ys[i];
+        } else if (node instanceof FunctionCall) {
+            FunctionCall call = (FunctionCall) node;
+            evaluateNode(call.getArgument(), xs, ys, length);
+            UnaryFunction function = call.getFunction();
+            if (function == FunctionRegistry.SIN) sin(ys, length);
+            else if (function == FunctionRegistry.COS) cos(ys, length);
+            else if (function == FunctionRegistry.TAN) tan(ys, length);
+            else if (function == FunctionRegistry.SQRT) sqrt(ys, length);
+            else if (function == FunctionRegistry.ABS) abs(ys, length);
+            else if (function == FunctionRegistry.LOG) log(ys, length);
+            else if (function == FunctionRegistry.LOG10) log10(ys, length);
+            else if (function == FunctionRegistry.EXP) exp(ys, length);
+            else if (function == FunctionRegistry.ASIN) asin(ys, length);
+            else if (function == FunctionRegistry.ACOS) acos(ys, length);
+            else if (function == FunctionRegistry.ATAN) atan(ys, length);
+            else {
+                DoubleUnaryOperator implementation = function.getImplementation();
+                for (int i = 0; i < length; i++) ys[i] = implementation.applyAsDouble(ys[i]);
+            }
+        } else {
+            // Constants, x and two-argument calls gain nothing from SIMD
+            node.evaluate(xs, ys, length);
+        }
+    }
+
+    // One method per operator: the JIT only emits SIMD instructions for lane-wise operations
+    // whose operator is a compile-time constant, which a shared helper taking the operator as
+    // a parameter does not guarantee. Remainders shorter than a vector are finished in scalar code.
+
+    private static void apply(BinaryOperation.Operator operator, double[] ys, double[] rightValues, double constant,
+                              int length) {
+        switch (operator) {
+            case ADD: add(ys, rightValues, constant, length); break;
+            case SUBTRACT: subtract(ys, rightValues, constant, length); break;
+            case MULTIPLY: multiply(ys, rightValues, constant, length); break;
+            case DIVIDE: divide(ys, rightValues, constant, length); break;
+            default: power(ys, rightValues, constant, length); break;
+        }
+    }
+
+    private static void add(double[] ys, double[] rightValues, double constant, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        if (rightValues == null) {
+            DoubleVector b = DoubleVector.broadcast(SPECIES, constant);
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.ADD, b).intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] += constant;
+        } else {
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector a = DoubleVector.fromArray(SPECIES, ys, i);
+                a.lanewise(VectorOperators.ADD, DoubleVector.fromArray(SPECIES, rightValues, i)).intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] += rightValues[i];
+        }
+    }
+
+    private static void subtract(double[] ys, double[] rightValues, double constant, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        if (rightValues == null) {
+            DoubleVector b = DoubleVector.broadcast(SPECIES, constant);
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.SUB, b).intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] -= constant;
+        } else {
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector a = DoubleVector.fromArray(SPECIES, ys, i);
+                a.lanewise(VectorOperators.SUB, DoubleVector.fromArray(SPECIES, rightValues, i)).intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] -= rightValues[i];
+        }
+    }
+
+    private static void multiply(double[] ys, double[] rightValues, double constant, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        if (rightValues == null) {
+            DoubleVector b = DoubleVector.broadcast(SPECIES, constant);
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.MUL, b).intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] *= constant;
+        } else {
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector a = DoubleVector.fromArray(SPECIES, ys, i);
+                a.lanewise(VectorOperators.MUL, DoubleVector.fromArray(SPECIES, rightValues, i)).intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] *= rightValues[i];
+        }
+    }
+
+    private static void divide(double[] ys, double[] rightValues, double constant, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        if (rightValues == null) {
+            DoubleVector b = DoubleVector.broadcast(SPECIES, constant);
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.DIV, b).intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] /= constant;
+        } else {
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector a = DoubleVector.fromArray(SPECIES, ys, i);
+                a.lanewise(VectorOperators.DIV, DoubleVector.fromArray(SPECIES, rightValues, i)).intoArray(ys, i);
+            }
+            for (; i < length; i++) ys[i] /= rightValues[i];
+        }
+    }
+
+    // Lane-wise POW is not intrinsified, so small integer powers are done by repeated
+    // multiplication and everything else by the scalar Math.pow loop. The squarings are whole
+    // passes over a scratch column: vectors carried around a loop are boxed on every call, as
+    // C2 cannot scalar-replace them there.
+    private static void power(double[] ys, double[] rightValues, double constant, int length) {
+        if (rightValues != null || constant != Math.rint(constant) || Math.abs(constant) > 64) {
+            for (int i = 0; i < length; i++) {
+                ys[i] = Math.pow(ys[i], rightValues == null ? constant : rightValues[i]);
+            }
+            return;
+        }
+        ScratchColumns scratch = ScratchColumns.get();
+        double[] base = scratch.acquire(length);
+        try {
+            System.arraycopy(ys, 0, base, 0, length);
+            Arrays.fill(ys, 0, length, 1.0);
+            for (int e = (int) Math.abs(constant); e > 0; e >>= 1) {
+                if ((e & 1) != 0) multiply(ys, base, 0, length);
+                if (e > 1) multiply(base, base, 0, length);
+            }
+        } finally {
+            scratch.release();
+        }
+        if (constant < 0) reciprocal(ys, length);
+    }
+
+    private static void reciprocal(double[] ys, int length) {
+        int i = 0;
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            one.div(DoubleVector.fromArray(SPECIES, ys, i)).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = 1 / ys[i];
+    }
+
+    private static void sin(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.SIN).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.sin(ys[i]);
+    }
+
+    private static void cos(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.COS).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.cos(ys[i]);
+    }
+
+    private static void tan(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.TAN).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.tan(ys[i]);
+    }
+
+    private static void sqrt(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.SQRT).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.sqrt(ys[i]);
+    }
+
+    private static void abs(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.ABS).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.abs(ys[i]);
+    }
+
+    private static void log(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.LOG).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.log(ys[i]);
+    }
+
+    private static void log10(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.LOG10).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.log10(ys[i]);
+    }
+
+    private static void exp(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.EXP).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.exp(ys[i]);
+    }
+
+    private static void asin(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.ASIN).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.asin(ys[i]);
+    }
+
+    private static void acos(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.ACOS).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.acos(ys[i]);
+    }
+
+    private static void atan(double[] ys, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ys, i).lanewise(VectorOperators.ATAN).intoArray(ys, i);
+        }
+        for (; i < length; i++) ys[i] = Math.atan(ys[i]);
+    }
+}